@@ -0,0 +1,74 @@
+package benchmarks;
+
+import cipher.DecrypterByAnalytics;
+import cipher.DecrypterByBruteForce;
+import cipher.KeyEstimate;
+import cipher.KeyRanking;
+import exceptions.FileIsEmptyException;
+import exceptions.InvalidFileNameException;
+import exceptions.NoCoincidenceException;
+import file_manager.FileManager;
+import file_manager.ParallelHistogramBuilder;
+import profile.BuiltInProfiles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки автоматической расшифровки: перебором и аналитическим методом.
+ * Измеряется поиск ключа и расшифровка лучшим ключом, а также аналитический поиск ключа по всему файлу:
+ * чтением файла в список строк и параллельной гистограммой по отображенному в память файлу.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class AutoDecryptBenchmark
+{
+    /** Дешифраторы. */
+    private final DecrypterByBruteForce decrypterByBruteForce = new DecrypterByBruteForce(BuiltInProfiles.RUSSIAN);
+    private final DecrypterByAnalytics decrypterByAnalytics = new DecrypterByAnalytics(BuiltInProfiles.RUSSIAN);
+
+    /** Объекты для чтения файла и параллельного построения гистограммы. */
+    private final FileManager fileManager = new FileManager();
+    private final ParallelHistogramBuilder histogramBuilder = new ParallelHistogramBuilder();
+
+    @Benchmark
+    public List<String> bruteForce(CorpusState corpus) throws NoCoincidenceException
+    {
+        KeyRanking ranking = decrypterByBruteForce.rank(corpus.encryptedData, corpus.representativeData);
+        return ranking.decrypt(ranking.best());
+    }
+
+    @Benchmark
+    public List<String> analytics(CorpusState corpus) throws NoCoincidenceException
+    {
+        KeyRanking ranking = decrypterByAnalytics.rank(corpus.encryptedData);
+        return ranking.decrypt(ranking.best());
+    }
+
+    @Benchmark
+    public KeyEstimate analyticsFileSequential(CorpusState corpus)
+            throws InvalidFileNameException, FileIsEmptyException, NoCoincidenceException
+    {
+        return decrypterByAnalytics.estimateKey(fileManager.getData(corpus.encryptedFile.toString()));
+    }
+
+    @Benchmark
+    public KeyEstimate analyticsFileParallel(CorpusState corpus) throws IOException, NoCoincidenceException
+    {
+        return decrypterByAnalytics.estimateKey(histogramBuilder.build(corpus.encryptedFile, BuiltInProfiles.RUSSIAN));
+    }
+}
@@ -0,0 +1,45 @@
+package benchmarks;
+
+import cipher.Decrypter;
+import cipher.Encrypter;
+import profile.BuiltInProfiles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки шифрования и расшифровки по ключу.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class CipherBenchmark
+{
+    /** Объекты для шифрования и расшифровки. */
+    private final Encrypter encrypter = new Encrypter();
+    private final Decrypter decrypter = new Decrypter(BuiltInProfiles.RUSSIAN);
+
+    @Benchmark
+    public List<String> encrypt(CorpusState corpus)
+    {
+        return encrypter.encrypt(BuiltInProfiles.RUSSIAN, corpus.plainData, CorpusState.KEY);
+    }
+
+    @Benchmark
+    public List<String> decrypt(CorpusState corpus)
+    {
+        return decrypter.decrypt(corpus.encryptedData, CorpusState.KEY);
+    }
+}
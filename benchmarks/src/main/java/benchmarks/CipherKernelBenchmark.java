@@ -0,0 +1,72 @@
+package benchmarks;
+
+import cipher.CompiledCipher;
+import profile.BuiltInProfiles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки ядра шифра на массиве символов: табличное ядро против векторного ядра (Vector API).
+ * Ядро выбирается при запуске JVM, поэтому каждый вариант выполняется в своем форке.
+ * Перед измерением проверяется, что результат совпадает с посимвольным применением таблицы.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class CipherKernelBenchmark
+{
+    /** Шифр, исходный текст и буфер для результата. */
+    private final CompiledCipher cipher = CompiledCipher.of(BuiltInProfiles.RUSSIAN, CorpusState.KEY);
+    private char[] letters;
+    private char[] result;
+
+    /**
+     * Собирает текст корпуса в один массив и сверяет результат ядра с посимвольным применением таблицы.
+     *
+     * @param corpus Корпус.
+     */
+    @Setup(Level.Trial)
+    public void setUp(CorpusState corpus)
+    {
+        letters = String.join("\n", corpus.plainData).toCharArray();
+        result = new char[letters.length];
+
+        cipher.apply(letters, 0, result, 0, letters.length);
+        for (int i = 0; i < letters.length; i++)
+        {
+            if (result[i] != cipher.apply(letters[i]))
+            {
+                throw new IllegalStateException("Результат ядра отличается от таблицы в позиции " + i);
+            }
+        }
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector", "-Dcipher.vector=false"})
+    public char[] table()
+    {
+        cipher.apply(letters, 0, result, 0, letters.length);
+        return result;
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules", "jdk.incubator.vector"})
+    public char[] vector()
+    {
+        cipher.apply(letters, 0, result, 0, letters.length);
+        return result;
+    }
+}
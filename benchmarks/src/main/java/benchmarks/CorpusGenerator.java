@@ -0,0 +1,170 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Генератор русского текста заданного размера для бенчмарков.
+ * Слова выбираются из словаря с распределением Ципфа, поэтому частоты букв и слов близки к реальному тексту,
+ * а одинаковое зерно всегда дает одинаковый корпус.
+ */
+public final class CorpusGenerator
+{
+    /**
+     * Словарь, упорядоченный по убыванию частоты.
+     */
+    private static final String[] WORDS = {
+            "и", "в", "не", "на", "я", "что", "он", "с", "это", "а", "как", "по", "но", "они", "к", "у", "мы",
+            "этот", "из", "за", "вы", "так", "же", "от", "сказать", "все", "она", "быть", "мочь", "человек",
+            "о", "один", "еще", "бы", "такой", "только", "себя", "свое", "какой", "когда", "уже", "для", "вот",
+            "кто", "да", "говорить", "год", "знать", "мой", "до", "или", "если", "время", "рука", "нет", "самый",
+            "ни", "стать", "большой", "даже", "другой", "наш", "свой", "ну", "под", "где", "дело", "есть", "сам",
+            "раз", "чтобы", "два", "там", "чем", "глаз", "жизнь", "первый", "день", "тут", "во", "ничто", "потом",
+            "очень", "со", "хотеть", "ли", "при", "голова", "надо", "без", "видеть", "идти", "теперь", "тоже",
+            "стоять", "друг", "дом", "сейчас", "можно", "после", "слово", "здесь", "думать", "место", "спросить",
+            "через", "лицо", "что", "тогда", "ведь", "хороший", "каждый", "новый", "жить", "должный", "смотреть",
+            "почему", "потому", "сторона", "просто", "нога", "сидеть", "понять", "иметь", "конечный", "делать",
+            "вдруг", "над", "взять", "никто", "сделать", "дверь", "перед", "нужный", "понимать", "казаться",
+            "работа", "три", "ваш", "уж", "земля", "конец", "несколько", "час", "голос", "город", "последний",
+            "пока", "хорошо", "давать", "вода", "более", "хотя", "всегда", "второй", "куда", "пойти", "стол",
+            "ребенок", "увидеть", "сила", "отец", "женщина", "машина", "случай", "ночь", "сразу", "мир", "совсем",
+            "остаться", "об", "вид", "выйти", "дать", "работать", "любить", "старый", "почти", "ряд", "оказаться",
+            "начало", "твой", "вопрос", "много", "война", "снова", "ответить", "между", "подумать", "опять",
+            "белый", "деньги", "значит", "про", "лишь", "минута", "жена", "посмотреть", "правда", "главный",
+            "страна", "свет", "ждать", "мать", "будто", "никогда", "товарищ", "дорога", "однажды", "съесть",
+            "щука", "подъезд", "юность", "ёлка", "эхо", "шёпот", "цифра", "фонарь", "хлеб", "чайник"
+    };
+
+    /**
+     * Знаки препинания внутри предложения и в его конце.
+     */
+    private static final String[] INNER_PUNCTUATION = {",", ",", ",", ";", " -", ":"};
+    private static final String[] END_PUNCTUATION = {".", ".", ".", "!", "?"};
+
+    /**
+     * Длина строки (в символах), после которой начинается новая строка.
+     */
+    private static final int LINE_LENGTH = 80;
+
+    // Закрытый конструктор, так как класс содержит только статические методы.
+    private CorpusGenerator()
+    {
+    }
+
+    /**
+     * Генерирует текст заданного размера в кодировке UTF-8.
+     *
+     * @param bytes Приблизительный размер текста в байтах UTF-8.
+     * @param seed Зерно генератора случайных чисел.
+     * @return Список строк текста.
+     */
+    public static List<String> generate(long bytes, long seed)
+    {
+        SplittableRandom random = new SplittableRandom(seed);
+        double[] cumulative = zipfCumulative();
+        List<String> lines = new ArrayList<>();
+        StringBuilder line = new StringBuilder();
+        long written = 0;
+        boolean sentenceStart = true;
+
+        while (written < bytes)
+        {
+            String word = WORDS[pick(cumulative, random.nextDouble())];
+            if (sentenceStart)
+            {
+                word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+            }
+            line.append(word);
+            sentenceStart = false;
+
+            int punctuation = random.nextInt(16);
+            if (punctuation == 0)
+            {
+                line.append(END_PUNCTUATION[random.nextInt(END_PUNCTUATION.length)]);
+                sentenceStart = true;
+            }
+            else if (punctuation < 3)
+            {
+                line.append(INNER_PUNCTUATION[random.nextInt(INNER_PUNCTUATION.length)]);
+            }
+
+            if (line.length() >= LINE_LENGTH)
+            {
+                String text = line.toString();
+                lines.add(text);
+                written += text.getBytes(StandardCharsets.UTF_8).length + 1;
+                line.setLength(0);
+            }
+            else
+            {
+                line.append(' ');
+            }
+        }
+        if (!line.isEmpty())
+        {
+            lines.add(line.toString().stripTrailing());
+        }
+
+        return lines;
+    }
+
+    /**
+     * Записывает строки в файл, добавляя после каждой строки перевод строки.
+     *
+     * @param path Путь к файлу.
+     * @param lines Список строк.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public static void write(Path path, List<String> lines) throws IOException
+    {
+        try (Writer writer = Files.newBufferedWriter(path))
+        {
+            for (String line : lines)
+            {
+                writer.write(line);
+                writer.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Вычисляет накопленные вероятности распределения Ципфа для словаря.
+     *
+     * @return Массив накопленных вероятностей.
+     */
+    private static double[] zipfCumulative()
+    {
+        double[] cumulative = new double[WORDS.length];
+        double sum = 0;
+        for (int i = 0; i < WORDS.length; i++)
+        {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        for (int i = 0; i < WORDS.length; i++)
+        {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Выбирает индекс слова по накопленным вероятностям.
+     *
+     * @param cumulative Накопленные вероятности.
+     * @param value Случайное число от 0 до 1.
+     * @return Индекс слова.
+     */
+    private static int pick(double[] cumulative, double value)
+    {
+        int index = Arrays.binarySearch(cumulative, value);
+        return Math.min(index >= 0 ? index : -index - 1, cumulative.length - 1);
+    }
+}
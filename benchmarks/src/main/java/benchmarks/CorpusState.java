@@ -0,0 +1,102 @@
+package benchmarks;
+
+import cipher.Encrypter;
+import profile.BuiltInProfiles;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Общее состояние бенчмарков: сгенерированный корпус заданного размера, его зашифрованная версия
+ * и те же данные в виде файлов во временном каталоге.
+ */
+@State(Scope.Benchmark)
+public class CorpusState
+{
+    /**
+     * Ключ, которым зашифрован корпус.
+     */
+    public static final int KEY = 17;
+
+    /**
+     * Размер корпуса: 1KB, 1MB или 100MB.
+     */
+    @Param({"1KB", "1MB", "100MB"})
+    public String size;
+
+    /** Исходный и зашифрованный текст. */
+    public List<String> plainData;
+    public List<String> encryptedData;
+
+    /** Репрезентативный текст для расшифровки перебором. */
+    public List<String> representativeData;
+
+    /** Файлы с исходным и зашифрованным текстом и файл для записи результата. */
+    public Path plainFile;
+    public Path encryptedFile;
+    public Path outputFile;
+
+    /**
+     * Временный каталог с файлами корпуса.
+     */
+    private Path directory;
+
+    /**
+     * Генерирует корпус и записывает его в файлы.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException
+    {
+        plainData = CorpusGenerator.generate(parseSize(size), 1);
+        encryptedData = new Encrypter().encrypt(BuiltInProfiles.RUSSIAN, plainData, KEY);
+        representativeData = CorpusGenerator.generate(64 * 1024, 2);
+
+        directory = Files.createTempDirectory("corpus");
+        plainFile = directory.resolve("plain.txt");
+        encryptedFile = directory.resolve("encrypted.txt");
+        outputFile = Files.createFile(directory.resolve("output.txt"));
+        CorpusGenerator.write(plainFile, plainData);
+        CorpusGenerator.write(encryptedFile, encryptedData);
+    }
+
+    /**
+     * Удаляет временный каталог с файлами корпуса.
+     *
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException
+    {
+        try (Stream<Path> files = Files.walk(directory))
+        {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+            {
+                Files.delete(file);
+            }
+        }
+    }
+
+    /**
+     * Переводит размер вида "1KB", "1MB" в байты.
+     *
+     * @param size Размер с суффиксом KB или MB.
+     * @return Размер в байтах.
+     */
+    private static long parseSize(String size)
+    {
+        long value = Long.parseLong(size.substring(0, size.length() - 2));
+        return size.endsWith("MB") ? value * 1024 * 1024 : value * 1024;
+    }
+}
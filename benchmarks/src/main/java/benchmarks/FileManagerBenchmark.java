@@ -0,0 +1,55 @@
+package benchmarks;
+
+import cipher.CompiledCipher;
+import exceptions.FileIsEmptyException;
+import exceptions.InvalidFileNameException;
+import file_manager.FileManager;
+import profile.BuiltInProfiles;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бенчмарки чтения, записи и потокового преобразования файлов.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FileManagerBenchmark
+{
+    /** Объект для работы с файлами. */
+    private final FileManager fileManager = new FileManager();
+
+    /** Шифр для потокового преобразования. */
+    private final CompiledCipher cipher = CompiledCipher.of(BuiltInProfiles.RUSSIAN, CorpusState.KEY);
+
+    @Benchmark
+    public List<String> getData(CorpusState corpus) throws InvalidFileNameException, FileIsEmptyException
+    {
+        return fileManager.getData(corpus.plainFile.toString());
+    }
+
+    @Benchmark
+    public boolean writeData(CorpusState corpus)
+    {
+        return fileManager.writeData(corpus.outputFile.toString(), corpus.plainData);
+    }
+
+    @Benchmark
+    public boolean transformData(CorpusState corpus)
+    {
+        return fileManager.transformData(corpus.plainFile.toString(), corpus.outputFile.toString(), cipher);
+    }
+}
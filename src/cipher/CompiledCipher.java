@@ -0,0 +1,276 @@
+package cipher;
+
+import profile.AlphabetProfile;
+
+import java.nio.BufferOverflowException;
+import java.nio.CharBuffer;
+
+/**
+ * Класс CompiledCipher представляет шифр Цезаря, заранее "скомпилированный" для конкретной пары
+ * (алфавит, ключ). Вместо поиска символа в списке алфавита при каждом обращении используется
+ * примитивная таблица подстановки {@code char[]}, индексируемая самим символом.
+ * Таблица покрывает диапазон от нулевого символа до максимального символа алфавита (для кириллицы - около 1100 элементов),
+ * символы за пределами таблицы не входят в алфавит и остаются без изменений.
+ * <p>
+ * Методы для {@code char[]} и {@link CharBuffer} преобразуют символы на месте или в буфер, переданный вызывающим
+ * кодом, и ничего не выделяют, поэтому при переиспользовании буферов поток символов шифруется без выделения памяти.
+ * <p>
+ * Позиции буферов во всех методах пакета меняются одинаково, как в {@link CharBuffer#put(CharBuffer)}:
+ * метод, преобразующий символы буфера (на месте или в другой буфер), обрабатывает символы от позиции до предела
+ * и сдвигает позицию исходного буфера до предела, а позицию целевого - на количество записанных символов;
+ * метод, который только анализирует символы (оценка ключа, подсчет слов), читает их абсолютными обращениями
+ * и позицию не изменяет.
+ * <p>
+ * Если JVM запущена с {@code --add-modules jdk.incubator.vector}, длинные участки массивов преобразуются
+ * векторным ядром {@link VectorCipherKernel} с тем же результатом. Векторное ядро можно отключить свойством
+ * {@code -Dcipher.vector=false}.
+ */
+public final class CompiledCipher
+{
+    /**
+     * Таблица подстановки: элемент с индексом {@code c} содержит символ, в который переходит {@code c}.
+     */
+    private final char[] table;
+
+    /**
+     * true, если модуль Vector API подключен и векторное ядро не отключено свойством {@code cipher.vector}.
+     */
+    private static final boolean VECTOR_ENABLED = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+            && !"false".equals(System.getProperty("cipher.vector"));
+
+    /**
+     * Векторное ядро для таблицы, либо null, если Vector API недоступен или таблицу нельзя обработать векторно.
+     */
+    private final VectorCipherKernel vectorKernel;
+
+    /**
+     * Буферы для преобразования строк, переиспользуемые в пределах одного потока.
+     */
+    private static final ThreadLocal<char[]> lineBuffers = ThreadLocal.withInitial(() -> new char[256]);
+
+    /**
+     * Нормализованный ключ шифрования в диапазоне [0, размер алфавита).
+     */
+    private final int key;
+
+    /**
+     * Размер алфавита, для которого построена таблица.
+     */
+    private final int alphabetSize;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #of(AlphabetProfile, int)}.
+     *
+     * @param table Таблица подстановки.
+     * @param key Нормализованный ключ.
+     * @param alphabetSize Размер алфавита.
+     */
+    private CompiledCipher(char[] table, int key, int alphabetSize)
+    {
+        this.table = table;
+        this.key = key;
+        this.alphabetSize = alphabetSize;
+        this.vectorKernel = VECTOR_ENABLED ? VectorCipherKernel.of(table) : null;
+    }
+
+    /**
+     * Строит таблицу подстановки для алфавита заданного профиля и ключа.
+     * При отрицательном значении {@code key} сдвиг выполняется влево.
+     *
+     * @param profile Профиль языка, алфавит которого используется для сдвига.
+     * @param key Значение сдвига.
+     * @return Скомпилированный шифр.
+     */
+    public static CompiledCipher of(AlphabetProfile profile, int key)
+    {
+        int size = profile.size();
+        char max = 0;
+
+        for (int i = 0; i < size; i++)
+        {
+            max = (char) Math.max(max, profile.letterAt(i));
+        }
+
+        char[] table = new char[max + 1];
+        for (int c = 0; c < table.length; c++)
+        {
+            table[c] = (char) c;
+        }
+
+        int normalizedKey = (key % size + size) % size;
+        for (int i = 0; i < size; i++)
+        {
+            table[profile.letterAt(i)] = profile.letterAt((i + normalizedKey) % size);
+        }
+
+        return new CompiledCipher(table, normalizedKey, size);
+    }
+
+    /**
+     * Возвращает шифр, выполняющий обратное преобразование.
+     *
+     * @return Обратный скомпилированный шифр.
+     */
+    public CompiledCipher inverse()
+    {
+        char[] inverseTable = new char[table.length];
+        for (int c = 0; c < table.length; c++)
+        {
+            inverseTable[table[c]] = (char) c;
+        }
+        return new CompiledCipher(inverseTable, (alphabetSize - key) % alphabetSize, alphabetSize);
+    }
+
+    /**
+     * Преобразует один символ.
+     *
+     * @param letter Исходный символ.
+     * @return Символ после сдвига, либо исходный символ, если его нет в алфавите.
+     */
+    public char apply(char letter)
+    {
+        return letter < table.length ? table[letter] : letter;
+    }
+
+    /**
+     * Преобразует строку. Символы строки копируются в буфер потока, поэтому создается только строка результата.
+     *
+     * @param line Исходная строка.
+     * @return Строка после сдвига.
+     */
+    public String apply(String line)
+    {
+        int length = line.length();
+        char[] letters = lineBuffers.get();
+        if (letters.length < length)
+        {
+            letters = new char[Math.max(length, letters.length * 2)];
+            lineBuffers.set(letters);
+        }
+        line.getChars(0, length, letters, 0);
+        apply(letters, 0, length);
+        return new String(letters, 0, length);
+    }
+
+    /**
+     * Преобразует участок массива символов на месте.
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа (включительно).
+     * @param to Индекс последнего символа (не включительно).
+     */
+    public void apply(char[] letters, int from, int to)
+    {
+        apply(letters, from, letters, from, to - from);
+    }
+
+    /**
+     * Преобразует участок массива символов и записывает результат в другой (или тот же) массив.
+     *
+     * @param source Исходный массив.
+     * @param sourceFrom Индекс первого исходного символа.
+     * @param target Массив для результата.
+     * @param targetFrom Индекс, начиная с которого записывается результат.
+     * @param length Количество символов.
+     */
+    public void apply(char[] source, int sourceFrom, char[] target, int targetFrom, int length)
+    {
+        if (vectorKernel != null && length >= VectorCipherKernel.vectorLength())
+        {
+            vectorKernel.apply(source, sourceFrom, target, targetFrom, length);
+            return;
+        }
+
+        char[] table = this.table;
+        int limit = table.length;
+
+        for (int i = 0; i < length; i++)
+        {
+            char letter = source[sourceFrom + i];
+            target[targetFrom + i] = letter < limit ? table[letter] : letter;
+        }
+    }
+
+    /**
+     * Преобразует символы буфера от позиции до предела на месте. Позиция буфера сдвигается до предела.
+     *
+     * @param buffer Буфер символов.
+     */
+    public void apply(CharBuffer buffer)
+    {
+        if (buffer.hasArray() && !buffer.isReadOnly())
+        {
+            int from = buffer.arrayOffset() + buffer.position();
+            apply(buffer.array(), from, from + buffer.remaining());
+        }
+        else
+        {
+            for (int i = buffer.position(); i < buffer.limit(); i++)
+            {
+                buffer.put(i, apply(buffer.get(i)));
+            }
+        }
+        buffer.position(buffer.limit());
+    }
+
+    /**
+     * Преобразует все оставшиеся символы исходного буфера и записывает результат в целевой буфер,
+     * как {@link CharBuffer#put(CharBuffer)}: позиция исходного буфера сдвигается до предела,
+     * позиция целевого - на количество символов.
+     *
+     * @param source Исходный буфер.
+     * @param target Буфер для результата.
+     * @throws BufferOverflowException если в целевом буфере недостаточно места.
+     */
+    public void apply(CharBuffer source, CharBuffer target)
+    {
+        int length = source.remaining();
+        if (target.remaining() < length)
+        {
+            throw new BufferOverflowException();
+        }
+
+        if (source.hasArray() && target.hasArray() && !target.isReadOnly())
+        {
+            apply(source.array(), source.arrayOffset() + source.position(),
+                    target.array(), target.arrayOffset() + target.position(), length);
+            source.position(source.limit());
+            target.position(target.position() + length);
+            return;
+        }
+        while (source.hasRemaining())
+        {
+            target.put(apply(source.get()));
+        }
+    }
+
+    /**
+     * Возвращает длину таблицы подстановки: символы с кодом не меньше этого значения не изменяются.
+     *
+     * @return Длина таблицы подстановки.
+     */
+    int tableLength()
+    {
+        return table.length;
+    }
+
+    /**
+     * Возвращает нормализованный ключ шифра.
+     *
+     * @return Ключ в диапазоне [0, размер алфавита).
+     */
+    public int getKey()
+    {
+        return key;
+    }
+
+    /**
+     * Возвращает размер алфавита, для которого построен шифр.
+     *
+     * @return Размер алфавита.
+     */
+    public int getAlphabetSize()
+    {
+        return alphabetSize;
+    }
+}
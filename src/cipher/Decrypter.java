@@ -1,6 +1,8 @@
 package cipher;
 
+import profile.AlphabetProfile;
 
+import java.nio.CharBuffer;
 import java.util.*;
 
 /**
@@ -14,18 +16,25 @@ public class Decrypter
     private final Encrypter encrypter = new Encrypter();
 
     /**
-     * Список символов алфавита, используемый для шифрования и дешифрования.
+     * Профиль языка, алфавит которого используется для шифрования и дешифрования.
      */
-    private final List<Character> alphabet;
+    private final AlphabetProfile profile;
+
+    /**
+     * Скомпилированные шифры расшифровки по нормализованному ключу, создаваемые при первом обращении.
+     * Гонка при заполнении безопасна: шифр неизменяем, в худшем случае он будет построен дважды.
+     */
+    private final CompiledCipher[] ciphers;
 
     /**
      * Конструктор класса Decrypter.
      *
-     * @param alphabet Список символов алфавита, используемого для шифрования/дешифрования.
+     * @param profile Профиль языка, алфавит которого используется для шифрования/дешифрования.
      */
-    public Decrypter(List<Character> alphabet)
+    public Decrypter(AlphabetProfile profile)
     {
-        this.alphabet = alphabet;
+        this.profile = profile;
+        this.ciphers = new CompiledCipher[profile.size()];
     }
 
     /**
@@ -39,8 +48,43 @@ public class Decrypter
     public List<String> decrypt(List<String> encryptedData, int key)
     {
 
-        return encrypter.encrypt(alphabet, encryptedData, key * -1);
+        return encrypter.encrypt(compile(key), encryptedData);
+
+    }
 
+    /**
+     * Метод для расшифровки символов буфера от позиции до предела в буфер вызывающего кода.
+     * Шифр для ключа строится один раз, поэтому при повторных вызовах память не выделяется.
+     * Позиция исходного буфера сдвигается до предела, позиция целевого - на количество символов.
+     *
+     * @param source Буфер с зашифрованными символами.
+     * @param target Буфер для расшифрованных символов.
+     * @param key Ключ для дешифровки (сдвига).
+     * @throws java.nio.BufferOverflowException если в целевом буфере недостаточно места.
+     */
+    public void decrypt(CharBuffer source, CharBuffer target, int key)
+    {
+        compile(key).apply(source, target);
+    }
+
+    /**
+     * Метод для построения шифра, выполняющего расшифровку по ключу.
+     * Используется для потоковой расшифровки файлов без загрузки их в память.
+     * Шифры кешируются по ключу.
+     *
+     * @param key Ключ для дешифровки (сдвига).
+     * @return Скомпилированный шифр обратного сдвига.
+     */
+    public CompiledCipher compile(int key)
+    {
+        int normalizedKey = Math.floorMod(key, ciphers.length);
+        CompiledCipher cipher = ciphers[normalizedKey];
+        if (cipher == null)
+        {
+            cipher = CompiledCipher.of(profile, -normalizedKey);
+            ciphers[normalizedKey] = cipher;
+        }
+        return cipher;
     }
 
 
@@ -1,305 +1,437 @@
 package cipher;
 
 import exceptions.NoCoincidenceException;
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
 
+import java.nio.CharBuffer;
 import java.util.*;
 
 /**
  * Класс DecrypterByAnalytics выполняет расшифровку данных с использованием аналитического метода,
- * который основывается на сравнении частоты букв в шифрованном тексте с известными частотами букв в русском языке.
+ * который основывается на сравнении частоты букв в шифрованном тексте с известными частотами букв языка профиля.
  */
 public class DecrypterByAnalytics
 {
     /**
-     * Статистические данные о частоте букв и некоторых символов в русском языке.
+     * Профиль языка: алфавит шифра и статистические частоты букв.
      */
-    private static final Map<Character, Double> RUSSIAN_FREQUENCIES = Map.ofEntries(
-            Map.entry('а', 8.66),
-            Map.entry('б', 1.59),
-            Map.entry('в', 4.54),
-            Map.entry('г', 1.70),
-            Map.entry('д', 2.98),
-            Map.entry('е', 8.72),
-            Map.entry('ё', 0.13),
-            Map.entry('ж', 0.94),
-            Map.entry('з', 1.65),
-            Map.entry('и', 7.34),
-            Map.entry('й', 1.21),
-            Map.entry('к', 3.49),
-            Map.entry('л', 4.40),
-            Map.entry('м', 3.21),
-            Map.entry('н', 6.97),
-            Map.entry('о', 9.28),
-            Map.entry('п', 2.81),
-            Map.entry('р', 4.73),
-            Map.entry('с', 5.47),
-            Map.entry('т', 6.26),
-            Map.entry('у', 2.62),
-            Map.entry('ф', 0.26),
-            Map.entry('х', 0.97),
-            Map.entry('ц', 0.48),
-            Map.entry('ч', 1.48),
-            Map.entry('ш', 0.73),
-            Map.entry('щ', 0.36),
-            Map.entry('ъ', 0.04),
-            Map.entry('ы', 1.90),
-            Map.entry('ь', 1.74),
-            Map.entry('э', 0.32),
-            Map.entry('ю', 0.64),
-            Map.entry('я', 2.01),
-            Map.entry(' ', 15.0),
-            Map.entry(',', 4.0),
-            Map.entry('.', 3.0)
-
-    );
+    private final AlphabetProfile profile;
 
     /**
-     * Список символов алфавита, используемый для шифрования и дешифрования.
+     * Номер частотного класса (строчной буквы с известной частотой) для каждой позиции алфавита, либо -1.
      */
-    private final List<Character> alphabet;
+    private final int[] frequencyClass;
 
     /**
-     * Экземпляр класса Encrypter, используемый для выполнения операции дешифрования.
+     * Статистическая частота (в процентах) для каждого частотного класса.
      */
-    private static final Encrypter encrypter = new Encrypter();
+    private final double[] classFrequencies;
 
     /**
-     * Конструктор класса DecrypterByAnalytics.
+     * Дешифратор по ключу, кеширующий скомпилированные шифры.
+     */
+    private final Decrypter decrypter;
+
+    /**
+     * Кеш найденных ключей по отпечатку шифротекста.
+     */
+    private final KeyCache keyCache;
+
+    /**
+     * Пространство отпечатков этого дешифратора в кеше ключей.
+     */
+    private final long cacheSeed;
+
+    /**
+     * Наибольший размер текста, для которого гистограмма оценивается без масштабирования:
+     * при большем размере сумма квадратов отклонений могла бы переполнить long.
+     */
+    private static final long MAX_SCORED_TEXT = 1L << 28;
+
+    /**
+     * Конструктор класса DecrypterByAnalytics без кеша найденных ключей.
      *
-     * @param alphabet Список символов алфавита, используемого для дешифрования.
+     * @param profile Профиль языка, используемого для дешифрования.
      */
-    public DecrypterByAnalytics(List<Character> alphabet)
+    public DecrypterByAnalytics(AlphabetProfile profile)
     {
-        this.alphabet = alphabet;
+        this(profile, KeyCache.DISABLED);
     }
 
     /**
-     * Метод для расшифровки данных с использованием аналитического подхода на основе частоты букв.
-     * Метод создает вариации шифрования для каждого возможного сдвига и вычисляет отклонение от статистической частоты
-     * букв в русском языке. Затем выбираются наиболее подходящие варианты расшифровки.
+     * Конструктор класса DecrypterByAnalytics.
+     * Заранее сопоставляет позиции алфавита частотным классам,
+     * чтобы при расшифровке не обращаться к мапам в цикле по символам.
      *
-     * @param encryptedData Список строк с зашифрованными данными.
-     * @return Список расшифрованных вариантов данных.
-     * @throws NoCoincidenceException если не удалось найти подходящий вариант расшифровки.
+     * @param profile Профиль языка, используемого для дешифрования.
+     * @param keyCache Кеш найденных ключей, проверяемый перед поиском ключа.
      */
-    public List<List<String>> decrypt(List<String> encryptedData) throws NoCoincidenceException
+    public DecrypterByAnalytics(AlphabetProfile profile, KeyCache keyCache)
     {
-        Map<Character, Integer> currentValues = valuesForCurrentText(countTotalCharacters(encryptedData));
-        List<List<String>> variations = createVariations(encryptedData);
-        List<List<String>> decryptedData = new ArrayList<>();
-        Map<Integer, Integer> deviationSquareSum = deviationSquareSumMap(currentValues, variations);
-        int minSum = findClosestToZero(deviationSquareSum);
-
-        // Добавление вариантов, у которых отклонения минимальны.
-        for (Map.Entry<Integer, Integer> entry : deviationSquareSum.entrySet())
-        {
-            int sum = entry.getValue();
+        this.profile = profile;
+        this.decrypter = new Decrypter(profile);
+        this.keyCache = keyCache;
+        this.cacheSeed = KeyCache.seed(profile, "analytics:" + profile.getName());
 
-            if (sum == minSum)
+        int size = profile.size();
+        frequencyClass = new int[size];
+        Map<Character, Integer> classes = new HashMap<>();
+        List<Double> frequencies = new ArrayList<>();
+
+        for (int i = 0; i < size; i++)
+        {
+            char lowLetter = Character.toLowerCase(profile.letterAt(i));
+            Double frequency = profile.getFrequencies().get(lowLetter);
+            if (frequency == null)
             {
-                List<String> variation = variations.get(entry.getKey());
+                frequencyClass[i] = -1;
+                continue;
+            }
 
-                decryptedData.add(variation);
+            Integer frequencyNumber = classes.get(lowLetter);
+            if (frequencyNumber == null)
+            {
+                frequencyNumber = frequencies.size();
+                classes.put(lowLetter, frequencyNumber);
+                frequencies.add(frequency);
             }
+            frequencyClass[i] = frequencyNumber;
         }
 
-        return decryptedData;
+        classFrequencies = new double[frequencies.size()];
+        for (int i = 0; i < classFrequencies.length; i++)
+        {
+            classFrequencies[i] = frequencies.get(i);
+        }
     }
 
     /**
-     * Метод находит минимальное отклонение среди всех вариантов расшифровок.
+     * Метод для поиска ключа с использованием аналитического подхода на основе частоты букв.
+     * Метод за один проход строит гистограмму символов шифротекста. Гистограмма текста, расшифрованного
+     * любым ключом, является циклическим сдвигом этой гистограммы, поэтому отклонение от статистической частоты
+     * букв языка вычисляется для каждого ключа без расшифровки текста.
+     * Текст расшифровывается только при обращении к варианту рейтинга.
      *
-     * @param map Мапа, где ключи — индексы вариантов расшифровки, а значения — суммы квадратов отклонений.
-     * @return Минимальное отклонение.
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @return Рейтинг из {@link KeyRanking#DEFAULT_LIMIT} ключей с наименьшим отклонением.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
      */
-    private int findClosestToZero(Map<Integer, Integer> map)
+    public KeyRanking rank(List<String> encryptedData) throws NoCoincidenceException
     {
-        int minSum = Integer.MAX_VALUE;
+        return rank(encryptedData, KeyRanking.DEFAULT_LIMIT);
+    }
 
-        for (int value : map.values())
+    /**
+     * Метод для поиска ключа с использованием аналитического подхода на основе частоты букв.
+     * Если в кеше ключей есть уверенная оценка ключа для этого шифротекста, поиск не выполняется
+     * и рейтинг состоит из одного сохраненного ключа ({@link KeyCache#rankIfAbsent}).
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param limit Максимальное количество ключей в рейтинге.
+     * @return Рейтинг ключей с наименьшим отклонением.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public KeyRanking rank(List<String> encryptedData, int limit) throws NoCoincidenceException
+    {
+        return keyCache.rankIfAbsent(cacheSeed, encryptedData, decrypter, () ->
         {
-            if (Math.abs(value) < minSum)
-            {
-                minSum = value;
-
-            }
-        }
-
-        return minSum;
+            long[] deviationSquareSum = scoreKeys(encryptedData);
+            double[] costs = Arrays.stream(deviationSquareSum).asDoubleStream().toArray();
+            return KeyRanking.of(costs, limit, estimate(deviationSquareSum).confidence(), decrypter, encryptedData);
+        });
     }
 
     /**
-     * Подсчитывает общее количество символов в списке.
+     * Метод оценивает наиболее вероятный ключ расшифровки без расшифровки текста.
+     * Уверенность вычисляется как относительный отрыв лучшего ключа от второго по качеству:
+     * 0 - два ключа одинаково хороши, 1 - второй ключ бесконечно хуже.
+     * Подходит для оценки ключа по небольшому фрагменту большого файла.
+     * Если ключ для этого шифротекста уже есть в кеше ключей, поиск не выполняется.
      *
-     * @param data Список строк с данными.
-     * @return Общее количество символов в данных.
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
      */
-    private int countTotalCharacters(List<String> data)
+    public KeyEstimate estimateKey(List<String> encryptedData) throws NoCoincidenceException
     {
-        int count = 0;
-        for (String line : data)
-        {
-            count += line.length();
-        }
-        return count;
+        return keyCache.computeIfAbsent(cacheSeed, encryptedData, () -> estimate(scoreKeys(encryptedData)));
     }
 
     /**
-     * Метод для добавления суммы квадратов отклонений для каждого варианта расшифровки в мапу.
+     * Метод оценивает наиболее вероятный ключ расшифровки по символам буфера от позиции до предела.
+     * Позиция буфера не изменяется. Если ключ для этого шифротекста уже есть в кеше ключей, поиск не выполняется.
      *
-     * @param currentValues Частоты букв в исходном тексте.
-     * @param variations Список вариантов расшифрованных данных.
-     * @return Карта, где ключи — номера вариантов, а значения — сумма квадратов отклонений.
-     * @throws NoCoincidenceException если не найдено совпадений в частотах символов.
+     * @param encryptedData Буфер с зашифрованными символами.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
      */
-    private Map<Integer, Integer> deviationSquareSumMap(Map<Character, Integer> currentValues, List<List<String>> variations) throws NoCoincidenceException
+    public KeyEstimate estimateKey(CharBuffer encryptedData) throws NoCoincidenceException
     {
-        Map<Integer, Integer> deviationSquareSum = new HashMap<>();
-        int variationNumber = 0;
+        return keyCache.computeIfAbsent(cacheSeed, List.of(encryptedData), () -> estimate(scoreKeys(encryptedData)));
+    }
 
-        // Вычисление суммы квадратов отклонений для каждого варианта.
-        for (List<String> variation : variations)
+    /**
+     * Метод оценивает наиболее вероятный ключ расшифровки по готовой гистограмме символов шифротекста,
+     * например построенной параллельно по большому файлу. Гистограмма текста длиннее {@code MAX_SCORED_TEXT}
+     * символов пропорционально уменьшается: отклонения зависят только от соотношения частот.
+     * Кеш ключей не используется: по гистограмме нельзя вычислить отпечаток шифротекста.
+     *
+     * @param histogram Гистограмма символов шифротекста по позициям алфавита профиля.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public KeyEstimate estimateKey(LetterHistogram histogram) throws NoCoincidenceException
+    {
+        long start = Metrics.start();
+        long scale = Math.max(1, (histogram.textSize() + MAX_SCORED_TEXT - 1) / MAX_SCORED_TEXT);
+        int[] counts = new int[profile.size()];
+        for (int i = 0; i < counts.length; i++)
         {
-            int sum = calculateDeviationSquareSum(currentValues, getLettersCount(variation));
-            deviationSquareSum.put(variationNumber, sum);
-            variationNumber++;
+            counts[i] = (int) (histogram.counts()[i] / scale);
         }
 
-        return deviationSquareSum;
+        KeyEstimate estimate = estimate(scoreHistogram(counts, (int) (histogram.textSize() / scale)));
+        Metrics.record(Stage.KEY_SEARCH, start, histogram.textSize());
+        return estimate;
+    }
 
+    /**
+     * Возвращает профиль языка дешифратора.
+     *
+     * @return Профиль языка.
+     */
+    public AlphabetProfile getProfile()
+    {
+        return profile;
     }
 
     /**
-     * Метод для вычисления суммы квадратов отклонений частоты символов между мапой частот в русском языке и в текущем варианте.
+     * Метод для расшифровки символов буфера от позиции до предела в буфер вызывающего кода.
+     * Расшифровка выполняется ключом с минимальным отклонением (при равенстве - наименьшим из них).
+     * Ключ сначала ищется в кеше ключей, при поиске позиция исходного буфера не изменяется;
+     * при расшифровке позиция исходного буфера сдвигается до предела, позиция целевого - на количество символов.
      *
-     * @param statisticLettersCount Статистическая мапа частот символов.
-     * @param currentLettersCount Мапа частот символов текущего варианта.
-     * @return Сумма квадратов отклонений частот символов.
-     * @throws NoCoincidenceException если не найдено совпадений в частотах символов.
+     * @param encryptedData Буфер с зашифрованными символами.
+     * @param target Буфер для расшифрованных символов.
+     * @return Ключ, которым выполнена расшифровка.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     * @throws java.nio.BufferOverflowException если в целевом буфере недостаточно места.
      */
-    private int calculateDeviationSquareSum(Map<Character, Integer> statisticLettersCount, Map<Character, Integer> currentLettersCount) throws NoCoincidenceException
+    public int decrypt(CharBuffer encryptedData, CharBuffer target) throws NoCoincidenceException
     {
+        int key = estimateKey(encryptedData).key();
+        decrypter.decrypt(encryptedData, target, key);
+        return key;
+    }
 
-        int sum = 0;
-        int check = 0;
-        int deviation = 0;
+    /**
+     * Метод вычисляет, насколько частоты букв текста, расшифрованного лучшим ключом, отклоняются от частот языка.
+     * Сумма квадратов отклонений делится на квадрат длины текста, поэтому значения для разных текстов
+     * и разных профилей сравнимы между собой: чем меньше значение, тем лучше текст соответствует языку профиля.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @return Относительное отклонение для лучшего ключа.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public double relativeDeviation(List<String> encryptedData) throws NoCoincidenceException
+    {
+        long textSize = 0;
+        for (String line : encryptedData)
+        {
+            textSize += line.length();
+        }
+        return findMinimum(scoreKeys(encryptedData)) / ((double) textSize * textSize);
+    }
 
+    /**
+     * Метод выбирает ключ с минимальным отклонением и вычисляет уверенность в нем.
+     *
+     * @param deviationSquareSum Массив, где индексы — ключи расшифровки, а значения — суммы квадратов отклонений.
+     * @return Оценка ключа.
+     */
+    private KeyEstimate estimate(long[] deviationSquareSum)
+    {
+        int bestKey = 0;
 
-        for (Map.Entry<Character, Integer> entry : currentLettersCount.entrySet())
+        for (int key = 1; key < deviationSquareSum.length; key++)
         {
-            Character lowLetter = Character.toLowerCase(entry.getKey());
-
-            if (statisticLettersCount.containsKey(lowLetter))
+            if (deviationSquareSum[key] < deviationSquareSum[bestKey])
             {
-                deviation = currentLettersCount.get(lowLetter) - statisticLettersCount.get(lowLetter);
-                check++;
+                bestKey = key;
             }
-
-            sum += deviation * deviation;
         }
 
-        if (check == 0)
+        long secondSum = Long.MAX_VALUE;
+        for (int key = 0; key < deviationSquareSum.length; key++)
         {
-            throw new NoCoincidenceException();
+            if (key != bestKey && deviationSquareSum[key] < secondSum)
+            {
+                secondSum = deviationSquareSum[key];
+            }
         }
-        else
+
+        double confidence = secondSum == 0 ? 0 : (double) (secondSum - deviationSquareSum[bestKey]) / secondSum;
+        return new KeyEstimate(bestKey, confidence);
+    }
+
+    /**
+     * Метод строит гистограмму шифротекста и вычисляет сумму квадратов отклонений для каждого ключа.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @return Массив, где индексы — ключи расшифровки, а значения — суммы квадратов отклонений.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    private long[] scoreKeys(List<String> encryptedData) throws NoCoincidenceException
+    {
+        long start = Metrics.start();
+        int[] histogram = new int[profile.size()];
+        int textSize = 0;
+        for (String line : encryptedData)
         {
-            return sum;
+            textSize += countLetters(line, histogram);
         }
+        long[] deviationSquareSum = scoreHistogram(histogram, textSize);
+        Metrics.record(Stage.KEY_SEARCH, start, textSize);
+        return deviationSquareSum;
     }
 
     /**
-     * Метод для подсчета частоты символов в тексте.
+     * Метод строит гистограмму символов буфера и вычисляет сумму квадратов отклонений для каждого ключа.
      *
-     * @param data Список строк для подсчета частоты символов.
-     * @return Мапа частот символов.
+     * @param encryptedData Буфер с зашифрованными символами.
+     * @return Массив, где индексы — ключи расшифровки, а значения — суммы квадратов отклонений.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
      */
-    private Map<Character, Integer> getLettersCount(List<String> data)
+    private long[] scoreKeys(CharBuffer encryptedData) throws NoCoincidenceException
     {
-        Map<Character, Integer> lettersCount = new HashMap<>(); //Было TreeMap
+        long start = Metrics.start();
+        int[] histogram = new int[profile.size()];
+        int textSize = countLetters(encryptedData, histogram);
+        long[] deviationSquareSum = scoreHistogram(histogram, textSize);
+        Metrics.record(Stage.KEY_SEARCH, start, textSize);
+        return deviationSquareSum;
+    }
 
-        for (String line : data)
+    /**
+     * Метод вычисляет сумму квадратов отклонений для каждого ключа по готовой гистограмме.
+     *
+     * @param histogram Гистограмма символов шифротекста по позициям алфавита.
+     * @param textSize Общее количество символов в данных.
+     * @return Массив, где индексы — ключи расшифровки, а значения — суммы квадратов отклонений.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    private long[] scoreHistogram(int[] histogram, int textSize) throws NoCoincidenceException
+    {
+        if (Arrays.stream(histogram).allMatch(count -> count == 0))
         {
-            putLetters(lettersCount, line);
+            throw new NoCoincidenceException();
         }
-
-        return lettersCount;
-
+        return deviationSquareSums(histogram, valuesForCurrentText(textSize), textSize);
     }
 
     /**
-     * Метод для добавления символов в мапу частоты символов.
+     * Метод находит минимальное отклонение среди всех ключей.
      *
-     * @param lettersCount Мапа для подсчета частоты символов.
-     * @param line Строка для обработки.
+     * @param deviationSquareSum Массив, где индексы — ключи расшифровки, а значения — суммы квадратов отклонений.
+     * @return Минимальное отклонение.
      */
-    private void putLetters(Map<Character, Integer> lettersCount, String line)
+    private long findMinimum(long[] deviationSquareSum)
     {
-        Character[] letters = toCharacterArray(line);
-        for (Character letter : letters)
+        long minSum = Long.MAX_VALUE;
+
+        for (long value : deviationSquareSum)
         {
-            if (alphabet.contains(letter))
+            if (value < minSum)
             {
-                letter = Character.toLowerCase(letter);
-                lettersCount.put(letter, lettersCount.getOrDefault(letter, 0) + 1);
+                minSum = value;
             }
         }
+
+        return minSum;
     }
 
     /**
-     * Преобразует строку в массив символов Character.
+     * Подсчитывает количество символов в тексте и дополняет гистограмму символов алфавита.
      *
-     * @param line Строка для преобразования.
-     * @return Массив символов.
+     * @param text Строка или буфер символов.
+     * @param histogram Массив, в котором по позициям алфавита накапливается количество символов.
+     * @return Количество символов в тексте.
      */
-    private Character[] toCharacterArray(String line)
+    private int countLetters(CharSequence text, int[] histogram)
     {
-        Character[] characters = new Character[line.length()];
+        int length = text.length();
 
-        for (int i = 0; i < line.length(); i++)
+        for (int i = 0; i < length; i++)
         {
-            characters[i] = line.charAt(i);
+            int index = profile.indexOf(text.charAt(i));
+            if (index != -1)
+            {
+                histogram[index]++;
+            }
         }
 
-        return characters;
+        return length;
     }
 
     /**
-     * Метод для подсчета статистической частоты символов в тексте.
+     * Метод для вычисления суммы квадратов отклонений для каждого ключа расшифровки.
+     * Текст, расшифрованный ключом {@code key}, содержит на позиции {@code j} столько символов,
+     * сколько шифротекст содержит на позиции {@code j + key}.
      *
-     * @param textSize Общая длина текста.
-     * @return Мапа частоты символов для текущего текста.
+     * @param histogram Гистограмма символов шифротекста по позициям алфавита.
+     * @param currentValues Ожидаемое количество символов каждого частотного класса.
+     * @param textSize Общее количество символов в данных (объем проверки ключа в метриках).
+     * @return Массив, где индексы — ключи расшифровки, а значения — сумма квадратов отклонений.
      */
-    private Map<Character, Integer> valuesForCurrentText(int textSize)
+    private long[] deviationSquareSums(int[] histogram, int[] currentValues, int textSize)
     {
-        Map<Character, Integer> currentValues = new HashMap<>();//было TreeMap
+        int size = histogram.length;
+        long[] deviationSquareSum = new long[size];
+        int[] classCount = new int[currentValues.length];
 
-        for (Map.Entry<Character, Double> entry : RUSSIAN_FREQUENCIES.entrySet())
+        for (int key = 0; key < size; key++)
         {
-            currentValues.put(entry.getKey(), (int) Math.round(((double) textSize / 100) * entry.getValue()));
+            long start = Metrics.start();
+            Arrays.fill(classCount, 0);
+            for (int j = 0; j < size; j++)
+            {
+                int frequencyNumber = frequencyClass[j];
+                if (frequencyNumber != -1)
+                {
+                    classCount[frequencyNumber] += histogram[(j + key) % size];
+                }
+            }
+
+            long sum = 0;
+            for (int i = 0; i < classCount.length; i++)
+            {
+                long deviation = classCount[i] - currentValues[i];
+                sum += deviation * deviation;
+            }
+            deviationSquareSum[key] = sum;
+            Metrics.recordCandidate(start, textSize, key);
         }
-        return currentValues;
+
+        return deviationSquareSum;
     }
 
     /**
-     * Метод для создания всех возможных вариантов расшифровки текста.
+     * Метод для подсчета статистического количества символов каждого частотного класса в тексте.
      *
-     * @param data Список строк данных для шифрования.
-     * @return Список возможных вариантов расшифровки.
+     * @param textSize Общая длина текста.
+     * @return Массив ожидаемого количества символов по частотным классам.
      */
-    private List<List<String>> createVariations(List<String> data)
+    private int[] valuesForCurrentText(int textSize)
     {
-        List<List<String>> variations = new ArrayList<>();
-        int key = alphabet.size();
+        int[] currentValues = new int[classFrequencies.length];
 
-        while (key > 0)
+        for (int i = 0; i < classFrequencies.length; i++)
         {
-            variations.add(encrypter.encrypt(alphabet, data, key));
-            key--;
+            currentValues[i] = (int) Math.round(((double) textSize / 100) * classFrequencies[i]);
         }
-        return variations;
+        return currentValues;
     }
 
 }
-
-
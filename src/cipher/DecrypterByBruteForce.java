@@ -1,189 +1,464 @@
 package cipher;
 
 import exceptions.NoCoincidenceException;
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
 
+import java.nio.CharBuffer;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
 /**
  * Класс DecrypterByBruteForce выполняет расшифровку данных с использованием метода "грубого перебора",
  * где для каждого возможного сдвига вычисляется частотный анализ слов в репрезентативном тексте
- * и осуществляется поиск совпадений.
+ * и осуществляется поиск совпадений. Ключи проверяются параллельно на заданном пуле потоков.
  */
 public class DecrypterByBruteForce
 {
     /**
-     * Экземпляр класса Encrypter, используемый для выполнения операции дешифрования.
+     * Профиль языка, алфавит которого используется для шифрования и дешифрования.
      */
-    private final Encrypter encrypter = new Encrypter();
+    private final AlphabetProfile profile;
 
     /**
-     * Список символов алфавита, используемого для шифрования и дешифрования.
+     * Дешифратор по ключу, кеширующий скомпилированные шифры.
      */
-    private final List<Character> alphabet;
+    private final Decrypter decrypter;
 
     /**
      * Количество наиболее часто встречающихся слов, используемых для сравнения.
      */
     private static final int COINCIDENCE = 10;
 
+    /**
+     * Количество различий, начиная с которого совпадение не засчитывается.
+     */
+    private static final int MAX_DIFFERENCES = 5;
+
+    /**
+     * Значение количества различий для ключей, проверка которых была отменена.
+     */
+    private static final int SKIPPED = Integer.MAX_VALUE;
+
+    /**
+     * Пул потоков, на котором проверяются ключи.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Счетчики слов, переиспользуемые задачами в пределах одного потока.
+     */
+    private static final ThreadLocal<WordCounter> wordCounters = ThreadLocal.withInitial(WordCounter::new);
+
+    /**
+     * Кеш найденных ключей по отпечатку шифротекста.
+     */
+    private final KeyCache keyCache;
+
+    /**
+     * Модель последнего использованного репрезентативного текста. При обработке многих файлов
+     * с одним репрезентативным текстом наиболее частые слова и пространство отпечатков вычисляются один раз.
+     */
+    private volatile ReferenceModel referenceModel;
+
+    /**
+     * Конструктор класса DecrypterByBruteForce, проверяющего ключи на общем ForkJoin-пуле.
+     *
+     * @param profile Профиль языка, используемого для дешифрования.
+     */
+    public DecrypterByBruteForce(AlphabetProfile profile)
+    {
+        this(profile, ForkJoinPool.commonPool());
+    }
+
     /**
      * Конструктор класса DecrypterByBruteForce.
      *
-     * @param alphabet Список символов алфавита, используемого для дешифрования.
+     * @param profile Профиль языка, используемого для дешифрования.
+     * @param executor Пул потоков, на котором проверяются ключи.
      */
-    public DecrypterByBruteForce(List<Character> alphabet)
+    public DecrypterByBruteForce(AlphabetProfile profile, ExecutorService executor)
     {
-        this.alphabet = alphabet;
+        this(profile, executor, KeyCache.DISABLED);
     }
 
     /**
-     * Метод для расшифровки данных с использованием метода "грубого перебора" и анализа совпадений.
-     * Для каждого ключа (сдвига) производится расшифровка данных и анализ частоты слов.
-     * Затем на основе частотных характеристик производится выбор подходящих вариантов расшифровки.
+     * Конструктор класса DecrypterByBruteForce с кешем найденных ключей.
+     *
+     * @param profile Профиль языка, используемого для дешифрования.
+     * @param executor Пул потоков, на котором проверяются ключи.
+     * @param keyCache Кеш найденных ключей, проверяемый перед перебором.
+     */
+    public DecrypterByBruteForce(AlphabetProfile profile, ExecutorService executor, KeyCache keyCache)
+    {
+        this.profile = profile;
+        this.decrypter = new Decrypter(profile);
+        this.executor = executor;
+        this.keyCache = keyCache;
+    }
+
+    /**
+     * Метод для поиска ключа с использованием метода "грубого перебора" и анализа совпадений.
+     * Каждый ключ (сдвиг) проверяется отдельной задачей: данные расшифровываются шифром прямо в счетчике слов,
+     * подсчитывается частота слов и количество различий с наиболее частыми словами репрезентативных данных.
+     * Если какой-либо ключ дает полное совпадение, проверка ключей с большими номерами прекращается
+     * (такие ключи получают наихудшую оценку), поэтому результат не зависит от порядка выполнения задач.
+     * Текст расшифровывается только при обращении к варианту рейтинга.
      *
      * @param encryptedData Список строк с зашифрованными данными.
      * @param representativeData Список строк с представительными данными для анализа.
-     * @return Список вариантов расшифровок, которые имеют наибольшее совпадение с репрезентативными данными.
+     * @return Рейтинг из {@link KeyRanking#DEFAULT_LIMIT} ключей с наименьшим количеством различий.
      * @throws NoCoincidenceException если не найдено совпадений при расшифровке.
      */
-    public List<List<String>> decrypt(List<String> encryptedData, List<String> representativeData) throws NoCoincidenceException
+    public KeyRanking rank(List<String> encryptedData, List<String> representativeData) throws NoCoincidenceException
     {
-        List<List<String>> variationsList = new ArrayList<>();
-        List<Set<String>> comparasionList = new ArrayList<>();
-        int key = alphabet.size();
-        Map<String, Integer> wordFrequency;
-        Map<String, Integer> representativeWordFrequency;
+        return rank(encryptedData, ReferenceIndex.build(representativeData));
+    }
 
-        // Перебор всех возможных ключей (сдвигов).
-        while (key > 0)
-        {
-            variationsList.add(encrypter.encrypt(alphabet, encryptedData, key));
-            wordFrequency = new HashMap<>();
+    /**
+     * Метод для поиска ключа методом "грубого перебора" с использованием заранее построенного
+     * индекса частот слов репрезентативного текста вместо самого текста.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Рейтинг из {@link KeyRanking#DEFAULT_LIMIT} ключей с наименьшим количеством различий.
+     * @throws NoCoincidenceException если не найдено совпадений при расшифровке.
+     */
+    public KeyRanking rank(List<String> encryptedData, ReferenceIndex reference) throws NoCoincidenceException
+    {
+        return rank(encryptedData, reference, KeyRanking.DEFAULT_LIMIT);
+    }
 
+    /**
+     * Метод для поиска ключа методом "грубого перебора" с рейтингом заданного размера.
+     * Стоимостью ключа считается количество различий.
+     * Если в кеше ключей есть уверенная оценка ключа для этого шифротекста, перебор не выполняется
+     * и рейтинг состоит из одного сохраненного ключа ({@link KeyCache#rankIfAbsent}).
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @param limit Максимальное количество ключей в рейтинге.
+     * @return Рейтинг ключей с наименьшим количеством различий.
+     * @throws NoCoincidenceException если не найдено совпадений при расшифровке.
+     */
+    public KeyRanking rank(List<String> encryptedData, ReferenceIndex reference, int limit) throws NoCoincidenceException
+    {
+        return keyCache.rankIfAbsent(referenceModel(reference).cacheSeed(), encryptedData, decrypter, () ->
+        {
+            int[] differences = countDifferences(lines(encryptedData), reference);
+            double[] costs = Arrays.stream(differences).mapToDouble(value -> Math.min(value, COINCIDENCE)).toArray();
+            return KeyRanking.of(costs, limit, estimate(differences).confidence(), decrypter, encryptedData);
+        });
+    }
 
-            countWordFrequency(separate(variationsList.get(alphabet.size() - key)), wordFrequency);
-            comparasionList.add(sortMapByValue(wordFrequency));
+    /**
+     * Метод оценивает наиболее вероятный ключ расшифровки без расшифровки всего текста.
+     * Уверенность вычисляется по отрыву лучшего ключа от второго по количеству различий,
+     * отнесенному к пороговому количеству различий: 1 - лучший ключ дает полное совпадение,
+     * а остальные ключи не дают совпадений.
+     * Подходит для оценки ключа по небольшому фрагменту большого файла.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param representativeData Список строк с представительными данными для анализа.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если не найдено совпадений.
+     */
+    public KeyEstimate estimateKey(List<String> encryptedData, List<String> representativeData) throws NoCoincidenceException
+    {
+        return estimateKey(encryptedData, ReferenceIndex.build(representativeData));
+    }
 
-            key--;
-        }
+    /**
+     * Метод оценивает наиболее вероятный ключ расшифровки с использованием заранее построенного
+     * индекса частот слов репрезентативного текста.
+     * Если ключ для этого шифротекста и репрезентативного текста уже есть в кеше ключей, перебор не выполняется.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если не найдено совпадений.
+     */
+    public KeyEstimate estimateKey(List<String> encryptedData, ReferenceIndex reference) throws NoCoincidenceException
+    {
+        return keyCache.computeIfAbsent(referenceModel(reference).cacheSeed(), encryptedData,
+                () -> estimate(countDifferences(lines(encryptedData), reference)));
+    }
 
-        // Подсчет частоты слов в расшифрованных данных.
-        representativeWordFrequency = new HashMap<>();
-        countWordFrequency(separate(representativeData), representativeWordFrequency);
+    /**
+     * Метод оценивает наиболее вероятный ключ расшифровки по символам буфера от позиции до предела.
+     * Позиция буфера не изменяется. Если ключ для этого шифротекста уже есть в кеше ключей, перебор не выполняется.
+     *
+     * @param encryptedData Буфер с зашифрованными символами.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если не найдено совпадений.
+     */
+    public KeyEstimate estimateKey(CharBuffer encryptedData, ReferenceIndex reference) throws NoCoincidenceException
+    {
+        return keyCache.computeIfAbsent(referenceModel(reference).cacheSeed(), List.of(encryptedData),
+                () -> estimate(countDifferences(characters(encryptedData), reference)));
+    }
 
-        // Возврат результата с наиболее подходящими вариантами.
-        return returnResult(comparasionList, variationsList, sortMapByValue(representativeWordFrequency));
+    /**
+     * Метод для расшифровки символов буфера от позиции до предела в буфер вызывающего кода.
+     * Расшифровка выполняется наименьшим из ключей с наибольшим совпадением.
+     * Ключ сначала ищется в кеше ключей, при поиске позиция исходного буфера не изменяется;
+     * при расшифровке позиция исходного буфера сдвигается до предела, позиция целевого - на количество символов.
+     *
+     * @param encryptedData Буфер с зашифрованными символами.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @param target Буфер для расшифрованных символов.
+     * @return Ключ, которым выполнена расшифровка.
+     * @throws NoCoincidenceException если не найдено совпадений.
+     * @throws java.nio.BufferOverflowException если в целевом буфере недостаточно места.
+     */
+    public int decrypt(CharBuffer encryptedData, ReferenceIndex reference, CharBuffer target) throws NoCoincidenceException
+    {
+        int key = estimateKey(encryptedData, reference).key();
+        decrypter.decrypt(encryptedData, target, key);
+        return key;
     }
 
     /**
-     * Разделяет строки на отдельные слова, используя разделители.
+     * Возвращает модель репрезентативного текста, вычисляя ее, только если текст сменился.
      *
-     * @param list Список строк для разделения.
-     * @return Список слов.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Модель репрезентативного текста.
      */
-    private List<String> separate(List<String> list)
+    private ReferenceModel referenceModel(ReferenceIndex reference)
     {
-        List<String> dividedLine = new LinkedList<>();
-        for (String line : list)
+        ReferenceModel model = referenceModel;
+        if (model == null || model.index() != reference)
         {
+            model = ReferenceModel.of(profile, reference);
+            referenceModel = model;
+        }
+        return model;
+    }
 
-            StringTokenizer separator = new StringTokenizer(line, " ,.!?");
+    /**
+     * Вычисляет оценку ключа по количеству различий для каждого ключа.
+     * Ключи, проверка которых отменена ({@code SKIPPED}), считаются не давшими ни одного совпадения
+     * ({@code MAX_DIFFERENCES} различий): отмена происходит только после полного совпадения меньшего ключа.
+     *
+     * @param differences Количество различий для каждого ключа.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если не найдено совпадений.
+     */
+    private KeyEstimate estimate(int[] differences) throws NoCoincidenceException
+    {
+        int bestKey = getCypherKey(differences).getFirst();
+        int secondDifferences = MAX_DIFFERENCES;
 
-            while (separator.hasMoreTokens())
+        for (int key = 0; key < differences.length; key++)
+        {
+            int keyDifferences = Math.min(differences[key], MAX_DIFFERENCES);
+            if (key != bestKey && keyDifferences < secondDifferences)
             {
-                dividedLine.add(separator.nextToken());
+                secondDifferences = keyDifferences;
             }
         }
-        return dividedLine;
+
+        return new KeyEstimate(bestKey, (double) (secondDifferences - differences[bestKey]) / MAX_DIFFERENCES);
+    }
+
+    /**
+     * Возвращает зашифрованный текст, передающий строки в счетчик слов через шифр.
+     * Отмена проверяется перед каждой строкой.
+     *
+     * @param data Список строк.
+     * @return Зашифрованный текст.
+     */
+    private static EncryptedText lines(List<String> data)
+    {
+        long size = 0;
+        for (String line : data)
+        {
+            size += line.length();
+        }
+        return new EncryptedText((counter, cipher, cancelled) ->
+        {
+            for (String line : data)
+            {
+                if (cancelled.getAsBoolean())
+                {
+                    return false;
+                }
+                counter.add(line, cipher);
+            }
+            return true;
+        }, size);
+    }
+
+    /**
+     * Возвращает зашифрованный текст, передающий символы буфера в счетчик слов через шифр.
+     * Отмена проверяется перед каждым фрагментом буфера ({@link WordCounter#add(CharBuffer, CompiledCipher, BooleanSupplier)}).
+     *
+     * @param data Буфер символов.
+     * @return Зашифрованный текст.
+     */
+    private static EncryptedText characters(CharBuffer data)
+    {
+        return new EncryptedText((counter, cipher, cancelled) -> counter.add(data, cipher, cancelled), data.remaining());
     }
 
     /**
-     * Подсчитывает частоту встречаемости слов в списке и записывает
-     * результат в переданную мапу.
+     * Проверяет все возможные ключи (сдвиги) параллельно.
      *
-     * @param words Список слов для подсчета частоты.
-     * @param wordFrequency Мапа для хранения частоты каждого слова.
+     * @param encryptedData Зашифрованный текст.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Количество различий для каждого ключа ({@code SKIPPED} для ключей, проверка которых отменена).
      */
-    private void countWordFrequency(List<String> words, Map<String, Integer> wordFrequency)
+    private int[] countDifferences(EncryptedText encryptedData, ReferenceIndex reference)
     {
-        int frequency;
-        String word;
+        long start = Metrics.start();
+
+        // Наиболее частые слова репрезентативных данных.
+        Set<String> representativeSet = referenceModel(reference).topWords();
 
-        for (int i = 0; i < words.size(); i++)
+        // Параллельная проверка всех возможных ключей (сдвигов).
+        AtomicInteger decisiveKey = new AtomicInteger(SKIPPED);
+        List<Future<Integer>> tasks = new ArrayList<>();
+        for (int key = 0; key < profile.size(); key++)
         {
-            word = words.get(i);
-            frequency = Collections.frequency(words, word);
-            wordFrequency.put(word, frequency);
-            words.removeAll(Collections.singletonList(word));
-            i--;
+            int candidate = key;
+            tasks.add(executor.submit(() -> countDifferences(encryptedData, candidate, representativeSet, decisiveKey)));
         }
+
+        int[] differences = new int[tasks.size()];
+        for (int key = 0; key < differences.length; key++)
+        {
+            differences[key] = await(tasks.get(key));
+        }
+
+        Metrics.record(Stage.KEY_SEARCH, start, encryptedData.size());
+        return differences;
     }
 
     /**
-     * Сортирует мапу по значению (по убыванию) и возвращает сет из наиболее часто встречающихся слов.
+     * Проверяет один ключ: расшифровывает данные и считает, сколько наиболее частых слов репрезентативных данных
+     * не встречается среди наиболее частых слов расшифрованного варианта.
+     * Как только меньший ключ дает полное совпадение, проверка прекращается: ключ, еще ожидающий в очереди,
+     * не начинается, а уже выполняющийся останавливается на следующей строке или фрагменте буфера.
      *
-     * @param map Мапа, содержащая слова и их частоты.
-     * @return Сет наиболее часто встречающихся слов.
+     * @param encryptedData Зашифрованный текст.
+     * @param key Проверяемый ключ расшифровки.
+     * @param representativeSet Сет наиболее часто встречающихся слов для представительных данных.
+     * @param decisiveKey Наименьший ключ, давший полное совпадение, либо {@code SKIPPED}.
+     * @return Количество различий, либо {@code SKIPPED}, если проверка ключа отменена.
      */
-    private Set<String> sortMapByValue(Map<String, Integer> map)
+    private int countDifferences(EncryptedText encryptedData, int key, Set<String> representativeSet, AtomicInteger decisiveKey)
     {
-        List<Map.Entry<String, Integer>> sortingList = new ArrayList<>(map.entrySet());
-        sortingList.sort(new Comparator<Map.Entry<String, Integer>>()
+        if (key > decisiveKey.get())
         {
-            @Override
-            public int compare(Map.Entry<String, Integer> o1, Map.Entry<String, Integer> o2)
-            {
-                return o2.getValue() - o1.getValue();
-            }
-        });
+            return SKIPPED;
+        }
 
-        Set<String> sortedSet = new HashSet<>();
+        long start = Metrics.start();
+        Set<String> suspectSet = topWords(encryptedData.feed(), decrypter.compile(key), () -> key > decisiveKey.get());
+        if (suspectSet == null)
+        {
+            return SKIPPED;
+        }
+        suspectSet.retainAll(representativeSet);
+        Metrics.recordCandidate(start, encryptedData.size(), key);
 
-        // Возвращаем только COINCIDENCE наиболее часто встречающихся слов.
-        for (int i = 0; i < COINCIDENCE; i++)
+        // Различиями считаются все слова репрезентативного набора, которых нет среди частых слов варианта,
+        // иначе вариант, в котором меньше COINCIDENCE различных слов, получал бы незаслуженно мало различий.
+        int differences = representativeSet.size() - suspectSet.size();
+        if (differences == 0)
         {
-            sortedSet.add(sortingList.get(i).getKey());
+            decisiveKey.accumulateAndGet(key, Math::min);
         }
+        return differences;
+    }
 
-        return sortedSet;
+    /**
+     * Ожидает результат проверки ключа.
+     *
+     * @param task Задача проверки ключа.
+     * @return Количество различий для ключа.
+     */
+    private int await(Future<Integer> task)
+    {
+        try
+        {
+            return task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Перебор ключей прерван", e);
+        }
+        catch (ExecutionException e)
+        {
+            if (e.getCause() instanceof RuntimeException cause)
+            {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Подсчитывает частоту слов в данных, преобразованных шифром, за один проход
+     * и возвращает сет из {@code COINCIDENCE} наиболее часто встречающихся слов.
+     * Расшифрованные строки при этом не создаются.
+     *
+     * @param data Передача данных в счетчик слов через шифр.
+     * @param cipher Шифр для преобразования данных.
+     * @param cancelled Условие отмены подсчета.
+     * @return Сет наиболее часто встречающихся слов, либо null, если подсчет отменен.
+     */
+    private Set<String> topWords(Feed data, CompiledCipher cipher, BooleanSupplier cancelled)
+    {
+        WordCounter counter = wordCounters.get();
+        counter.clear();
+        return data.accept(counter, cipher, cancelled) ? counter.topWords(COINCIDENCE) : null;
     }
 
     /**
      * Находит ключи (сдвиги), которые дают наибольшее совпадение между расшифрованными данными и представительными данными.
+     * Если найдено полное совпадение, возвращается только наименьший ключ с полным совпадением.
      *
-     * @param comparisonList Список сетов наиболее часто встречающихся слов для каждого сдвига.
-     * @param representativeSet Сет наиболее часто встречающихся слов для представительных данных.
-     * @return Список индексов сдвигов, которые дали наибольшее совпадение.
+     * @param differences Количество различий для каждого ключа.
+     * @return Список ключей, которые дали наибольшее совпадение, в порядке возрастания.
      * @throws NoCoincidenceException если не найдено совпадений.
      */
-    private List<Integer> getCypherKey(List<Set<String>> comparisonList, Set<String> representativeSet) throws NoCoincidenceException
+    private List<Integer> getCypherKey(int[] differences) throws NoCoincidenceException
     {
-        List<Set<String>> replicaList = new ArrayList<>(comparisonList);
-        Set<String> referenceSet = new HashSet<>(representativeSet);
         List<Integer> bestKeys = new ArrayList<>();
-        int differences = 5;
+        int minDifferences = MAX_DIFFERENCES;
 
-        // Подсчитываем количество различий между наборами.
-        for (Set<String> suspectSet : replicaList)
+        for (int size : differences)
         {
-            suspectSet.removeAll(referenceSet);
-            int size = suspectSet.size();
-            if (size < differences)
+            if (size < minDifferences)
             {
-                differences = size;
+                minDifferences = size;
             }
         }
 
-        if (differences == 5)
+        if (minDifferences == MAX_DIFFERENCES)
         {
             throw new NoCoincidenceException();
         }
 
-        // Собираем индексы с минимальным количеством различий.
-        for (int i = 0; i < replicaList.size(); i++)
+        // Собираем ключи с минимальным количеством различий.
+        for (int key = 0; key < differences.length; key++)
         {
-            if (replicaList.get(i).size() == differences)
+            if (differences[key] == minDifferences)
             {
-                bestKeys.add(i);
+                bestKeys.add(key);
+                if (minDifferences == 0)
+                {
+                    break;
+                }
             }
         }
 
@@ -191,30 +466,56 @@ public class DecrypterByBruteForce
     }
 
     /**
-     * Возвращает результат расшифровки, учитывая наиболее подходящие ключи.
+     * Зашифрованный текст для перебора ключей.
      *
-     * @param comparisonList Список наборов наиболее часто встречающихся слов для каждого сдвига.
-     * @param variationsList Список вариантов расшифрованных данных для каждого сдвига.
-     * @param representativeSet Набор наиболее часто встречающихся слов для представительных данных.
-     * @return Список возможных расшифровок.
-     * @throws NoCoincidenceException если не найдено совпадений.
+     * @param feed Передача текста в счетчик слов через шифр.
+     * @param size Количество символов текста.
      */
-    private List<List<String>> returnResult(List<Set<String>> comparisonList, List<List<String>> variationsList, Set<String> representativeSet) throws NoCoincidenceException
+    private record EncryptedText(Feed feed, long size)
     {
-        List<Integer> keys = getCypherKey(comparisonList, representativeSet);
-        List<List<String>> results = new ArrayList<>();
-        if (keys.size() == 1)
-        {
-            results.add(variationsList.get(keys.getFirst()));
-        }
-        else
+    }
+
+    /**
+     * Передача зашифрованного текста в счетчик слов через шифр с возможностью отмены.
+     */
+    @FunctionalInterface
+    private interface Feed
+    {
+        /**
+         * Передает текст в счетчик слов.
+         *
+         * @param counter Счетчик слов.
+         * @param cipher Шифр для преобразования текста.
+         * @param cancelled Условие отмены, проверяемое по ходу передачи.
+         * @return true, если передан весь текст; false, если передача отменена.
+         */
+        boolean accept(WordCounter counter, CompiledCipher cipher, BooleanSupplier cancelled);
+    }
+
+    /**
+     * Модель репрезентативного текста: наиболее частые слова и пространство отпечатков в кеше ключей.
+     *
+     * @param index Индекс частот слов репрезентативного текста.
+     * @param topWords Неизменяемый сет из {@code COINCIDENCE} наиболее частых слов.
+     * @param cacheSeed Пространство отпечатков: ключ, найденный с одним репрезентативным текстом,
+     *                  не используется для другого.
+     */
+    private record ReferenceModel(ReferenceIndex index, Set<String> topWords, long cacheSeed)
+    {
+        /**
+         * Строит модель репрезентативного текста.
+         *
+         * @param profile Профиль языка.
+         * @param index Индекс частот слов репрезентативного текста.
+         * @return Модель репрезентативного текста.
+         */
+        static ReferenceModel of(AlphabetProfile profile, ReferenceIndex index)
         {
-            for (Integer key : keys)
-            {
-                results.add(variationsList.get(key));
-            }
+            Set<String> topWords = Set.copyOf(index.topWords(COINCIDENCE));
+            List<String> sortedWords = new ArrayList<>(topWords);
+            Collections.sort(sortedWords);
+            return new ReferenceModel(index, topWords,
+                    KeyCache.seed(profile, "bruteforce:" + String.join(" ", sortedWords)));
         }
-
-        return results;
     }
 }
@@ -0,0 +1,226 @@
+package cipher;
+
+import exceptions.NoCoincidenceException;
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Класс DecrypterByNGrams выполняет расшифровку данных с использованием языковой модели триграмм символов.
+ * Каждый ключ оценивается логарифмом вероятности расшифрованного текста по модели {@link NGramModel}:
+ * в отличие от частоты отдельных букв, сочетания символов различают ключи уже на нескольких десятках символов.
+ */
+public class DecrypterByNGrams
+{
+    /**
+     * Максимальное количество символов шифротекста, по которым оцениваются ключи.
+     * Для сдвига Цезаря этого более чем достаточно, поэтому время оценки не зависит от длины текста.
+     */
+    private static final int MAX_SCORED_CHARACTERS = 64 * 1024;
+
+    /**
+     * Профиль языка, алфавит которого используется для шифрования и дешифрования.
+     */
+    private final AlphabetProfile profile;
+
+    /**
+     * Дешифратор по ключу, кеширующий скомпилированные шифры.
+     */
+    private final Decrypter decrypter;
+
+    /**
+     * Конструктор класса DecrypterByNGrams.
+     *
+     * @param profile Профиль языка, используемого для дешифрования.
+     */
+    public DecrypterByNGrams(AlphabetProfile profile)
+    {
+        this.profile = profile;
+        this.decrypter = new Decrypter(profile);
+    }
+
+    /**
+     * Метод для поиска ключа с использованием модели триграмм.
+     * Текст расшифровывается только при обращении к варианту рейтинга.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param model Модель триграмм языка исходного текста.
+     * @return Рейтинг из {@link KeyRanking#DEFAULT_LIMIT} наиболее вероятных ключей.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public KeyRanking rank(List<String> encryptedData, NGramModel model) throws NoCoincidenceException
+    {
+        return rank(encryptedData, model, KeyRanking.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Метод для поиска ключа с использованием модели триграмм.
+     * Стоимостью ключа считается логарифм вероятности расшифрованного текста со знаком минус.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param model Модель триграмм языка исходного текста.
+     * @param limit Максимальное количество ключей в рейтинге.
+     * @return Рейтинг наиболее вероятных ключей.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public KeyRanking rank(List<String> encryptedData, NGramModel model, int limit) throws NoCoincidenceException
+    {
+        double[] scores = scoreKeys(encryptedData, model);
+        double[] costs = Arrays.stream(scores).map(score -> -score).toArray();
+        return KeyRanking.of(costs, limit, estimate(scores).confidence(), decrypter, encryptedData);
+    }
+
+    /**
+     * Метод оценивает наиболее вероятный ключ расшифровки без расшифровки текста.
+     * Уверенность равна {@code 1 - P2 / P1}, где P1 и P2 - вероятности текста, расшифрованного
+     * лучшим и вторым по качеству ключом: 0 - два ключа одинаково вероятны.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param model Модель триграмм языка исходного текста.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    public KeyEstimate estimateKey(List<String> encryptedData, NGramModel model) throws NoCoincidenceException
+    {
+        return estimate(scoreKeys(encryptedData, model));
+    }
+
+    /**
+     * Выбирает ключ с наибольшим логарифмом вероятности и вычисляет уверенность в нем.
+     *
+     * @param scores Массив, где индексы — ключи расшифровки, а значения — логарифмы вероятности.
+     * @return Оценка ключа.
+     */
+    private KeyEstimate estimate(double[] scores)
+    {
+        int bestKey = bestKey(scores);
+
+        double secondScore = Double.NEGATIVE_INFINITY;
+        for (int key = 0; key < scores.length; key++)
+        {
+            if (key != bestKey && scores[key] > secondScore)
+            {
+                secondScore = scores[key];
+            }
+        }
+
+        return new KeyEstimate(bestKey, -Math.expm1(secondScore - scores[bestKey]));
+    }
+
+    /**
+     * Вычисляет логарифм вероятности расшифрованного текста для каждого ключа.
+     * Шифротекст один раз переводится в позиции алфавита, после чего для каждого ключа
+     * позиция расшифрованного символа и символ модели берутся из заранее построенной таблицы.
+     *
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param model Модель триграмм.
+     * @return Массив, где индексы — ключи расшифровки, а значения — логарифмы вероятности.
+     * @throws NoCoincidenceException если в данных нет ни одного символа алфавита.
+     */
+    private double[] scoreKeys(List<String> encryptedData, NGramModel model) throws NoCoincidenceException
+    {
+        long start = Metrics.start();
+        int size = profile.size();
+        int lineEnd = model.symbolOf('\n');
+        int[] positions = toPositions(encryptedData, model);
+        if (Arrays.stream(positions).allMatch(position -> position < 0))
+        {
+            throw new NoCoincidenceException();
+        }
+
+        // Символ модели для каждой пары (ключ, позиция шифротекста).
+        int[][] keySymbols = new int[size][size];
+        for (int key = 0; key < size; key++)
+        {
+            for (int j = 0; j < size; j++)
+            {
+                keySymbols[key][j] = model.symbolOf(profile.letterAt(Math.floorMod(j - key, size)));
+            }
+        }
+
+        double[] scores = new double[size];
+        for (int key = 0; key < size; key++)
+        {
+            long keyStart = Metrics.start();
+            int[] symbols = keySymbols[key];
+            int first = lineEnd;
+            int second = lineEnd;
+            double score = 0;
+            for (int position : positions)
+            {
+                int third = position < 0 ? -position - 1 : symbols[position];
+                score += model.logProbability(first, second, third);
+                first = second;
+                second = third;
+            }
+            scores[key] = score;
+            Metrics.recordCandidate(keyStart, positions.length, key);
+        }
+
+        Metrics.record(Stage.KEY_SEARCH, start, positions.length);
+        return scores;
+    }
+
+    /**
+     * Переводит не более {@code MAX_SCORED_CHARACTERS} символов данных в позиции алфавита.
+     * Символы вне алфавита не зависят от ключа, поэтому для них сразу сохраняется номер символа модели
+     * {@code s} в виде {@code -s - 1}. Конец строки считается переводом строки, как и при построении модели.
+     *
+     * @param data Список строк с данными.
+     * @param model Модель триграмм.
+     * @return Массив позиций алфавита.
+     */
+    private int[] toPositions(List<String> data, NGramModel model)
+    {
+        int[] positions = new int[256];
+        int count = 0;
+        int lineEnd = -model.symbolOf('\n') - 1;
+
+        for (String line : data)
+        {
+            for (int i = 0; i <= line.length() && count < MAX_SCORED_CHARACTERS; i++)
+            {
+                if (count == positions.length)
+                {
+                    positions = Arrays.copyOf(positions, Math.min(count * 2, MAX_SCORED_CHARACTERS));
+                }
+
+                int position = lineEnd;
+                if (i < line.length())
+                {
+                    char letter = line.charAt(i);
+                    position = profile.indexOf(letter);
+                    if (position == -1)
+                    {
+                        position = -model.symbolOf(letter) - 1;
+                    }
+                }
+                positions[count++] = position;
+            }
+        }
+
+        return Arrays.copyOf(positions, count);
+    }
+
+    /**
+     * Находит ключ с наибольшим логарифмом вероятности (при равенстве - наименьший).
+     *
+     * @param scores Массив, где индексы — ключи расшифровки, а значения — логарифмы вероятности.
+     * @return Лучший ключ.
+     */
+    private int bestKey(double[] scores)
+    {
+        int bestKey = 0;
+        for (int key = 1; key < scores.length; key++)
+        {
+            if (scores[key] > scores[bestKey])
+            {
+                bestKey = key;
+            }
+        }
+        return bestKey;
+    }
+}
@@ -1,64 +1,69 @@
 package cipher;
 
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
+
+import java.nio.CharBuffer;
 import java.util.*;
 
 public class Encrypter
 {
 
     /**
-     * Шифрует список строк с использованием символьного алфавита и сдвига (шифр Цезаря).
-     * Для каждой строки из списка {@code data} метод заменяет символы, найденные в списке {@code alphabet},
+     * Шифрует список строк с использованием алфавита профиля и сдвига (шифр Цезаря).
+     * Для каждой строки из списка {@code data} метод заменяет символы, найденные в алфавите профиля {@code profile},
      * на символы, сдвинутые на {@code key} позиций вправо. При отрицательном значении {@code key} сдвиг произойдет влево.
      * Символы, которых нет в алфавите, остаются без изменений.
+     * Таблица подстановки строится один раз на вызов с помощью {@link CompiledCipher}.
      *
-     * @param alphabet список допустимых символов, по которому выполняется шифрование
+     * @param profile профиль языка, по алфавиту которого выполняется шифрование
      * @param data список строк, подлежащих шифрованию
      * @param key значение сдвига для шифра
      * @return список зашифрованных строк
      */
-    public List<String> encrypt(List<Character> alphabet, List<String> data, int key)
+    public List<String> encrypt(AlphabetProfile profile, List<String> data, int key)
     {
-        List<String> result = new ArrayList<>();
-        StringBuilder resultLine;
+        return encrypt(CompiledCipher.of(profile, key), data);
+    }
+
+    /**
+     * Шифрует список строк с использованием заранее построенного шифра {@link CompiledCipher}.
+     * Каждый символ заменяется прямым обращением к таблице подстановки, без поиска по алфавиту.
+     * Обертка над {@link CompiledCipher#apply(String)}: на строку создается только строка результата.
+     *
+     * @param cipher скомпилированный шифр для пары (алфавит, ключ)
+     * @param data список строк, подлежащих шифрованию
+     * @return список зашифрованных строк
+     */
+    public List<String> encrypt(CompiledCipher cipher, List<String> data)
+    {
+        long start = Metrics.start();
+        List<String> result = new ArrayList<>(data.size());
+        long letters = 0;
 
         for (String line : data)
         {
-            resultLine = new StringBuilder();
-            int letterIndex;
-
-            for (char letter : line.toCharArray())
-            {
-                letterIndex = alphabet.indexOf(letter);
-
-                if (letterIndex != -1)
-                {
-                    resultLine.append(shift(letterIndex, key, alphabet));
-                }
-                else
-                {
-                    resultLine.append(letter);
-                }
-            }
-
-            result.add(resultLine.toString());
+            result.add(cipher.apply(line));
+            letters += line.length();
         }
 
+        Metrics.record(Stage.TRANSFORM, start, letters);
         return result;
     }
 
-
     /**
-     * Выполняет циклический сдвиг символа по алфавиту на заданное количество позиций.
+     * Шифрует символы исходного буфера от позиции до предела и записывает результат в буфер вызывающего кода.
+     * Память не выделяется; позиция исходного буфера сдвигается до предела, позиция целевого - на количество символов.
      *
-     * @param letterNumber индекс символа в алфавите, который нужно сдвигать
-     * @param key количество позиций, на которые нужно сдвигать символ
-     * @param alphabet список символов (алфавит), в пределах которого выполняется сдвиг
-     * @return символ, который получается после сдвига
+     * @param cipher скомпилированный шифр для пары (алфавит, ключ)
+     * @param source буфер с исходными символами
+     * @param target буфер для зашифрованных символов
+     * @throws java.nio.BufferOverflowException если в целевом буфере недостаточно места
      */
-    private char shift(int letterNumber, int key, List<Character> alphabet)
+    public void encrypt(CompiledCipher cipher, CharBuffer source, CharBuffer target)
     {
-        int size = alphabet.size();
-        return alphabet.get(((letterNumber + key) % size + size) % size);
+        cipher.apply(source, target);
     }
 
 }
@@ -0,0 +1,402 @@
+package cipher;
+
+import exceptions.NoCoincidenceException;
+import profile.AlphabetProfile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс KeyCache запоминает найденные ключи по содержимому шифротекста: 64-битный отпечаток выборки
+ * из шифротекста отображается в оценку ключа ({@link KeyEstimate}). Повторный поиск ключа для того же
+ * или почти того же шифротекста (повторная попытка, одно сообщение нескольким получателям) не выполняется.
+ * <p>
+ * Выборка состоит из {@code SAMPLE_CHUNKS} фрагментов по {@code CHUNK_SIZE} символов, равномерно распределенных
+ * по тексту, и длины текста, поэтому отпечаток вычисляется за время, не зависящее от размера текста.
+ * В отпечаток также входит "пространство" ({@link #seed(AlphabetProfile, String)}) - профиль языка, метод поиска
+ * и его параметры, - чтобы дешифраторы с разными алфавитами или репрезентативными текстами могли использовать
+ * один кеш. Размер кеша ограничен, при переполнении вытесняется ключ, к которому дольше всего не обращались (LRU).
+ * <p>
+ * Кеш можно сохранить в файл и загрузить из него. Формат: сигнатура {@code CRKC} (int), версия (int),
+ * количество записей (int), затем для каждой записи в порядке от давно использованной к недавней
+ * отпечаток (long), ключ (int) и уверенность (double).
+ */
+public final class KeyCache
+{
+    /**
+     * Максимальное количество записей по умолчанию.
+     */
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Кеш нулевой емкости: поиск выполняется всегда, отпечатки не вычисляются.
+     */
+    public static final KeyCache DISABLED = new KeyCache(0);
+
+    /**
+     * Минимальная уверенность оценки из кеша, при которой рейтинг ключей не строится заново.
+     */
+    public static final double CONFIDENT_HIT = 0.5;
+
+    /**
+     * Количество фрагментов выборки.
+     */
+    private static final int SAMPLE_CHUNKS = 4;
+
+    /**
+     * Длина фрагмента выборки (в символах).
+     */
+    private static final int CHUNK_SIZE = 1024;
+
+    /**
+     * Сигнатура файла кеша.
+     */
+    private static final int MAGIC = 0x43524B43;
+
+    /**
+     * Версия формата.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Размер заголовка и одной записи (в байтах).
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+    private static final int ENTRY_SIZE = Long.BYTES + Integer.BYTES + Double.BYTES;
+
+    /**
+     * Множитель и начальное значение хеша FNV-1a.
+     */
+    private static final long FNV_PRIME = 0x100000001B3L;
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+
+    /**
+     * Максимальное количество записей.
+     */
+    private final int capacity;
+
+    /**
+     * Оценки ключей по отпечаткам в порядке последнего обращения.
+     */
+    private final Map<Long, KeyEstimate> entries;
+
+    /**
+     * Конструктор класса KeyCache.
+     *
+     * @param capacity Максимальное количество записей (0 - кеш отключен).
+     */
+    public KeyCache(int capacity)
+    {
+        if (capacity < 0)
+        {
+            throw new IllegalArgumentException("Емкость кеша не может быть отрицательной");
+        }
+        this.capacity = capacity;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, KeyEstimate> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Загружает кеш из файла. Если файла нет, возвращается пустой кеш.
+     * Если в файле больше записей, чем {@code capacity}, остаются недавно использованные.
+     *
+     * @param path Путь к файлу кеша.
+     * @param capacity Максимальное количество записей.
+     * @return Кеш ключей.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл не является файлом кеша ключей.
+     */
+    public static KeyCache load(Path path, int capacity) throws IOException
+    {
+        KeyCache cache = new KeyCache(capacity);
+        if (Files.notExists(path))
+        {
+            return cache;
+        }
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        if (data.limit() < HEADER_SIZE || data.getInt() != MAGIC || data.getInt() != VERSION
+                || data.remaining() - Integer.BYTES != (long) data.getInt(2 * Integer.BYTES) * ENTRY_SIZE)
+        {
+            throw new IllegalArgumentException("Файл не является кешем ключей");
+        }
+
+        int count = data.getInt();
+        for (int i = 0; i < count; i++)
+        {
+            cache.put(data.getLong(), new KeyEstimate(data.getInt(), data.getDouble()));
+        }
+        return cache;
+    }
+
+    /**
+     * Сохраняет кеш в файл. Файл сначала записывается во временный файл, который затем заменяет прежний,
+     * поэтому прерванная запись не повреждает сохраненный кеш.
+     *
+     * @param path Путь к файлу кеша.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public void save(Path path) throws IOException
+    {
+        List<Map.Entry<Long, KeyEstimate>> snapshot;
+        synchronized (entries)
+        {
+            snapshot = new ArrayList<>(entries.entrySet());
+        }
+
+        ByteBuffer content = ByteBuffer.allocate(HEADER_SIZE + snapshot.size() * ENTRY_SIZE);
+        content.putInt(MAGIC).putInt(VERSION).putInt(snapshot.size());
+        for (Map.Entry<Long, KeyEstimate> entry : snapshot)
+        {
+            content.putLong(entry.getKey()).putInt(entry.getValue().key()).putDouble(entry.getValue().confidence());
+        }
+        content.flip();
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), "keys", ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                while (content.hasRemaining())
+                {
+                    channel.write(content);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Возвращает оценку ключа для шифротекста из кеша, а если ее нет - выполняет поиск и запоминает результат.
+     * Если поиск не нашел совпадений, результат не запоминается.
+     *
+     * @param seed Пространство отпечатков: профиль языка, метод поиска и его параметры.
+     * @param encryptedData Шифротекст в виде строк или буфера символов.
+     * @param search Поиск ключа.
+     * @return Оценка ключа.
+     * @throws NoCoincidenceException если поиск не нашел совпадений.
+     */
+    public KeyEstimate computeIfAbsent(long seed, List<? extends CharSequence> encryptedData, Search search)
+            throws NoCoincidenceException
+    {
+        if (capacity == 0)
+        {
+            return search.run();
+        }
+
+        long fingerprint = fingerprint(seed, encryptedData);
+        KeyEstimate estimate = get(fingerprint);
+        if (estimate == null)
+        {
+            estimate = search.run();
+            put(fingerprint, estimate);
+        }
+        return estimate;
+    }
+
+    /**
+     * Возвращает рейтинг ключей для шифротекста. Если в кеше есть оценка ключа с уверенностью не меньше
+     * {@code CONFIDENT_HIT}, поиск не выполняется и возвращается рейтинг из одного этого ключа
+     * ({@link KeyRanking#of(KeyEstimate, Decrypter, List)}); иначе выполняется поиск, а лучший ключ
+     * найденного рейтинга запоминается.
+     *
+     * @param seed Пространство отпечатков: профиль языка, метод поиска и его параметры.
+     * @param encryptedData Список строк с зашифрованными данными.
+     * @param decrypter Дешифратор для расшифровки вариантов рейтинга из кеша.
+     * @param ranking Построение рейтинга.
+     * @return Рейтинг ключей.
+     * @throws NoCoincidenceException если поиск не нашел совпадений.
+     */
+    public KeyRanking rankIfAbsent(long seed, List<String> encryptedData, Decrypter decrypter, Ranking ranking)
+            throws NoCoincidenceException
+    {
+        if (capacity == 0)
+        {
+            return ranking.run();
+        }
+
+        long fingerprint = fingerprint(seed, encryptedData);
+        KeyEstimate estimate = get(fingerprint);
+        if (estimate != null && estimate.confidence() >= CONFIDENT_HIT)
+        {
+            return KeyRanking.of(estimate, decrypter, encryptedData);
+        }
+
+        KeyRanking result = ranking.run();
+        put(fingerprint, result.toEstimate());
+        return result;
+    }
+
+    /**
+     * Возвращает оценку ключа по отпечатку.
+     *
+     * @param fingerprint Отпечаток шифротекста.
+     * @return Оценка ключа, либо null, если ее нет в кеше.
+     */
+    public KeyEstimate get(long fingerprint)
+    {
+        synchronized (entries)
+        {
+            return entries.get(fingerprint);
+        }
+    }
+
+    /**
+     * Запоминает оценку ключа для отпечатка.
+     *
+     * @param fingerprint Отпечаток шифротекста.
+     * @param estimate Оценка ключа.
+     */
+    public void put(long fingerprint, KeyEstimate estimate)
+    {
+        synchronized (entries)
+        {
+            entries.put(fingerprint, estimate);
+        }
+    }
+
+    /**
+     * Возвращает количество записей в кеше.
+     *
+     * @return Количество записей.
+     */
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Вычисляет пространство отпечатков для профиля языка и метода поиска ключа.
+     *
+     * @param profile Профиль языка.
+     * @param method Метод поиска и его параметры.
+     * @return Начальное значение отпечатка.
+     */
+    public static long seed(AlphabetProfile profile, String method)
+    {
+        long hash = FNV_OFFSET;
+        for (int i = 0; i < profile.size(); i++)
+        {
+            hash = (hash ^ profile.letterAt(i)) * FNV_PRIME;
+        }
+        for (int i = 0; i < method.length(); i++)
+        {
+            hash = (hash ^ method.charAt(i)) * FNV_PRIME;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Вычисляет 64-битный отпечаток выборки из шифротекста. Строки рассматриваются как один текст,
+     * в котором после каждой строки стоит перевод строки.
+     *
+     * @param seed Пространство отпечатков.
+     * @param encryptedData Шифротекст в виде строк или буфера символов.
+     * @return Отпечаток.
+     */
+    public static long fingerprint(long seed, List<? extends CharSequence> encryptedData)
+    {
+        long length = 0;
+        for (CharSequence line : encryptedData)
+        {
+            length += line.length() + 1;
+        }
+
+        // Фрагменты начинаются на равных расстояниях: первый - в начале текста, последний заканчивается в конце.
+        long step = length <= (long) SAMPLE_CHUNKS * CHUNK_SIZE ? 0 : (length - CHUNK_SIZE) / (SAMPLE_CHUNKS - 1);
+        long hash = (seed ^ length) * FNV_PRIME;
+        long lineStart = 0;
+        int chunk = 0;
+
+        for (CharSequence line : encryptedData)
+        {
+            long lineEnd = lineStart + line.length() + 1;
+            while (chunk < SAMPLE_CHUNKS)
+            {
+                long chunkStart = step == 0 ? 0 : chunk * step;
+                long chunkEnd = step == 0 ? length : chunkStart + CHUNK_SIZE;
+                long from = Math.max(chunkStart, lineStart);
+                long to = Math.min(chunkEnd, lineEnd);
+                for (long position = from; position < to; position++)
+                {
+                    char letter = position == lineEnd - 1 ? '\n' : line.charAt((int) (position - lineStart));
+                    hash = (hash ^ letter) * FNV_PRIME;
+                }
+                if (chunkEnd > lineEnd)
+                {
+                    break;
+                }
+                chunk = step == 0 ? SAMPLE_CHUNKS : chunk + 1;
+            }
+            lineStart = lineEnd;
+        }
+        return mix(hash);
+    }
+
+    /**
+     * Перемешивает биты хеша (финальный шаг MurmurHash3), чтобы близкие входные данные давали далекие отпечатки.
+     *
+     * @param hash Хеш.
+     * @return Перемешанный хеш.
+     */
+    private static long mix(long hash)
+    {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        return hash ^ hash >>> 33;
+    }
+
+    /**
+     * Поиск ключа, выполняемый при отсутствии оценки в кеше.
+     */
+    @FunctionalInterface
+    public interface Search
+    {
+        /**
+         * Выполняет поиск ключа.
+         *
+         * @return Оценка ключа.
+         * @throws NoCoincidenceException если совпадений не найдено.
+         */
+        KeyEstimate run() throws NoCoincidenceException;
+    }
+
+    /**
+     * Построение рейтинга ключей, выполняемое при отсутствии уверенной оценки в кеше.
+     */
+    @FunctionalInterface
+    public interface Ranking
+    {
+        /**
+         * Строит рейтинг ключей.
+         *
+         * @return Рейтинг ключей.
+         * @throws NoCoincidenceException если совпадений не найдено.
+         */
+        KeyRanking run() throws NoCoincidenceException;
+    }
+}
@@ -0,0 +1,11 @@
+package cipher;
+
+/**
+ * Оценка ключа шифра, полученная по фрагменту текста.
+ *
+ * @param key Наиболее вероятный ключ расшифровки.
+ * @param confidence Уверенность в ключе от 0 до 1: насколько лучший ключ отрывается от следующего за ним.
+ */
+public record KeyEstimate(int key, double confidence)
+{
+}
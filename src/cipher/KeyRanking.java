@@ -0,0 +1,189 @@
+package cipher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Класс KeyRanking содержит результат автоматического поиска ключа: несколько лучших ключей
+ * с нормированными оценками и уверенность в лучшем ключе.
+ * Текст не расшифровывается при построении рейтинга: вариант расшифровки создается только по запросу
+ * ({@link #decrypt(Candidate)}), поэтому вызывающий код может принять уверенный результат,
+ * не храня в памяти расшифровки для всех ключей.
+ */
+public final class KeyRanking
+{
+    /**
+     * Количество ключей в рейтинге по умолчанию.
+     */
+    public static final int DEFAULT_LIMIT = 5;
+
+    /**
+     * Ключ из рейтинга.
+     *
+     * @param key Ключ расшифровки.
+     * @param score Нормированная оценка от 0 до 1: 1 - лучший ключ, 0 - худший из всех проверенных ключей.
+     */
+    public record Candidate(int key, double score)
+    {
+    }
+
+    /**
+     * Лучшие ключи в порядке убывания оценки (при равенстве - в порядке возрастания ключа).
+     */
+    private final List<Candidate> candidates;
+
+    /**
+     * Уверенность в лучшем ключе от 0 до 1.
+     */
+    private final double confidence;
+
+    /**
+     * Дешифратор для расшифровки выбранных вариантов.
+     */
+    private final Decrypter decrypter;
+
+    /**
+     * Зашифрованные данные, по которым построен рейтинг.
+     */
+    private final List<String> encryptedData;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #of(double[], int, double, Decrypter, List)}.
+     *
+     * @param candidates Лучшие ключи.
+     * @param confidence Уверенность в лучшем ключе.
+     * @param decrypter Дешифратор для расшифровки вариантов.
+     * @param encryptedData Зашифрованные данные.
+     */
+    private KeyRanking(List<Candidate> candidates, double confidence, Decrypter decrypter, List<String> encryptedData)
+    {
+        this.candidates = Collections.unmodifiableList(candidates);
+        this.confidence = confidence;
+        this.decrypter = decrypter;
+        this.encryptedData = encryptedData;
+    }
+
+    /**
+     * Строит рейтинг по "стоимости" каждого ключа: чем меньше стоимость, тем лучше ключ.
+     * Оценка ключа равна {@code (худшая - стоимость) / (худшая - лучшая)}; если стоимости всех ключей равны,
+     * оценка каждого ключа равна 1.
+     *
+     * @param costs Массив, где индексы — ключи расшифровки, а значения — стоимости.
+     * @param limit Максимальное количество ключей в рейтинге.
+     * @param confidence Уверенность в лучшем ключе, вычисленная дешифратором.
+     * @param decrypter Дешифратор для расшифровки вариантов.
+     * @param encryptedData Зашифрованные данные.
+     * @return Рейтинг ключей.
+     */
+    static KeyRanking of(double[] costs, int limit, double confidence, Decrypter decrypter, List<String> encryptedData)
+    {
+        double bestCost = Double.POSITIVE_INFINITY;
+        double worstCost = Double.NEGATIVE_INFINITY;
+        for (double cost : costs)
+        {
+            bestCost = Math.min(bestCost, cost);
+            worstCost = Math.max(worstCost, cost);
+        }
+
+        List<Candidate> all = new ArrayList<>(costs.length);
+        for (int key = 0; key < costs.length; key++)
+        {
+            double score = worstCost == bestCost ? 1 : (worstCost - costs[key]) / (worstCost - bestCost);
+            all.add(new Candidate(key, score));
+        }
+        all.sort(Comparator.comparingDouble(Candidate::score).reversed().thenComparingInt(Candidate::key));
+
+        return new KeyRanking(new ArrayList<>(all.subList(0, Math.min(limit, all.size()))), confidence,
+                decrypter, encryptedData);
+    }
+
+    /**
+     * Строит рейтинг из одного ключа, ранее найденного и сохраненного в кеше ключей ({@link KeyCache}):
+     * оценка ключа равна 1, уверенность берется из сохраненной оценки.
+     *
+     * @param estimate Оценка ключа.
+     * @param decrypter Дешифратор для расшифровки вариантов.
+     * @param encryptedData Зашифрованные данные.
+     * @return Рейтинг ключей.
+     */
+    static KeyRanking of(KeyEstimate estimate, Decrypter decrypter, List<String> encryptedData)
+    {
+        return new KeyRanking(new ArrayList<>(List.of(new Candidate(estimate.key(), 1))), estimate.confidence(),
+                decrypter, encryptedData);
+    }
+
+    /**
+     * Возвращает лучшие ключи.
+     *
+     * @return Неизменяемый список ключей в порядке убывания оценки.
+     */
+    public List<Candidate> candidates()
+    {
+        return candidates;
+    }
+
+    /**
+     * Возвращает лучший ключ.
+     *
+     * @return Ключ с наибольшей оценкой (при равенстве - наименьший).
+     */
+    public Candidate best()
+    {
+        return candidates.getFirst();
+    }
+
+    /**
+     * Возвращает ключи, оценка которых равна оценке лучшего ключа.
+     *
+     * @return Список равноценных лучших ключей.
+     */
+    public List<Candidate> tiedBest()
+    {
+        double bestScore = best().score();
+        return candidates.stream().filter(candidate -> candidate.score() == bestScore).toList();
+    }
+
+    /**
+     * Возвращает уверенность в лучшем ключе: 0 - лучший ключ не отличается от следующего за ним.
+     *
+     * @return Уверенность от 0 до 1.
+     */
+    public double confidence()
+    {
+        return confidence;
+    }
+
+    /**
+     * Проверяет, можно ли принять лучший ключ без выбора пользователя.
+     *
+     * @param threshold Минимальная уверенность.
+     * @return true, если уверенность не меньше порога.
+     */
+    public boolean isConfident(double threshold)
+    {
+        return confidence >= threshold;
+    }
+
+    /**
+     * Расшифровывает данные ключом из рейтинга. Результат не сохраняется в рейтинге.
+     *
+     * @param candidate Ключ из рейтинга.
+     * @return Список расшифрованных строк.
+     */
+    public List<String> decrypt(Candidate candidate)
+    {
+        return decrypter.decrypt(encryptedData, candidate.key());
+    }
+
+    /**
+     * Возвращает оценку лучшего ключа.
+     *
+     * @return Лучший ключ и уверенность в нем.
+     */
+    public KeyEstimate toEstimate()
+    {
+        return new KeyEstimate(best().key(), confidence);
+    }
+}
@@ -0,0 +1,12 @@
+package cipher;
+
+/**
+ * Гистограмма символов шифротекста по позициям алфавита профиля, построенная без загрузки текста в память
+ * (например, параллельным проходом по файлу). Используется аналитическим дешифратором вместо списка строк.
+ *
+ * @param counts Количество символов на каждой позиции алфавита.
+ * @param textSize Общее количество символов текста без переводов строк.
+ */
+public record LetterHistogram(long[] counts, long textSize)
+{
+}
@@ -0,0 +1,375 @@
+package cipher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Класс NGramModel хранит языковую модель триграмм символов в виде компактного примитивного массива.
+ * Символами модели являются {@code MAX_SYMBOLS - 1} самых частых символов текста (включая пробел,
+ * знаки препинания и перевод строки) и один общий символ для всех остальных. Элемент массива для тройки
+ * символов (a, b, c) содержит логарифм вероятности появления c после a и b, полученной интерполяцией
+ * вероятностей триграммы, биграммы и отдельного символа, поэтому при оценке текста на каждый символ
+ * приходится одно обращение к массиву.
+ * <p>
+ * Формат файла: сигнатура {@code CRNG} (int), версия (int), размер (long) и время изменения (long) текста,
+ * по которому построена модель, количество символов S (int), S символов (char),
+ * затем S<sup>3</sup> логарифмов вероятностей (float).
+ */
+public final class NGramModel
+{
+    /**
+     * Сигнатура файла модели.
+     */
+    private static final int MAGIC = 0x43524E47;
+
+    /**
+     * Версия формата.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Размер заголовка (в байтах).
+     */
+    private static final int HEADER_SIZE = 3 * Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * Номер общего символа для символов, которых нет в модели.
+     */
+    public static final int UNKNOWN = 0;
+
+    /**
+     * Максимальное количество символов модели, включая {@code UNKNOWN}.
+     */
+    private static final int MAX_SYMBOLS = 64;
+
+    /** Веса интерполяции вероятностей триграммы, биграммы и отдельного символа. */
+    private static final double TRIGRAM_WEIGHT = 0.6;
+    private static final double BIGRAM_WEIGHT = 0.3;
+    private static final double UNIGRAM_WEIGHT = 0.1;
+
+    /**
+     * Символы модели; на позиции {@code UNKNOWN} находится нулевой символ.
+     */
+    private final char[] symbols;
+
+    /**
+     * Логарифмы вероятностей, индекс тройки (a, b, c) равен {@code (a * S + b) * S + c}.
+     */
+    private final float[] logProbabilities;
+
+    /**
+     * Отпечаток текста, по которому построена модель.
+     */
+    private final SourceStamp source;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #train(List)}, {@link #train(Path)}
+     * или {@link #load(Path)}.
+     *
+     * @param symbols Символы модели.
+     * @param logProbabilities Логарифмы вероятностей триграмм.
+     * @param source Отпечаток текста, по которому построена модель.
+     */
+    private NGramModel(char[] symbols, float[] logProbabilities, SourceStamp source)
+    {
+        this.symbols = symbols;
+        this.logProbabilities = logProbabilities;
+        this.source = source;
+    }
+
+    /**
+     * Строит модель по репрезентативному тексту. Конец каждой строки учитывается как перевод строки.
+     *
+     * @param corpus Список строк репрезентативного текста.
+     * @return Модель триграмм.
+     */
+    public static NGramModel train(List<String> corpus)
+    {
+        return train(corpus::forEach, SourceStamp.NONE);
+    }
+
+    /**
+     * Строит модель по файлу репрезентативного текста, не загружая его в память:
+     * файл читается построчно дважды - для выбора символов и для подсчета триграмм.
+     *
+     * @param corpus Путь к репрезентативному тексту.
+     * @return Модель триграмм с отпечатком текста.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public static NGramModel train(Path corpus) throws IOException
+    {
+        SourceStamp source = SourceStamp.of(corpus);
+        return train(action ->
+        {
+            try (BufferedReader reader = Files.newBufferedReader(corpus))
+            {
+                String line;
+                while ((line = reader.readLine()) != null)
+                {
+                    action.accept(line);
+                }
+            }
+        }, source);
+    }
+
+    /**
+     * Строит модель по строкам текста, проходя по ним дважды.
+     *
+     * @param corpus Строки репрезентативного текста.
+     * @param source Отпечаток текста.
+     * @param <E> Тип исключения при чтении строк.
+     * @return Модель триграмм.
+     * @throws E если не удалось прочитать строки.
+     */
+    private static <E extends Exception> NGramModel train(Lines<E> corpus, SourceStamp source) throws E
+    {
+        NGramModel model = new NGramModel(selectSymbols(corpus), null, source);
+        int size = model.symbols.length;
+
+        long[] unigrams = new long[size];
+        long[] bigrams = new long[size * size];
+        long[] trigrams = new long[size * size * size];
+        int lineEnd = model.symbolOf('\n');
+        // Два предыдущих символа, переходящие от строки к строке.
+        int[] previous = {lineEnd, lineEnd};
+
+        corpus.forEach(line ->
+        {
+            for (int i = 0; i <= line.length(); i++)
+            {
+                int third = i == line.length() ? lineEnd : model.symbolOf(line.charAt(i));
+                unigrams[third]++;
+                bigrams[previous[1] * size + third]++;
+                trigrams[(previous[0] * size + previous[1]) * size + third]++;
+                previous[0] = previous[1];
+                previous[1] = third;
+            }
+        });
+
+        long total = 0;
+        for (long count : unigrams)
+        {
+            total += count;
+        }
+        long[] bigramContexts = new long[size];
+        long[] trigramContexts = new long[size * size];
+        for (int context = 0; context < size * size; context++)
+        {
+            bigramContexts[context / size] += bigrams[context];
+            for (int next = 0; next < size; next++)
+            {
+                trigramContexts[context] += trigrams[context * size + next];
+            }
+        }
+
+        float[] logProbabilities = new float[size * size * size];
+        for (int a = 0; a < size; a++)
+        {
+            for (int b = 0; b < size; b++)
+            {
+                for (int c = 0; c < size; c++)
+                {
+                    // Вероятность отдельного символа сглаживается добавлением единицы, поэтому вероятность
+                    // не равна нулю даже для неизвестных сочетаний. Для неизвестного контекста
+                    // вероятность триграммы (биграммы) заменяется вероятностью биграммы (отдельного символа).
+                    double unigram = (unigrams[c] + 1.0) / (total + size);
+                    double bigram = bigramContexts[b] == 0 ? unigram
+                            : (double) bigrams[b * size + c] / bigramContexts[b];
+                    double trigram = trigramContexts[a * size + b] == 0 ? bigram
+                            : (double) trigrams[(a * size + b) * size + c] / trigramContexts[a * size + b];
+                    logProbabilities[(a * size + b) * size + c] = (float) Math.log(
+                            TRIGRAM_WEIGHT * trigram + BIGRAM_WEIGHT * bigram + UNIGRAM_WEIGHT * unigram);
+                }
+            }
+        }
+
+        return new NGramModel(model.symbols, logProbabilities, source);
+    }
+
+    /**
+     * Загружает модель из файла, отображая файл в память и копируя таблицу в примитивный массив.
+     *
+     * @param path Путь к файлу модели.
+     * @return Модель триграмм.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл не является моделью.
+     */
+    public static NGramModel load(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.limit() < HEADER_SIZE || data.getInt() != MAGIC || data.getInt() != VERSION)
+            {
+                throw new IllegalArgumentException("Файл не является моделью n-грамм");
+            }
+
+            SourceStamp source = new SourceStamp(data.getLong(), data.getLong());
+            int size = data.getInt();
+            if (size <= 0 || data.remaining() != (long) size * Character.BYTES + (long) size * size * size * Float.BYTES)
+            {
+                throw new IllegalArgumentException("Файл модели n-грамм поврежден");
+            }
+            char[] symbols = new char[size];
+            data.asCharBuffer().get(symbols);
+            data.position(data.position() + size * Character.BYTES);
+            float[] logProbabilities = new float[size * size * size];
+            data.asFloatBuffer().get(logProbabilities);
+            return new NGramModel(symbols, logProbabilities, source);
+        }
+    }
+
+    /**
+     * Сохраняет модель в файл. Модель сначала записывается во временный файл, который затем заменяет прежний,
+     * поэтому прерванная запись не повреждает сохраненную модель.
+     *
+     * @param path Путь к файлу модели.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public void write(Path path) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + symbols.length * Character.BYTES
+                + logProbabilities.length * Float.BYTES);
+        data.putInt(MAGIC).putInt(VERSION).putLong(source.size()).putLong(source.modified()).putInt(symbols.length);
+        for (char symbol : symbols)
+        {
+            data.putChar(symbol);
+        }
+        for (float logProbability : logProbabilities)
+        {
+            data.putFloat(logProbability);
+        }
+        data.flip();
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), "model", ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                while (data.hasRemaining())
+                {
+                    channel.write(data);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Возвращает отпечаток текста, по которому построена модель.
+     *
+     * @return Отпечаток текста, либо {@link SourceStamp#NONE}, если модель построена не по файлу.
+     */
+    public SourceStamp source()
+    {
+        return source;
+    }
+
+    /**
+     * Возвращает номер символа модели, либо {@code UNKNOWN}, если символа нет в модели.
+     *
+     * @param letter Символ текста.
+     * @return Номер символа модели.
+     */
+    public int symbolOf(char letter)
+    {
+        for (int i = 1; i < symbols.length; i++)
+        {
+            if (symbols[i] == letter)
+            {
+                return i;
+            }
+        }
+        return UNKNOWN;
+    }
+
+    /**
+     * Возвращает количество символов модели.
+     *
+     * @return Количество символов, включая границу.
+     */
+    public int symbolCount()
+    {
+        return symbols.length;
+    }
+
+    /**
+     * Возвращает логарифм вероятности символа {@code c} после символов {@code a} и {@code b}.
+     *
+     * @param a Номер первого символа.
+     * @param b Номер второго символа.
+     * @param c Номер третьего символа.
+     * @return Логарифм вероятности.
+     */
+    public float logProbability(int a, int b, int c)
+    {
+        int size = symbols.length;
+        return logProbabilities[(a * size + b) * size + c];
+    }
+
+    /**
+     * Выбирает символы модели: {@code MAX_SYMBOLS - 1} самых частых символов текста и перевод строки.
+     *
+     * @param corpus Строки репрезентативного текста.
+     * @param <E> Тип исключения при чтении строк.
+     * @return Символы модели, начиная с нулевого символа для {@code UNKNOWN}.
+     * @throws E если не удалось прочитать строки.
+     */
+    private static <E extends Exception> char[] selectSymbols(Lines<E> corpus) throws E
+    {
+        Map<Character, Long> counts = new HashMap<>();
+        corpus.forEach(line ->
+        {
+            for (int i = 0; i < line.length(); i++)
+            {
+                counts.merge(line.charAt(i), 1L, Long::sum);
+            }
+            counts.merge('\n', 1L, Long::sum);
+        });
+
+        List<Character> frequent = new ArrayList<>(counts.keySet());
+        frequent.sort(Comparator.comparing((Character letter) -> counts.get(letter)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        int size = Math.min(frequent.size(), MAX_SYMBOLS - 1);
+        char[] symbols = new char[size + 1];
+        for (int i = 0; i < size; i++)
+        {
+            symbols[i + 1] = frequent.get(i);
+        }
+        return symbols;
+    }
+
+    /**
+     * Строки текста, по которым можно пройти несколько раз.
+     *
+     * @param <E> Тип исключения при чтении строк.
+     */
+    @FunctionalInterface
+    private interface Lines<E extends Exception>
+    {
+        /**
+         * Передает каждую строку текста по порядку.
+         *
+         * @param action Действие для строки.
+         * @throws E если не удалось прочитать строки.
+         */
+        void forEach(Consumer<String> action) throws E;
+    }
+}
@@ -0,0 +1,307 @@
+package cipher;
+
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CoderResult;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/**
+ * Класс ParallelCipherEngine выполняет шифрование больших файлов в кодировке UTF-8 в несколько потоков.
+ * Шифр Цезаря не имеет состояния, поэтому файл делится на блоки байтов фиксированного размера. Каждый блок
+ * целиком обрабатывается отдельной задачей на заданном пуле потоков: задача читает свой диапазон байтов
+ * позиционным чтением из канала и применяет шифр прямо к байтам UTF-8 ({@link Utf8ByteCipher}), то есть
+ * чтение, декодирование, подстановка и кодирование выполняются параллельно. Последовательно, в вызывающем потоке,
+ * выполняется только запись готовых блоков в исходном порядке, поэтому ускорение ограничено скоростью записи.
+ * <p>
+ * Границы блоков сдвигаются на начало ближайшей UTF-8 последовательности: граница, попавшая на байт продолжения,
+ * переносится вперед не более чем на три байта. Обе соседние задачи вычисляют границу по одним и тем же байтам,
+ * поэтому каждая последовательность обрабатывается ровно одной задачей.
+ * Число одновременно обрабатываемых блоков ограничено, поэтому расход памяти не зависит от размера файла.
+ */
+public class ParallelCipherEngine
+{
+    /**
+     * Размер блока по умолчанию (в байтах).
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+    /**
+     * Максимальная длина UTF-8 последовательности.
+     */
+    private static final int MAX_SEQUENCE = 4;
+
+    /**
+     * Пул потоков, на котором преобразуются блоки.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Размер блока (в байтах).
+     */
+    private final int blockSize;
+
+    /**
+     * Максимальное количество блоков, одновременно находящихся в обработке.
+     */
+    private final int window;
+
+    /**
+     * Конструктор класса ParallelCipherEngine.
+     *
+     * @param executor Пул потоков для преобразования блоков.
+     * @param blockSize Размер блока (в байтах).
+     * @param parallelism Количество потоков, на которое рассчитана загрузка пула.
+     */
+    public ParallelCipherEngine(ExecutorService executor, int blockSize, int parallelism)
+    {
+        if (blockSize < MAX_SEQUENCE || parallelism <= 0)
+        {
+            throw new IllegalArgumentException("Размер блока и число потоков должны быть положительными");
+        }
+        this.executor = executor;
+        this.blockSize = blockSize;
+        this.window = parallelism * 2;
+    }
+
+    /**
+     * Создает движок на отдельном ForkJoin-пуле с заданным количеством потоков.
+     *
+     * @param parallelism Количество потоков.
+     * @return Движок параллельного шифрования.
+     */
+    public static ParallelCipherEngine withForkJoinPool(int parallelism)
+    {
+        return new ParallelCipherEngine(new ForkJoinPool(parallelism), DEFAULT_BLOCK_SIZE, parallelism);
+    }
+
+    /**
+     * Создает движок, запускающий каждый блок в отдельном виртуальном потоке.
+     *
+     * @param parallelism Максимальное количество одновременно обрабатываемых блоков, деленное на два.
+     * @return Движок параллельного шифрования.
+     */
+    public static ParallelCipherEngine withVirtualThreads(int parallelism)
+    {
+        return new ParallelCipherEngine(Executors.newVirtualThreadPerTaskExecutor(), DEFAULT_BLOCK_SIZE, parallelism);
+    }
+
+    /**
+     * Преобразует файл блоками параллельно и записывает блоки в исходном порядке в позицию выходного канала.
+     * Пока самый старый блок не записан, новые блоки не запускаются сверх ограничения на количество блоков в обработке.
+     * Окончания строк и все символы вне алфавита сохраняются без изменений.
+     *
+     * @param source Канал входного файла.
+     * @param target Канал выходного файла.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода, файл не является корректным UTF-8
+     *                     или преобразование блока завершилось с ошибкой.
+     */
+    public void transform(FileChannel source, FileChannel target, CompiledCipher cipher) throws IOException
+    {
+        Utf8ByteCipher byteCipher = Utf8ByteCipher.of(cipher);
+        long size = source.size();
+        Deque<BlockBuffers> freeBuffers = new ArrayDeque<>();
+        Deque<Block> pending = new ArrayDeque<>();
+        long next = 0;
+
+        try
+        {
+            while (next < size || !pending.isEmpty())
+            {
+                if (next < size && pending.size() < window)
+                {
+                    BlockBuffers buffers = freeBuffers.isEmpty() ? new BlockBuffers(blockSize) : freeBuffers.pop();
+                    long from = next;
+                    long to = Math.min(size, from + blockSize);
+                    Future<?> task = executor.submit(() ->
+                    {
+                        transformBlock(source, size, from, to, byteCipher, buffers);
+                        return null;
+                    });
+                    pending.add(new Block(buffers, task));
+                    next = to;
+                    continue;
+                }
+
+                Block block = pending.poll();
+                await(block.task());
+                write(block.buffers().output, target);
+                freeBuffers.push(block.buffers());
+            }
+        }
+        finally
+        {
+            // При ошибке оставшиеся блоки не нужны; задачи не прерываются, чтобы не закрыть канал прерыванием.
+            for (Block block : pending)
+            {
+                block.task().cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Читает диапазон байтов блока (с запасом для поиска границы) и преобразует последовательности,
+     * начинающиеся внутри блока, в выходной буфер блока.
+     *
+     * @param source Канал входного файла.
+     * @param size Размер входного файла.
+     * @param from Номинальное начало блока.
+     * @param to Номинальный конец блока.
+     * @param cipher Байтовый шифр.
+     * @param buffers Буферы блока.
+     * @throws IOException если произошла ошибка ввода-вывода или байты не являются корректным UTF-8.
+     */
+    private static void transformBlock(FileChannel source, long size, long from, long to, Utf8ByteCipher cipher,
+                                       BlockBuffers buffers) throws IOException
+    {
+        ByteBuffer input = buffers.input.clear();
+        input.limit((int) (Math.min(size, to + MAX_SEQUENCE) - from));
+
+        long start = Metrics.start();
+        while (input.hasRemaining() && source.read(input, from + input.position()) != -1)
+        {
+            // Читаем, пока диапазон не будет прочитан целиком.
+        }
+        Metrics.record(Stage.READ, start, input.position());
+        input.flip();
+
+        int blockStart = from == 0 ? 0 : boundary(input, 0);
+        int blockEnd = to == size ? input.limit() : boundary(input, (int) (to - from));
+        input.position(blockStart).limit(blockEnd);
+
+        ByteBuffer output = buffers.output.clear();
+        CoderResult result;
+        while ((result = cipher.apply(input, output, true)).isOverflow())
+        {
+            // Последовательность символа может стать длиннее (например, пробел переходит в букву кириллицы).
+            output = ByteBuffer.allocate(output.capacity() * 2).put(output.flip());
+        }
+        buffers.output = output.flip();
+        if (result.isError())
+        {
+            result.throwException();
+        }
+    }
+
+    /**
+     * Находит начало UTF-8 последовательности, на которое переносится граница блока:
+     * первый байт, не являющийся байтом продолжения, не дальше трех байтов от номинальной границы.
+     * Если до такого байта файл заканчивается, граница переносится на конец файла: последовательность,
+     * которую разрезала номинальная граница, целиком достается предыдущему блоку.
+     * Если такого байта нет, данные некорректны и граница не сдвигается - ошибку сообщит шифр.
+     *
+     * @param bytes Прочитанные байты блока; их предел меньше номинальной границы плюс {@code MAX_SEQUENCE},
+     *              только если прочитан конец файла.
+     * @param offset Номинальная граница относительно начала прочитанных байтов.
+     * @return Граница блока относительно начала прочитанных байтов.
+     */
+    private static int boundary(ByteBuffer bytes, int offset)
+    {
+        int last = Math.min(bytes.limit(), offset + MAX_SEQUENCE);
+        for (int i = offset; i < last; i++)
+        {
+            if ((bytes.get(i) & 0xC0) != 0x80)
+            {
+                return i;
+            }
+        }
+        return last < offset + MAX_SEQUENCE ? last : offset;
+    }
+
+    /**
+     * Записывает готовый блок в выходной канал.
+     *
+     * @param output Буфер с преобразованными байтами блока.
+     * @param target Канал выходного файла.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static void write(ByteBuffer output, FileChannel target) throws IOException
+    {
+        long start = Metrics.start();
+        int length = output.remaining();
+        while (output.hasRemaining())
+        {
+            target.write(output);
+        }
+        Metrics.record(Stage.WRITE, start, length);
+    }
+
+    /**
+     * Ожидает завершения задачи и пробрасывает ее ошибки как {@link IOException}.
+     *
+     * @param task Задача преобразования блока.
+     * @throws IOException если задача завершилась с ошибкой или ожидание было прервано.
+     */
+    private void await(Future<?> task) throws IOException
+    {
+        try
+        {
+            task.get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Шифрование прервано");
+        }
+        catch (ExecutionException e)
+        {
+            // ForkJoin-пул оборачивает проверяемые исключения задачи в RuntimeException.
+            for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+            {
+                if (cause instanceof IOException ioException)
+                {
+                    throw ioException;
+                }
+            }
+            throw new IOException("Ошибка при шифровании блока", e.getCause());
+        }
+    }
+
+    /**
+     * Буферы блока, переиспользуемые следующими блоками после записи.
+     */
+    private static class BlockBuffers
+    {
+        /**
+         * Прочитанные байты блока с запасом для поиска границы.
+         */
+        final ByteBuffer input;
+
+        /**
+         * Преобразованные байты блока. Буфер увеличивается, если результат длиннее исходных байтов.
+         */
+        ByteBuffer output;
+
+        /**
+         * Конструктор буферов блока.
+         *
+         * @param blockSize Размер блока (в байтах).
+         */
+        BlockBuffers(int blockSize)
+        {
+            this.input = ByteBuffer.allocate(blockSize + MAX_SEQUENCE);
+            this.output = ByteBuffer.allocate(blockSize + MAX_SEQUENCE);
+        }
+    }
+
+    /**
+     * Блок данных, находящийся в обработке.
+     *
+     * @param buffers Буферы блока.
+     * @param task Задача преобразования блока.
+     */
+    private record Block(BlockBuffers buffers, Future<?> task)
+    {
+    }
+}
@@ -0,0 +1,259 @@
+package cipher;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Класс ReferenceIndex хранит частоты слов репрезентативного текста в компактном двоичном формате.
+ * Слова упорядочены по убыванию частоты, поэтому для выбора наиболее частых слов читается только начало индекса.
+ * Индекс, сохраненный в файл, при загрузке отображается в память; слова не декодируются,
+ * проверяется только то, что записи слов точно заполняют файл.
+ * <p>
+ * Формат: сигнатура {@code CRIX} (int), версия (int), размер (long) и время изменения (long) текста,
+ * по которому построен индекс, количество слов (int), затем для каждого слова частота (int),
+ * длина слова в байтах (беззнаковый short) и байты слова в UTF-8.
+ */
+public final class ReferenceIndex
+{
+    /**
+     * Сигнатура файла индекса.
+     */
+    private static final int MAGIC = 0x43524958;
+
+    /**
+     * Версия формата.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Смещение количества слов в заголовке.
+     */
+    private static final int SIZE_OFFSET = 2 * Integer.BYTES + 2 * Long.BYTES;
+
+    /**
+     * Размер заголовка (в байтах).
+     */
+    private static final int HEADER_SIZE = SIZE_OFFSET + Integer.BYTES;
+
+    /**
+     * Размер записи слова без байтов слова: частота и длина слова.
+     */
+    private static final int ENTRY_HEADER_SIZE = Integer.BYTES + Character.BYTES;
+
+    /**
+     * Максимальная длина слова в байтах UTF-8.
+     */
+    private static final int MAX_WORD_LENGTH = Character.MAX_VALUE;
+
+    /**
+     * Содержимое индекса (в куче либо отображенное в память).
+     */
+    private final ByteBuffer data;
+
+    /**
+     * Количество слов в индексе.
+     */
+    private final int size;
+
+    /**
+     * Отпечаток текста, по которому построен индекс.
+     */
+    private final SourceStamp source;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #build(List)} или {@link #load(Path)}.
+     *
+     * @param data Содержимое индекса.
+     * @throws IllegalArgumentException если данные не являются индексом.
+     */
+    private ReferenceIndex(ByteBuffer data)
+    {
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC || data.getInt(Integer.BYTES) != VERSION)
+        {
+            throw new IllegalArgumentException("Файл не является индексом репрезентативного текста");
+        }
+        this.data = data.asReadOnlyBuffer();
+        this.size = data.getInt(SIZE_OFFSET);
+        this.source = new SourceStamp(data.getLong(2 * Integer.BYTES), data.getLong(2 * Integer.BYTES + Long.BYTES));
+    }
+
+    /**
+     * Строит индекс по репрезентативному тексту.
+     *
+     * @param representativeData Список строк репрезентативного текста.
+     * @return Индекс частот слов.
+     */
+    public static ReferenceIndex build(List<String> representativeData)
+    {
+        WordCounter counter = new WordCounter();
+        for (String line : representativeData)
+        {
+            counter.add(line);
+        }
+        return build(counter, SourceStamp.NONE);
+    }
+
+    /**
+     * Строит индекс по уже подсчитанным частотам слов.
+     *
+     * @param counter Счетчик слов.
+     * @param source Отпечаток текста, по которому подсчитаны слова, либо {@link SourceStamp#NONE}.
+     * @return Индекс частот слов.
+     */
+    public static ReferenceIndex build(WordCounter counter, SourceStamp source)
+    {
+        List<Map.Entry<String, Integer>> entries = new ArrayList<>(counter.size());
+        counter.forEach((word, count) -> entries.add(Map.entry(word, count)));
+        entries.sort(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+
+        // Слова длиннее MAX_WORD_LENGTH байт не помещаются в формат и в индекс не попадают.
+        List<byte[]> words = new ArrayList<>(entries.size());
+        List<Integer> counts = new ArrayList<>(entries.size());
+        int length = HEADER_SIZE;
+        for (Map.Entry<String, Integer> entry : entries)
+        {
+            byte[] bytes = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (bytes.length <= MAX_WORD_LENGTH)
+            {
+                words.add(bytes);
+                counts.add(entry.getValue());
+                length += ENTRY_HEADER_SIZE + bytes.length;
+            }
+        }
+
+        ByteBuffer data = ByteBuffer.allocate(length);
+        data.putInt(MAGIC).putInt(VERSION).putLong(source.size()).putLong(source.modified()).putInt(words.size());
+        for (int i = 0; i < words.size(); i++)
+        {
+            data.putInt(counts.get(i)).putChar((char) words.get(i).length).put(words.get(i));
+        }
+        return new ReferenceIndex(data.flip());
+    }
+
+    /**
+     * Загружает индекс из файла, отображая файл в память.
+     *
+     * @param path Путь к файлу индекса.
+     * @return Индекс частот слов.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл не является индексом или поврежден.
+     */
+    public static ReferenceIndex load(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ReferenceIndex index = new ReferenceIndex(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            index.checkEntries();
+            return index;
+        }
+    }
+
+    /**
+     * Проверяет, что заявленное в заголовке количество записей слов точно заполняет данные индекса.
+     * Байты слов не декодируются.
+     *
+     * @throws IllegalArgumentException если индекс поврежден.
+     */
+    private void checkEntries()
+    {
+        long remaining = data.limit() - HEADER_SIZE;
+        if (size < 0 || (long) size * ENTRY_HEADER_SIZE > remaining)
+        {
+            throw new IllegalArgumentException("Файл индекса репрезентативного текста поврежден");
+        }
+
+        long position = HEADER_SIZE;
+        for (int i = 0; i < size && position + ENTRY_HEADER_SIZE <= data.limit(); i++)
+        {
+            position += ENTRY_HEADER_SIZE + data.getChar((int) position + Integer.BYTES);
+        }
+        if (position != data.limit())
+        {
+            throw new IllegalArgumentException("Файл индекса репрезентативного текста поврежден");
+        }
+    }
+
+    /**
+     * Сохраняет индекс в файл. Индекс сначала записывается во временный файл, который затем заменяет прежний,
+     * поэтому прерванная запись не повреждает сохраненный индекс.
+     *
+     * @param path Путь к файлу индекса.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public void write(Path path) throws IOException
+    {
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), "index", ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                ByteBuffer content = data.duplicate().rewind();
+                while (content.hasRemaining())
+                {
+                    channel.write(content);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Возвращает сет из {@code limit} наиболее часто встречающихся слов.
+     * При равной частоте предпочтение отдается слову, которое меньше в лексикографическом порядке,
+     * как и в {@link WordCounter#topWords(int)}.
+     *
+     * @param limit Количество слов.
+     * @return Сет наиболее часто встречающихся слов.
+     */
+    public Set<String> topWords(int limit)
+    {
+        Set<String> topWords = new HashSet<>();
+        ByteBuffer content = data.duplicate().position(HEADER_SIZE);
+
+        for (int i = 0; i < Math.min(limit, size); i++)
+        {
+            content.getInt();
+            byte[] bytes = new byte[content.getChar()];
+            content.get(bytes);
+            topWords.add(new String(bytes, StandardCharsets.UTF_8));
+        }
+        return topWords;
+    }
+
+    /**
+     * Возвращает отпечаток текста, по которому построен индекс.
+     *
+     * @return Отпечаток текста, либо {@link SourceStamp#NONE}, если индекс построен не по файлу.
+     */
+    public SourceStamp source()
+    {
+        return source;
+    }
+
+    /**
+     * Возвращает количество слов в индексе.
+     *
+     * @return Количество различных слов.
+     */
+    public int size()
+    {
+        return size;
+    }
+}
@@ -0,0 +1,32 @@
+package cipher;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Отпечаток файла, по которому построены сохраненные данные (индекс или модель): размер и время изменения.
+ * Сохраненные данные считаются актуальными, только если отпечаток файла не изменился.
+ *
+ * @param size Размер файла (в байтах).
+ * @param modified Время изменения файла (в миллисекундах).
+ */
+public record SourceStamp(long size, long modified)
+{
+    /**
+     * Отпечаток данных, построенных не по файлу.
+     */
+    public static final SourceStamp NONE = new SourceStamp(-1, -1);
+
+    /**
+     * Получает отпечаток файла.
+     *
+     * @param path Путь к файлу.
+     * @return Отпечаток файла.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public static SourceStamp of(Path path) throws IOException
+    {
+        return new SourceStamp(Files.size(path), Files.getLastModifiedTime(path).toMillis());
+    }
+}
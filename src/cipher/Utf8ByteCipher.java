@@ -0,0 +1,239 @@
+package cipher;
+
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CoderResult;
+
+/**
+ * Класс Utf8ByteCipher применяет шифр Цезаря непосредственно к байтам текста в кодировке UTF-8,
+ * без декодирования в символы UTF-16 и обратного кодирования.
+ * Для каждого кода символа из диапазона таблицы {@link CompiledCipher} заранее вычисляется
+ * UTF-8 последовательность символа, в который он переходит. Последовательности символов за пределами таблицы
+ * (в том числе четырехбайтовые) копируются без изменений.
+ * <p>
+ * Длина последовательности может измениться (например, кириллическая буква из двух байтов переходит в однобайтовый
+ * пробел), поэтому результат всегда записывается в отдельный буфер. Как и {@link java.nio.charset.CharsetDecoder},
+ * метод {@link #apply(ByteBuffer, ByteBuffer, boolean)} сообщает о переполнении целевого буфера,
+ * о незавершенной последовательности в конце исходного буфера и о некорректных байтах через {@link CoderResult}.
+ * Экземпляр неизменяем и может использоваться из нескольких потоков.
+ */
+public final class Utf8ByteCipher
+{
+    /**
+     * Таблица подстановки по коду символа: байты результата (младший байт - первый) и в старшем байте их количество.
+     * Нулевой элемент соответствует символу, который не может быть закодирован, и копируется без изменений.
+     */
+    private final int[] table;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #of(CompiledCipher)}.
+     *
+     * @param table Таблица подстановки.
+     */
+    private Utf8ByteCipher(int[] table)
+    {
+        this.table = table;
+    }
+
+    /**
+     * Строит байтовый шифр по скомпилированному шифру.
+     *
+     * @param cipher Скомпилированный шифр.
+     * @return Байтовый шифр для текста в UTF-8.
+     */
+    public static Utf8ByteCipher of(CompiledCipher cipher)
+    {
+        int[] table = new int[cipher.tableLength()];
+        for (int c = 0; c < table.length; c++)
+        {
+            char letter = cipher.apply((char) c);
+            if (!Character.isSurrogate((char) c) && !Character.isSurrogate(letter))
+            {
+                table[c] = encode(letter);
+            }
+        }
+        return new Utf8ByteCipher(table);
+    }
+
+    /**
+     * Строит байтовый шифр для алфавита заданного профиля и ключа.
+     *
+     * @param profile Профиль языка, алфавит которого используется для сдвига.
+     * @param key Значение сдвига.
+     * @return Байтовый шифр для текста в UTF-8.
+     */
+    public static Utf8ByteCipher of(AlphabetProfile profile, int key)
+    {
+        return of(CompiledCipher.of(profile, key));
+    }
+
+    /**
+     * Преобразует байты исходного буфера от позиции до предела и записывает результат в целевой буфер.
+     * Позиции обоих буферов сдвигаются на количество обработанных и записанных байтов.
+     * <ul>
+     *     <li>{@link CoderResult#UNDERFLOW} - исходный буфер обработан; если {@code endOfInput} равен false,
+     *     в нем может остаться начало последовательности, которая продолжится в следующей порции;</li>
+     *     <li>{@link CoderResult#OVERFLOW} - в целевом буфере не хватило места для следующей последовательности;</li>
+     *     <li>{@link CoderResult#malformedForLength(int)} - позиция исходного буфера указывает на некорректные байты.</li>
+     * </ul>
+     *
+     * @param source Исходный буфер с текстом в UTF-8.
+     * @param target Буфер для результата.
+     * @param endOfInput true, если после исходного буфера данных больше не будет.
+     * @return Результат преобразования.
+     */
+    public CoderResult apply(ByteBuffer source, ByteBuffer target, boolean endOfInput)
+    {
+        long start = Metrics.start();
+        int[] table = this.table;
+        int sourcePosition = source.position();
+        int sourceLimit = source.limit();
+        int targetPosition = target.position();
+        int targetLimit = target.limit();
+        CoderResult result = CoderResult.UNDERFLOW;
+        long letters = 0;
+
+        while (sourcePosition < sourceLimit)
+        {
+            int first = source.get(sourcePosition) & 0xFF;
+            int length = sequenceLength(first);
+            if (length == 0)
+            {
+                result = CoderResult.malformedForLength(1);
+                break;
+            }
+            if (sourcePosition + length > sourceLimit)
+            {
+                if (endOfInput)
+                {
+                    result = CoderResult.malformedForLength(sourceLimit - sourcePosition);
+                }
+                break;
+            }
+
+            int codePoint = decode(source, sourcePosition, first, length);
+            if (codePoint < 0)
+            {
+                result = CoderResult.malformedForLength(length);
+                break;
+            }
+
+            int entry = codePoint < table.length ? table[codePoint] : 0;
+            int targetLength = entry == 0 ? length : entry >>> 24;
+            if (targetPosition + targetLength > targetLimit)
+            {
+                result = CoderResult.OVERFLOW;
+                break;
+            }
+
+            if (entry == 0)
+            {
+                for (int i = 0; i < length; i++)
+                {
+                    target.put(targetPosition + i, source.get(sourcePosition + i));
+                }
+            }
+            else
+            {
+                for (int i = 0; i < targetLength; i++)
+                {
+                    target.put(targetPosition + i, (byte) (entry >>> (8 * i)));
+                }
+            }
+            sourcePosition += length;
+            targetPosition += targetLength;
+            // Метрика считает символы Java, как и преобразование строк: четырехбайтовая последовательность - пара.
+            letters += length == 4 ? 2 : 1;
+        }
+
+        Metrics.record(Stage.TRANSFORM, start, letters);
+        source.position(sourcePosition);
+        target.position(targetPosition);
+        return result;
+    }
+
+    /**
+     * Определяет длину UTF-8 последовательности по первому байту.
+     *
+     * @param first Первый байт последовательности.
+     * @return Длина последовательности, либо 0, если байт не может начинать последовательность.
+     */
+    private static int sequenceLength(int first)
+    {
+        if (first < 0x80)
+        {
+            return 1;
+        }
+        if (first < 0xC2)
+        {
+            return 0;
+        }
+        if (first < 0xE0)
+        {
+            return 2;
+        }
+        if (first < 0xF0)
+        {
+            return 3;
+        }
+        return first < 0xF5 ? 4 : 0;
+    }
+
+    /**
+     * Декодирует код символа из последовательности, проверяя байты продолжения,
+     * избыточную длину кодирования и суррогатные коды.
+     *
+     * @param source Исходный буфер.
+     * @param position Позиция первого байта последовательности.
+     * @param first Первый байт последовательности.
+     * @param length Длина последовательности.
+     * @return Код символа, либо -1, если последовательность некорректна.
+     */
+    private static int decode(ByteBuffer source, int position, int first, int length)
+    {
+        if (length == 1)
+        {
+            return first;
+        }
+
+        int codePoint = first & (0x7F >> length);
+        for (int i = 1; i < length; i++)
+        {
+            int next = source.get(position + i) & 0xFF;
+            if ((next & 0xC0) != 0x80)
+            {
+                return -1;
+            }
+            codePoint = (codePoint << 6) | (next & 0x3F);
+        }
+
+        return switch (length)
+        {
+            case 3 -> codePoint < 0x800 || Character.isSurrogate((char) codePoint) ? -1 : codePoint;
+            case 4 -> codePoint < Character.MIN_SUPPLEMENTARY_CODE_POINT || codePoint > Character.MAX_CODE_POINT ? -1 : codePoint;
+            default -> codePoint;
+        };
+    }
+
+    /**
+     * Кодирует символ в UTF-8 и упаковывает байты и их количество в одно число.
+     *
+     * @param letter Символ (не суррогатный).
+     * @return Упакованная последовательность.
+     */
+    private static int encode(char letter)
+    {
+        if (letter < 0x80)
+        {
+            return 1 << 24 | letter;
+        }
+        if (letter < 0x800)
+        {
+            return 2 << 24 | (0x80 | (letter & 0x3F)) << 8 | (0xC0 | letter >> 6);
+        }
+        return 3 << 24 | (0x80 | (letter & 0x3F)) << 16 | (0x80 | (letter >> 6 & 0x3F)) << 8 | (0xE0 | letter >> 12);
+    }
+}
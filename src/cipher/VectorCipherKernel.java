@@ -0,0 +1,262 @@
+package cipher;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс VectorCipherKernel применяет таблицу подстановки {@link CompiledCipher} с помощью векторных инструкций
+ * ({@code jdk.incubator.vector}), обрабатывая за одну итерацию 16-32 символа в зависимости от процессора.
+ * <p>
+ * Внутри непрерывных участков алфавита (например, "ж"-"я") сдвиг сводится к прибавлению константы, если участок
+ * переходит в другой непрерывный участок. Поэтому таблица заранее разбивается на отрезки кодов с одинаковой разностью
+ * "результат - символ", и для каждого отрезка все символы вектора проверяются одним беззнаковым сравнением
+ * и сдвигаются одним сложением по маске. Оставшиеся изменяемые символы (знаки препинания, буквы вроде "ё")
+ * в основном попадают в окно кодов длиной в один вектор, которое преобразуется перестановкой элементов вектора-таблицы.
+ * Редкие символы вне отрезков и окна дописываются по таблице подстановки, поэтому результат совпадает
+ * с результатом таблицы бит в бит.
+ * <p>
+ * Класс используется только если модуль {@code jdk.incubator.vector} подключен при запуске
+ * ({@code --add-modules jdk.incubator.vector}), иначе {@link CompiledCipher} применяет таблицу сам.
+ */
+final class VectorCipherKernel
+{
+    /**
+     * Предпочтительная для процессора форма вектора.
+     */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED;
+
+    /**
+     * Минимальная длина отрезка, для которого выполняется векторная проверка.
+     * Более короткие отрезки дешевле преобразовать по окну или по таблице.
+     */
+    private static final int MIN_RUN = 4;
+
+    /**
+     * Таблица подстановки шифра.
+     */
+    private final char[] table;
+
+    /**
+     * Первые коды отрезков.
+     */
+    private final short[] runStarts;
+
+    /**
+     * Длины отрезков.
+     */
+    private final short[] runLengths;
+
+    /**
+     * Разность "результат - символ" для каждого отрезка.
+     */
+    private final short[] runDeltas;
+
+    /**
+     * Первый код окна.
+     */
+    private final short windowStart;
+
+    /**
+     * Результаты таблицы подстановки для кодов окна.
+     */
+    private final short[] window;
+
+    /**
+     * Первый код диапазона, содержащего все изменяемые символы вне отрезков и окна.
+     */
+    private final short restStart;
+
+    /**
+     * Длина диапазона изменяемых символов вне отрезков и окна (0, если таких символов нет),
+     * сравниваемая как беззнаковое число.
+     */
+    private final short restLength;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #of(char[])}.
+     *
+     * @param table Таблица подстановки.
+     * @param runs Отрезки в виде массивов {первый код, длина, разность}.
+     * @param windowStart Первый код окна.
+     * @param restStart Первый код диапазона остальных изменяемых символов.
+     * @param restLength Длина диапазона остальных изменяемых символов.
+     */
+    private VectorCipherKernel(char[] table, List<int[]> runs, int windowStart, int restStart, int restLength)
+    {
+        this.table = table;
+        this.runStarts = new short[runs.size()];
+        this.runLengths = new short[runs.size()];
+        this.runDeltas = new short[runs.size()];
+
+        for (int i = 0; i < runs.size(); i++)
+        {
+            runStarts[i] = (short) runs.get(i)[0];
+            runLengths[i] = (short) runs.get(i)[1];
+            runDeltas[i] = (short) runs.get(i)[2];
+        }
+
+        this.windowStart = (short) windowStart;
+        this.window = new short[SPECIES.length()];
+        for (int i = 0; i < window.length; i++)
+        {
+            window[i] = (short) lookup((char) (windowStart + i));
+        }
+        this.restStart = (short) restStart;
+        this.restLength = (short) restLength;
+    }
+
+    /**
+     * Разбивает таблицу подстановки на отрезки с одинаковой разностью "результат - символ"
+     * и выбирает окно, покрывающее наибольшее количество оставшихся изменяемых символов.
+     * Отрезки с нулевой разностью (символы, которые не меняются) и слишком короткие отрезки не сохраняются.
+     *
+     * @param table Таблица подстановки.
+     * @return Векторное ядро для таблицы, либо null, если таблицу нельзя обработать векторно.
+     */
+    static VectorCipherKernel of(char[] table)
+    {
+        List<int[]> runs = new ArrayList<>();
+        boolean[] rest = new boolean[table.length];
+        int start = 0;
+
+        for (int c = 1; c <= table.length; c++)
+        {
+            int delta = table[start] - start;
+            if (c < table.length && table[c] - c == delta && c - start < Short.MAX_VALUE)
+            {
+                continue;
+            }
+            if (delta != 0 && c - start >= MIN_RUN)
+            {
+                runs.add(new int[]{start, c - start, delta});
+            }
+            else if (delta != 0)
+            {
+                for (int letter = start; letter < c; letter++)
+                {
+                    rest[letter] = true;
+                }
+            }
+            start = c;
+        }
+
+        // Окно с наибольшим количеством изменяемых символов вне отрезков (скользящий подсчет).
+        int lanes = SPECIES.length();
+        int windowStart = 0;
+        int bestCount = 0;
+        int count = 0;
+        for (int letter = 0; letter < table.length; letter++)
+        {
+            count += rest[letter] ? 1 : 0;
+            if (letter >= lanes && rest[letter - lanes])
+            {
+                count--;
+            }
+            if (count > bestCount)
+            {
+                bestCount = count;
+                windowStart = Math.max(0, letter - lanes + 1);
+            }
+        }
+
+        // Диапазон изменяемых символов, не попавших ни в отрезки, ни в окно.
+        int restStart = 0;
+        int restEnd = -1;
+        for (int letter = 0; letter < table.length; letter++)
+        {
+            if (rest[letter] && (letter < windowStart || letter >= windowStart + lanes))
+            {
+                restStart = restEnd == -1 ? letter : restStart;
+                restEnd = letter;
+            }
+        }
+
+        if (restEnd - restStart + 1 > 0xFFFF)
+        {
+            // Диапазон не помещается в беззнаковое 16-битное сравнение, векторное ядро не используется.
+            return null;
+        }
+        return new VectorCipherKernel(table, runs, windowStart, restStart, restEnd - restStart + 1);
+    }
+
+    /**
+     * Возвращает количество символов, обрабатываемых за одну векторную итерацию.
+     *
+     * @return Количество символов в векторе.
+     */
+    static int vectorLength()
+    {
+        return SPECIES.length();
+    }
+
+    /**
+     * Преобразует участок массива символов и записывает результат в другой (или тот же) массив.
+     * Хвост короче одного вектора преобразуется по таблице.
+     *
+     * @param source Исходный массив.
+     * @param sourceFrom Индекс первого исходного символа.
+     * @param target Массив для результата.
+     * @param targetFrom Индекс, начиная с которого записывается результат.
+     * @param length Количество символов.
+     */
+    void apply(char[] source, int sourceFrom, char[] target, int targetFrom, int length)
+    {
+        short[] runStarts = this.runStarts;
+        short[] runLengths = this.runLengths;
+        short[] runDeltas = this.runDeltas;
+        ShortVector window = ShortVector.fromArray(SPECIES, this.window, 0);
+        short lanes = (short) SPECIES.length();
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+
+        for (; i < bound; i += SPECIES.length())
+        {
+            ShortVector letters = ShortVector.fromCharArray(SPECIES, source, sourceFrom + i);
+            ShortVector result = letters;
+            VectorMask<Short> covered = SPECIES.maskAll(false);
+
+            for (int run = 0; run < runStarts.length; run++)
+            {
+                VectorMask<Short> inRun = letters.sub(runStarts[run]).compare(VectorOperators.UNSIGNED_LT, runLengths[run]);
+                result = result.add(runDeltas[run], inRun);
+                covered = covered.or(inRun);
+            }
+
+            ShortVector windowIndex = letters.sub(windowStart);
+            VectorMask<Short> inWindow = windowIndex.compare(VectorOperators.UNSIGNED_LT, lanes).andNot(covered);
+            result = result.blend(windowIndex.and((short) (lanes - 1)).selectFrom(window), inWindow);
+            result.intoCharArray(target, targetFrom + i);
+
+            // Редкие изменяемые символы вне отрезков и окна дописываются по таблице.
+            long rest = letters.sub(restStart).compare(VectorOperators.UNSIGNED_LT, restLength)
+                    .andNot(covered).andNot(inWindow).toLong();
+            while (rest != 0)
+            {
+                int lane = Long.numberOfTrailingZeros(rest);
+                rest &= rest - 1;
+                target[targetFrom + i + lane] = lookup(source[sourceFrom + i + lane]);
+            }
+        }
+
+        for (; i < length; i++)
+        {
+            target[targetFrom + i] = lookup(source[sourceFrom + i]);
+        }
+    }
+
+    /**
+     * Преобразует один символ по таблице.
+     *
+     * @param letter Исходный символ.
+     * @return Символ после сдвига.
+     */
+    private char lookup(char letter)
+    {
+        return letter < table.length ? table[letter] : letter;
+    }
+}
@@ -0,0 +1,417 @@
+package cipher;
+
+import java.nio.CharBuffer;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Класс WordCounter подсчитывает частоту слов за один проход по тексту.
+ * Слова выделяются по разделителям " ,.!?" и переводам строк прямо во внутреннем буфере символов и учитываются в хеш-таблице
+ * с открытой адресацией, поэтому строка создается только при первом появлении слова.
+ * Экземпляр не потокобезопасен, но может переиспользоваться после вызова {@link #clear()}.
+ */
+public class WordCounter
+{
+    /**
+     * Начальная емкость хеш-таблицы (степень двойки).
+     */
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * Количество символов буфера, преобразуемых и подсчитываемых между проверками отмены.
+     */
+    private static final int CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Таблица разделителей слов, индексируемая символом.
+     */
+    private static final boolean[] DELIMITERS = new boolean['?' + 1];
+
+    static
+    {
+        for (char delimiter : " ,.!?\n\r".toCharArray())
+        {
+            DELIMITERS[delimiter] = true;
+        }
+    }
+
+    /**
+     * Слова, хранящиеся в хеш-таблице.
+     */
+    private String[] words = new String[INITIAL_CAPACITY];
+
+    /**
+     * Хеш-коды слов.
+     */
+    private int[] hashes = new int[INITIAL_CAPACITY];
+
+    /**
+     * Частоты слов.
+     */
+    private int[] counts = new int[INITIAL_CAPACITY];
+
+    /**
+     * Количество различных слов.
+     */
+    private int size;
+
+    /**
+     * Буфер для символов текущей строки.
+     */
+    private char[] buffer = new char[256];
+
+    /**
+     * Разбивает строку на слова и учитывает каждое слово.
+     *
+     * @param line Строка текста.
+     */
+    public void add(String line)
+    {
+        char[] letters = load(line);
+        add(letters, 0, line.length());
+    }
+
+    /**
+     * Преобразует строку шифром, разбивает результат на слова и учитывает каждое слово.
+     * Преобразованная строка не создается, шифр применяется к внутреннему буферу.
+     *
+     * @param line Строка текста.
+     * @param cipher Шифр, применяемый к строке перед подсчетом.
+     */
+    public void add(String line, CompiledCipher cipher)
+    {
+        char[] letters = load(line);
+        cipher.apply(letters, 0, line.length());
+        add(letters, 0, line.length());
+    }
+
+    /**
+     * Преобразует символы буфера от позиции до предела шифром, разбивает результат на слова и учитывает каждое слово.
+     * Символы копируются во внутренний буфер абсолютным чтением, поэтому позиция буфера не изменяется
+     * и один буфер могут одновременно читать счетчики разных потоков.
+     *
+     * @param text Буфер символов.
+     * @param cipher Шифр, применяемый к символам перед подсчетом.
+     */
+    public void add(CharBuffer text, CompiledCipher cipher)
+    {
+        add(text, cipher, () -> false);
+    }
+
+    /**
+     * Преобразует символы буфера от позиции до предела шифром, разбивает результат на слова и учитывает каждое слово,
+     * проверяя отмену перед каждым фрагментом из {@code CHUNK_SIZE} символов.
+     * Позиция буфера не изменяется. После отмены счетчик содержит только часть слов и должен быть очищен.
+     *
+     * @param text Буфер символов.
+     * @param cipher Шифр, применяемый к символам перед подсчетом.
+     * @param cancelled Условие отмены подсчета.
+     * @return true, если весь буфер подсчитан; false, если подсчет отменен.
+     */
+    public boolean add(CharBuffer text, CompiledCipher cipher, BooleanSupplier cancelled)
+    {
+        int length = text.remaining();
+        ensureCapacity(length);
+        int position = text.position();
+        int start = -1;
+
+        for (int from = 0; from < length; from += CHUNK_SIZE)
+        {
+            if (cancelled.getAsBoolean())
+            {
+                return false;
+            }
+            int to = Math.min(length, from + CHUNK_SIZE);
+            text.get(position + from, buffer, from, to - from);
+            cipher.apply(buffer, from, to);
+            start = addWords(buffer, from, to, start);
+        }
+        if (start != -1)
+        {
+            addWord(buffer, start, length);
+        }
+        return true;
+    }
+
+    /**
+     * Разбивает участок массива символов на слова и учитывает каждое слово.
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа (включительно).
+     * @param to Индекс последнего символа (не включительно).
+     */
+    public void add(char[] letters, int from, int to)
+    {
+        int start = addWords(letters, from, to, -1);
+        if (start != -1)
+        {
+            addWord(letters, start, to);
+        }
+    }
+
+    /**
+     * Учитывает слова участка массива символов, кроме последнего слова, не закрытого разделителем.
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа (включительно).
+     * @param to Индекс последнего символа (не включительно).
+     * @param start Начало слова, продолжающегося с предыдущего участка, либо -1.
+     * @return Начало незакрытого слова в конце участка, либо -1.
+     */
+    private int addWords(char[] letters, int from, int to, int start)
+    {
+        for (int i = from; i < to; i++)
+        {
+            char letter = letters[i];
+            boolean delimiter = letter < DELIMITERS.length && DELIMITERS[letter];
+
+            if (delimiter && start != -1)
+            {
+                addWord(letters, start, i);
+                start = -1;
+            }
+            else if (!delimiter && start == -1)
+            {
+                start = i;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * Возвращает сет из {@code limit} наиболее часто встречающихся слов.
+     * Для выбора используется ограниченная куча, поэтому все слова не сортируются.
+     * При равной частоте предпочтение отдается слову, которое меньше в лексикографическом порядке.
+     *
+     * @param limit Количество слов.
+     * @return Сет наиболее часто встречающихся слов.
+     */
+    public Set<String> topWords(int limit)
+    {
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, (first, second) ->
+                counts[first] != counts[second]
+                        ? Integer.compare(counts[first], counts[second])
+                        : words[second].compareTo(words[first]));
+
+        for (int i = 0; i < words.length; i++)
+        {
+            if (words[i] == null)
+            {
+                continue;
+            }
+            heap.add(i);
+            if (heap.size() > limit)
+            {
+                heap.poll();
+            }
+        }
+
+        Set<String> topWords = new HashSet<>();
+        for (int index : heap)
+        {
+            topWords.add(words[index]);
+        }
+        return topWords;
+    }
+
+    /**
+     * Передает каждое слово и его частоту в заданное действие (в произвольном порядке).
+     *
+     * @param action Действие, принимающее слово и его частоту.
+     */
+    public void forEach(ObjIntConsumer<String> action)
+    {
+        for (int i = 0; i < words.length; i++)
+        {
+            if (words[i] != null)
+            {
+                action.accept(words[i], counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество различных слов.
+     *
+     * @return Количество различных слов.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Очищает счетчик для повторного использования, сохраняя выделенную память.
+     */
+    public void clear()
+    {
+        Arrays.fill(words, null);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    /**
+     * Копирует строку во внутренний буфер, при необходимости увеличивая его.
+     *
+     * @param line Строка текста.
+     * @return Внутренний буфер, содержащий символы строки.
+     */
+    private char[] load(String line)
+    {
+        ensureCapacity(line.length());
+        line.getChars(0, line.length(), buffer, 0);
+        return buffer;
+    }
+
+    /**
+     * Увеличивает внутренний буфер, если он меньше заданной длины.
+     *
+     * @param length Необходимая длина буфера.
+     */
+    private void ensureCapacity(int length)
+    {
+        if (buffer.length < length)
+        {
+            buffer = new char[Math.max(length, buffer.length * 2)];
+        }
+    }
+
+    /**
+     * Учитывает одно слово.
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа слова (включительно).
+     * @param to Индекс последнего символа слова (не включительно).
+     */
+    private void addWord(char[] letters, int from, int to)
+    {
+        int hash = hash(letters, from, to);
+        int index = find(letters, from, to, hash);
+
+        if (words[index] == null)
+        {
+            words[index] = new String(letters, from, to - from);
+            hashes[index] = hash;
+            size++;
+            counts[index] = 1;
+            if (size * 2 > words.length)
+            {
+                grow();
+            }
+        }
+        else
+        {
+            counts[index]++;
+        }
+    }
+
+    /**
+     * Находит ячейку хеш-таблицы, содержащую слово, либо пустую ячейку для его вставки.
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа слова (включительно).
+     * @param to Индекс последнего символа слова (не включительно).
+     * @param hash Хеш-код слова.
+     * @return Индекс ячейки.
+     */
+    private int find(char[] letters, int from, int to, int hash)
+    {
+        int mask = words.length - 1;
+        int index = mix(hash) & mask;
+
+        while (words[index] != null && (hashes[index] != hash || !matches(words[index], letters, from, to)))
+        {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    /**
+     * Увеличивает хеш-таблицу вдвое и перераспределяет слова.
+     */
+    private void grow()
+    {
+        String[] oldWords = words;
+        int[] oldHashes = hashes;
+        int[] oldCounts = counts;
+
+        words = new String[oldWords.length * 2];
+        hashes = new int[words.length];
+        counts = new int[words.length];
+        int mask = words.length - 1;
+
+        for (int i = 0; i < oldWords.length; i++)
+        {
+            if (oldWords[i] == null)
+            {
+                continue;
+            }
+            int index = mix(oldHashes[i]) & mask;
+            while (words[index] != null)
+            {
+                index = (index + 1) & mask;
+            }
+            words[index] = oldWords[i];
+            hashes[index] = oldHashes[i];
+            counts[index] = oldCounts[i];
+        }
+    }
+
+    /**
+     * Вычисляет хеш-код участка массива символов (совпадает с {@link String#hashCode()}).
+     *
+     * @param letters Массив символов.
+     * @param from Индекс первого символа (включительно).
+     * @param to Индекс последнего символа (не включительно).
+     * @return Хеш-код.
+     */
+    private static int hash(char[] letters, int from, int to)
+    {
+        int hash = 0;
+        for (int i = from; i < to; i++)
+        {
+            hash = 31 * hash + letters[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Перемешивает биты хеш-кода для равномерного распределения по ячейкам.
+     *
+     * @param hash Хеш-код.
+     * @return Перемешанный хеш-код.
+     */
+    private static int mix(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Проверяет, совпадает ли слово с участком массива символов.
+     *
+     * @param word Слово.
+     * @param letters Массив символов.
+     * @param from Индекс первого символа (включительно).
+     * @param to Индекс последнего символа (не включительно).
+     * @return true, если символы совпадают.
+     */
+    private static boolean matches(String word, char[] letters, int from, int to)
+    {
+        if (word.length() != to - from)
+        {
+            return false;
+        }
+        for (int i = 0; i < word.length(); i++)
+        {
+            if (word.charAt(i) != letters[from + i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,9 @@
+package exceptions;
+
+public class InvalidArgumentException extends RuntimeException
+{
+    public InvalidArgumentException(String message)
+    {
+        super(message);
+    }
+}
@@ -0,0 +1,361 @@
+package file_manager;
+
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Класс AsyncChannelWriter записывает строки в канал файла через несколько заранее выделенных буферов.
+ * Вызывающий поток кодирует символы в один буфер, пока фоновый поток записывает заполненные буферы
+ * в {@link FileChannel}, поэтому подготовка данных и запись на диск выполняются одновременно.
+ * Если все буферы ожидают записи, вызывающий поток ждет освобождения буфера, поэтому расход памяти
+ * ограничен количеством и размером буферов и не зависит от объема данных.
+ * <p>
+ * Строки накапливаются в переиспользуемом массиве символов, который кодируется целиком в переиспользуемый
+ * массив байтов и копируется в буфер одной операцией, поэтому для каждой строки не создается ни строка
+ * с окончанием, ни массив байтов. Кодировка и окончание строк задаются при создании.
+ * Буферы не освобождаются при закрытии и могут использоваться следующим объектом записи.
+ */
+public class AsyncChannelWriter implements Closeable
+{
+    /**
+     * Размер массива символов (в символах), из которого кодируются строки.
+     */
+    private static final int STAGING_SIZE = 8 * 1024;
+
+    /**
+     * Размер массива байтов (в байтах), в который кодируются символы.
+     */
+    private static final int ENCODED_SIZE = 32 * 1024;
+
+    /**
+     * Признак конца данных для фонового потока.
+     */
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    /**
+     * Канал файла для записи.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Кодировщик символов.
+     */
+    private final CharsetEncoder encoder;
+
+    /**
+     * Окончание строки.
+     */
+    private final String lineSeparator;
+
+    /**
+     * Свободные буферы.
+     */
+    private final BlockingQueue<ByteBuffer> free;
+
+    /**
+     * Заполненные буферы, ожидающие записи.
+     */
+    private final BlockingQueue<ByteBuffer> filled;
+
+    /**
+     * Символы, ожидающие кодирования.
+     */
+    private final CharBuffer staging = CharBuffer.allocate(STAGING_SIZE);
+
+    /**
+     * Закодированные байты, ожидающие копирования в буфер. Кодирование в массив в куче
+     * выполняется значительно быстрее, чем посимвольная запись в буфер вне кучи.
+     */
+    private final ByteBuffer encoded = ByteBuffer.allocate(ENCODED_SIZE);
+
+    /**
+     * Фоновый поток записи.
+     */
+    private final Thread writerThread;
+
+    /**
+     * Буфер, который заполняется в данный момент.
+     */
+    private ByteBuffer current;
+
+    /**
+     * Ошибка записи в фоновом потоке, либо null.
+     */
+    private volatile IOException failure;
+
+    /**
+     * true, если объект записи закрыт.
+     */
+    private boolean closed;
+
+    /**
+     * Конструктор класса AsyncChannelWriter. Запускает фоновый поток записи.
+     *
+     * @param channel Канал файла для записи.
+     * @param charset Кодировка.
+     * @param lineSeparator Окончание строки.
+     * @param buffers Буферы для записи (не меньше двух), например созданные {@link #allocateBuffers(int, int)}.
+     * @throws IllegalArgumentException если буферов меньше двух.
+     */
+    public AsyncChannelWriter(FileChannel channel, Charset charset, String lineSeparator, ByteBuffer[] buffers)
+    {
+        if (buffers.length < 2)
+        {
+            throw new IllegalArgumentException("Необходимо не меньше двух буферов");
+        }
+        this.channel = channel;
+        this.encoder = charset.newEncoder();
+        this.lineSeparator = lineSeparator;
+        this.free = new ArrayBlockingQueue<>(buffers.length);
+        this.filled = new ArrayBlockingQueue<>(buffers.length + 1);
+
+        for (int i = 1; i < buffers.length; i++)
+        {
+            free.add(buffers[i].clear());
+        }
+        this.current = buffers[0].clear();
+
+        this.writerThread = new Thread(this::writeBuffers, "async-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+    }
+
+    /**
+     * Выделяет буферы для записи вне кучи, чтобы канал записывал их без промежуточного копирования.
+     *
+     * @param count Количество буферов.
+     * @param size Размер буфера (в байтах).
+     * @return Буферы.
+     */
+    public static ByteBuffer[] allocateBuffers(int count, int size)
+    {
+        ByteBuffer[] buffers = new ByteBuffer[count];
+        for (int i = 0; i < count; i++)
+        {
+            buffers[i] = ByteBuffer.allocateDirect(size);
+        }
+        return buffers;
+    }
+
+    /**
+     * Записывает строку и окончание строки.
+     *
+     * @param line Строка.
+     * @throws IOException если произошла ошибка записи или символ не может быть закодирован.
+     */
+    public void writeLine(String line) throws IOException
+    {
+        write(line);
+        write(lineSeparator);
+    }
+
+    /**
+     * Записывает текст без окончания строки.
+     *
+     * @param text Текст.
+     * @throws IOException если произошла ошибка записи или символ не может быть закодирован.
+     */
+    public void write(String text) throws IOException
+    {
+        int offset = 0;
+        while (offset < text.length())
+        {
+            if (!staging.hasRemaining())
+            {
+                encode(false);
+            }
+            int length = Math.min(staging.remaining(), text.length() - offset);
+            text.getChars(offset, offset + length, staging.array(), staging.position());
+            staging.position(staging.position() + length);
+            offset += length;
+        }
+    }
+
+    /**
+     * Записывает оставшиеся данные, дожидается завершения фонового потока и возвращает ошибку записи, если она была.
+     *
+     * @throws IOException если произошла ошибка записи или символ не может быть закодирован.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if (closed)
+        {
+            return;
+        }
+        closed = true;
+
+        try
+        {
+            encode(true);
+            CoderResult result;
+            do
+            {
+                result = encoder.flush(encoded);
+                transfer();
+            }
+            while (result.isOverflow());
+            if (current.position() > 0)
+            {
+                current.flip();
+                put(current);
+            }
+        }
+        finally
+        {
+            put(END);
+            try
+            {
+                writerThread.join();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Запись прервана");
+            }
+        }
+
+        if (failure != null)
+        {
+            throw failure;
+        }
+    }
+
+    /**
+     * Кодирует накопленные символы и копирует байты в буферы, передавая заполненные буферы на запись.
+     * Незакодированный остаток (первая половина суррогатной пары) остается в начале массива символов.
+     *
+     * @param endOfInput true, если символов больше не будет.
+     * @throws IOException если произошла ошибка записи или символ не может быть закодирован.
+     */
+    private void encode(boolean endOfInput) throws IOException
+    {
+        staging.flip();
+        CoderResult result;
+        do
+        {
+            result = encoder.encode(staging, encoded, endOfInput);
+            if (result.isError())
+            {
+                result.throwException();
+            }
+            transfer();
+        }
+        while (result.isOverflow());
+        staging.compact();
+    }
+
+    /**
+     * Копирует закодированные байты в текущий буфер, передавая заполненные буферы на запись.
+     *
+     * @throws IOException если в фоновом потоке произошла ошибка записи.
+     */
+    private void transfer() throws IOException
+    {
+        encoded.flip();
+        while (encoded.hasRemaining())
+        {
+            if (!current.hasRemaining())
+            {
+                submit();
+            }
+            int length = Math.min(encoded.remaining(), current.remaining());
+            current.put(current.position(), encoded, encoded.position(), length);
+            current.position(current.position() + length);
+            encoded.position(encoded.position() + length);
+        }
+        encoded.clear();
+    }
+
+    /**
+     * Передает текущий буфер фоновому потоку и берет свободный буфер, при необходимости ожидая его.
+     *
+     * @throws IOException если в фоновом потоке произошла ошибка записи.
+     */
+    private void submit() throws IOException
+    {
+        if (failure != null)
+        {
+            throw failure;
+        }
+        current.flip();
+        put(current);
+        try
+        {
+            current = free.take();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запись прервана");
+        }
+    }
+
+    /**
+     * Помещает буфер в очередь записи.
+     *
+     * @param buffer Буфер.
+     * @throws InterruptedIOException если ожидание прервано.
+     */
+    private void put(ByteBuffer buffer) throws InterruptedIOException
+    {
+        try
+        {
+            filled.put(buffer);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Запись прервана");
+        }
+    }
+
+    /**
+     * Цикл фонового потока: записывает заполненные буферы в канал и возвращает их в очередь свободных.
+     * После ошибки записи буферы только возвращаются, чтобы вызывающий поток не ждал свободный буфер.
+     */
+    private void writeBuffers()
+    {
+        try
+        {
+            ByteBuffer buffer;
+            while ((buffer = filled.take()) != END)
+            {
+                if (failure == null)
+                {
+                    long start = Metrics.start();
+                    int length = buffer.remaining();
+                    try
+                    {
+                        while (buffer.hasRemaining())
+                        {
+                            channel.write(buffer);
+                        }
+                    }
+                    catch (IOException e)
+                    {
+                        failure = e;
+                    }
+                    Metrics.record(Stage.WRITE, start, length);
+                }
+                free.put(buffer.clear());
+            }
+        }
+        catch (InterruptedException e)
+        {
+            failure = new InterruptedIOException("Запись прервана");
+        }
+    }
+}
@@ -1,14 +1,25 @@
 package file_manager;
 
+import cipher.CompiledCipher;
+import cipher.ParallelCipherEngine;
+import cipher.Utf8ByteCipher;
 import exceptions.FileIsEmptyException;
 import exceptions.InvalidFileNameException;
+import metrics.Metrics;
+import metrics.Stage;
 import validation.Validator;
 
 import java.io.BufferedReader;
-import java.io.BufferedWriter;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -18,6 +29,70 @@ import java.util.List;
  */
 public class FileManager
 {
+    /**
+     * Размер буфера (в байтах) для потоковой обработки файлов.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Буфер для чтения, переиспользуемый между порциями и файлами в пределах одного потока.
+     */
+    private static final ThreadLocal<ByteBuffer> inputBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    /**
+     * Буфер для записи, переиспользуемый между порциями и файлами в пределах одного потока.
+     */
+    private static final ThreadLocal<ByteBuffer> outputBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    /**
+     * Количество и размер (в байтах) буферов для записи строк.
+     */
+    private static final int WRITE_BUFFER_COUNT = 2;
+    private static final int WRITE_BUFFER_SIZE = 256 * 1024;
+
+    /**
+     * Буферы для записи строк вне кучи, переиспользуемые между файлами в пределах одного потока.
+     */
+    private static final ThreadLocal<ByteBuffer[]> writeBuffers =
+            ThreadLocal.withInitial(() -> AsyncChannelWriter.allocateBuffers(WRITE_BUFFER_COUNT, WRITE_BUFFER_SIZE));
+
+    /**
+     * Размер файла (в байтах), начиная с которого файл обрабатывается через отображение в память.
+     */
+    private static final long MAPPED_THRESHOLD = 64L * 1024 * 1024;
+
+    /**
+     * Объект для обработки очень больших файлов через отображение в память.
+     */
+    private final MappedFileTransformer mappedTransformer = new MappedFileTransformer();
+
+    /**
+     * Объект для инкрементальной обработки файлов, которые растут в конец.
+     */
+    private final IncrementalFileTransformer incrementalTransformer = new IncrementalFileTransformer();
+
+    /**
+     * Движок параллельного шифрования, либо null, если файлы преобразуются в одном потоке.
+     */
+    private final ParallelCipherEngine engine;
+
+    /**
+     * Конструктор класса FileManager, преобразующего файлы в одном потоке.
+     */
+    public FileManager()
+    {
+        this(null);
+    }
+
+    /**
+     * Конструктор класса FileManager, преобразующего файлы с помощью движка параллельного шифрования.
+     *
+     * @param engine Движок параллельного шифрования, либо null для обработки в одном потоке.
+     */
+    public FileManager(ParallelCipherEngine engine)
+    {
+        this.engine = engine;
+    }
 
     /**
      * Читает данные из файла и возвращает их в виде списка строк.
@@ -35,6 +110,7 @@ public class FileManager
         Validator.validateFileName(fileName);
         Path path = Path.of(fileName);
         Validator.validateFileSize(fileName);
+        long start = Metrics.start();
 
         try (BufferedReader reader = Files.newBufferedReader(path))
         {
@@ -42,6 +118,7 @@ public class FileManager
             {
                 fileData.add(reader.readLine());
             }
+            Metrics.record(Stage.READ, start, Files.size(path));
         }
         catch (IOException e)
         {
@@ -52,14 +129,30 @@ public class FileManager
     }
 
     /**
-     * Записывает данные в файл.
+     * Записывает данные в файл в кодировке UTF-8, завершая каждую строку символом перевода строки.
      * Выполняет валидацию имени файла перед записью.
      *
      * @param fileName Имя файла для записи.
      * @param data Список строк для записи в файл.
      * @return true, если данные успешно записаны в файл, иначе false.
      */
-   public boolean writeData(String fileName, List<String> data)
+    public boolean writeData(String fileName, List<String> data)
+    {
+        return writeData(fileName, data, StandardCharsets.UTF_8, "\n");
+    }
+
+    /**
+     * Записывает данные в файл в заданной кодировке с заданным окончанием строк.
+     * Выполняет валидацию имени файла перед записью. Строки кодируются в один буфер,
+     * пока фоновый поток записывает другой ({@link AsyncChannelWriter}).
+     *
+     * @param fileName Имя файла для записи.
+     * @param data Список строк для записи в файл.
+     * @param charset Кодировка.
+     * @param lineSeparator Окончание строки.
+     * @return true, если данные успешно записаны в файл, иначе false.
+     */
+   public boolean writeData(String fileName, List<String> data, Charset charset, String lineSeparator)
    {
        try
        {
@@ -72,13 +165,14 @@ public class FileManager
        }
        Path path = Path.of(fileName);
 
-       try (BufferedWriter writer = Files.newBufferedWriter(path))
+       try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+               StandardOpenOption.TRUNCATE_EXISTING);
+            AsyncChannelWriter writer = new AsyncChannelWriter(channel, charset, lineSeparator, writeBuffers.get()))
        {
            for (String line : data)
            {
-               writer.write(line + "\n");
+               writer.writeLine(line);
            }
-           writer.flush();
            return true;
        }
        catch (IOException e)
@@ -87,4 +181,231 @@ public class FileManager
            return false;
        }
    }
+
+    /**
+     * Потоково преобразует файл с помощью шифра и записывает результат в другой файл.
+     * Шифр всегда применяется прямо к байтам UTF-8 ({@link Utf8ByteCipher}), без декодирования в символы,
+     * поэтому расход памяти не зависит от размера файла. Окончания строк сохраняются без изменений.
+     * Способ обработки выбирает {@link #transformFile(Path, Path, CompiledCipher)}. Если входной и выходной файлы совпадают, результат сначала пишется
+     * во временный файл, который затем заменяет исходный. При ошибке частичный результат не сохраняется.
+     *
+     * @param inputFileName Имя файла для чтения.
+     * @param outputFileName Имя файла для записи.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @return true, если данные успешно записаны в файл, иначе false.
+     */
+    public boolean transformData(String inputFileName, String outputFileName, CompiledCipher cipher)
+    {
+        try
+        {
+            Validator.validateFileName(inputFileName);
+            Validator.validateFileName(outputFileName);
+        }
+        catch (InvalidFileNameException e)
+        {
+            System.out.println(e.getMessage());
+            return false;
+        }
+        Path input = Path.of(inputFileName);
+        Path output = Path.of(outputFileName);
+
+        Path temporary = null;
+        try
+        {
+            if (Files.isSameFile(input, output))
+            {
+                temporary = Files.createTempFile(output.toAbsolutePath().getParent(), "crypto", ".tmp");
+                transformFile(input, temporary, cipher);
+                Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING);
+            }
+            else
+            {
+                transformFile(input, output, cipher);
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            discard(temporary, temporary == null ? output : null);
+            System.out.print("\nФайл не найден!");
+            return false;
+        }
+    }
+
+    /**
+     * Удаляет незавершенный результат преобразования: временный файл удаляется,
+     * выходной файл обрезается до нулевой длины, чтобы на диске не остался частичный результат.
+     *
+     * @param temporary Временный файл, либо null.
+     * @param output Выходной файл, либо null, если результат записывался во временный файл.
+     */
+    private static void discard(Path temporary, Path output)
+    {
+        try
+        {
+            if (temporary != null)
+            {
+                Files.deleteIfExists(temporary);
+            }
+            if (output != null)
+            {
+                try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE))
+                {
+                    channel.truncate(0);
+                }
+            }
+        }
+        catch (IOException e)
+        {
+            // Сообщение об исходной ошибке уже будет выведено.
+        }
+    }
+
+    /**
+     * Преобразует с помощью шифра только байты, добавленные в конец входного файла после предыдущего вызова,
+     * и дописывает результат в конец выходного файла. Обработанная часть входного файла запоминается
+     * в файле контрольной точки рядом с выходным файлом; если входной файл был заменен или изменился шифр,
+     * файл обрабатывается заново целиком.
+     *
+     * @param inputFileName Имя файла для чтения.
+     * @param outputFileName Имя файла для записи.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @return Количество обработанных байтов входного файла, либо -1, если произошла ошибка.
+     */
+    public long transformAppendedData(String inputFileName, String outputFileName, CompiledCipher cipher)
+    {
+        try
+        {
+            Validator.validateFileName(inputFileName);
+            Validator.validateFileName(outputFileName);
+        }
+        catch (InvalidFileNameException e)
+        {
+            System.out.println(e.getMessage());
+            return -1;
+        }
+        Path input = Path.of(inputFileName);
+        Path output = Path.of(outputFileName);
+
+        try
+        {
+            if (Files.isSameFile(input, output))
+            {
+                System.out.print("\nВходной и выходной файлы не должны совпадать!");
+                return -1;
+            }
+            return incrementalTransformer.transform(input, output, cipher);
+        }
+        catch (IOException e)
+        {
+            System.out.print("\nФайл не найден!");
+            return -1;
+        }
+    }
+
+    /**
+     * Выбирает способ преобразования файла. Во всех случаях шифр применяется к байтам UTF-8 через {@link Utf8ByteCipher}:
+     * <ul>
+     *     <li>если задан движок параллельного шифрования, файл любого размера делится им на блоки байтов,
+     *     и каждый блок преобразуется байтовым шифром в отдельной задаче;</li>
+     *     <li>без движка файлы от {@code MAPPED_THRESHOLD} байт обрабатываются через отображение в память;</li>
+     *     <li>остальные файлы - одним потоком через переиспользуемые буферы.</li>
+     * </ul>
+     * Приложение ({@code MainApp} и пакетный режим) всегда создает FileManager с движком, поэтому второй и третий
+     * способы используются только объектами, созданными конструктором без движка ({@link #FileManager()}), -
+     * сейчас это только бенчмарки.
+     *
+     * @param input Путь к файлу для чтения.
+     * @param output Путь к файлу для записи.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private void transformFile(Path input, Path output, CompiledCipher cipher) throws IOException
+    {
+        if (engine == null && Files.size(input) >= MAPPED_THRESHOLD)
+        {
+            mappedTransformer.transform(input, output, cipher);
+        }
+        else
+        {
+            transformStream(input, output, cipher);
+        }
+    }
+
+    /**
+     * Преобразует файл байтовым шифром: если задан движок параллельного шифрования, передает файл ему
+     * (движок применяет байтовый шифр внутри каждого блока), иначе выполняет один проход
+     * чтение - преобразование - запись через переиспользуемые буферы байтов в текущем потоке.
+     *
+     * @param input Путь к файлу для чтения.
+     * @param output Путь к файлу для записи.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода или файл не является корректным UTF-8.
+     */
+    private void transformStream(Path input, Path output, CompiledCipher cipher) throws IOException
+    {
+        if (engine != null)
+        {
+            try (FileChannel source = FileChannel.open(input, StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                         StandardOpenOption.TRUNCATE_EXISTING))
+            {
+                engine.transform(source, target, cipher);
+            }
+            return;
+        }
+
+        Utf8ByteCipher byteCipher = Utf8ByteCipher.of(cipher);
+        ByteBuffer bytes = inputBuffer.get().clear();
+        ByteBuffer result = outputBuffer.get().clear();
+
+        try (FileChannel source = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            boolean endOfInput = false;
+            while (!endOfInput)
+            {
+                long start = Metrics.start();
+                int read = source.read(bytes);
+                Metrics.record(Stage.READ, start, Math.max(read, 0));
+                endOfInput = read == -1;
+                bytes.flip();
+
+                CoderResult coderResult;
+                while ((coderResult = byteCipher.apply(bytes, result, endOfInput)).isOverflow())
+                {
+                    drain(result, target);
+                }
+                if (coderResult.isError())
+                {
+                    coderResult.throwException();
+                }
+                drain(result, target);
+
+                // Незавершенная последовательность байтов в конце порции обрабатывается вместе со следующей порцией.
+                bytes.compact();
+            }
+        }
+    }
+
+    /**
+     * Записывает содержимое буфера в канал и очищает буфер.
+     *
+     * @param buffer Буфер с данными для записи.
+     * @param channel Канал выходного файла.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException
+    {
+        long start = Metrics.start();
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+        Metrics.record(Stage.WRITE, start, length);
+    }
 }
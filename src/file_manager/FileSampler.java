@@ -0,0 +1,138 @@
+package file_manager;
+
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Класс FileSampler читает из файла фрагменты (окна), равномерно распределенные по всему файлу.
+ * Окна читаются позиционным чтением из канала, без последовательного чтения файла, поэтому время выборки
+ * зависит только от количества и размера окон, а не от размера файла.
+ */
+public class FileSampler
+{
+    /**
+     * Максимальная длина UTF-8 последовательности одного символа (в байтах).
+     */
+    private static final int MAX_SEQUENCE_LENGTH = 4;
+
+    /**
+     * Читает окна из файла. Если окна покрывают весь файл, файл читается целиком одним окном;
+     * файл больше {@code Integer.MAX_VALUE} байт не помещается в одно окно и всегда читается окнами.
+     * Неполные UTF-8 последовательности на границах окон отбрасываются.
+     *
+     * @param path Путь к файлу.
+     * @param windowCount Количество окон.
+     * @param windowSize Размер окна (в байтах).
+     * @return Список строк, по одной строке на окно.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public List<String> sample(Path path, int windowCount, int windowSize) throws IOException
+    {
+        List<String> windows = new ArrayList<>(windowCount);
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            if ((long) windowCount * windowSize >= size && size <= Integer.MAX_VALUE)
+            {
+                windowCount = 1;
+                windowSize = (int) size;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate(windowSize);
+            long step = windowCount == 1 ? 0 : (size - windowSize) / (windowCount - 1);
+
+            for (int i = 0; i < windowCount; i++)
+            {
+                long start = Metrics.start();
+                buffer.clear();
+                long position = i * step;
+                int count = 0;
+                while (buffer.hasRemaining() && count != -1)
+                {
+                    count = channel.read(buffer, position + buffer.position());
+                }
+                buffer.flip();
+                Metrics.record(Stage.READ, start, buffer.limit());
+                trimToCharacters(buffer, position == 0, position + buffer.limit() >= size);
+                windows.add(decoder.reset().decode(buffer).toString());
+            }
+        }
+
+        return windows;
+    }
+
+    /**
+     * Отбрасывает байты неполных UTF-8 последовательностей в начале и в конце окна.
+     *
+     * @param buffer Байты окна.
+     * @param fileStart true, если окно начинается с начала файла.
+     * @param fileEnd true, если окно заканчивается концом файла.
+     */
+    private void trimToCharacters(ByteBuffer buffer, boolean fileStart, boolean fileEnd)
+    {
+        if (!fileStart)
+        {
+            // Пропускаем байты продолжения (10xxxxxx) до начала следующего символа.
+            int start = buffer.position();
+            while (start < buffer.limit() && start - buffer.position() < MAX_SEQUENCE_LENGTH
+                    && (buffer.get(start) & 0xC0) == 0x80)
+            {
+                start++;
+            }
+            buffer.position(start);
+        }
+
+        if (!fileEnd)
+        {
+            // Ищем начало последнего символа и отбрасываем его, если он записан не полностью.
+            int last = buffer.limit() - 1;
+            while (last > buffer.position() && buffer.limit() - last < MAX_SEQUENCE_LENGTH
+                    && (buffer.get(last) & 0xC0) == 0x80)
+            {
+                last--;
+            }
+            if (last >= buffer.position() && last + sequenceLength(buffer.get(last)) > buffer.limit())
+            {
+                buffer.limit(last);
+            }
+        }
+    }
+
+    /**
+     * Определяет длину UTF-8 последовательности по ее первому байту.
+     *
+     * @param lead Первый байт последовательности.
+     * @return Длина последовательности (в байтах).
+     */
+    private int sequenceLength(byte lead)
+    {
+        if ((lead & 0x80) == 0)
+        {
+            return 1;
+        }
+        if ((lead & 0xE0) == 0xC0)
+        {
+            return 2;
+        }
+        if ((lead & 0xF0) == 0xE0)
+        {
+            return 3;
+        }
+        return MAX_SEQUENCE_LENGTH;
+    }
+}
@@ -0,0 +1,311 @@
+package file_manager;
+
+import cipher.CompiledCipher;
+import cipher.Utf8ByteCipher;
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.zip.CRC32;
+
+/**
+ * Класс IncrementalFileTransformer преобразует файлы, которые только растут в конец (например, журналы),
+ * обрабатывая при каждом запуске только добавленные байты.
+ * Рядом с выходным файлом хранится небольшой файл контрольной точки ({@code <выходной файл>.checkpoint}):
+ * сколько байтов входного файла уже обработано, какой размер при этом имел выходной файл, контрольная сумма
+ * начала входного файла и контрольная сумма шифра. Новый хвост входного файла преобразуется {@link Utf8ByteCipher}
+ * и дописывается в конец выходного файла, поэтому повторный запуск для файла в 50 ГБ, который вырос на 10 МБ,
+ * читает и записывает только 10 МБ.
+ * <p>
+ * Файл обрабатывается заново целиком, если контрольной точки нет, если входной файл стал короче обработанной части
+ * или его начало изменилось (файл был заменен при ротации), если выходной файл короче записанного в контрольной точке
+ * или если изменился шифр. Незавершенная UTF-8 последовательность в конце входного файла (строка, которая еще
+ * дописывается) не обрабатывается и будет обработана при следующем запуске.
+ */
+public class IncrementalFileTransformer
+{
+    /**
+     * Размер буфера (в байтах) для чтения и записи.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Количество байтов от начала входного файла, по которым проверяется, что файл не был заменен.
+     */
+    private static final int HEAD_SIZE = 4096;
+
+    /**
+     * Расширение файла контрольной точки.
+     */
+    private static final String CHECKPOINT_SUFFIX = ".checkpoint";
+
+    /**
+     * Имена параметров контрольной точки.
+     */
+    private static final String INPUT_OFFSET = "input.offset";
+    private static final String INPUT_HEAD = "input.head";
+    private static final String OUTPUT_SIZE = "output.size";
+    private static final String CIPHER = "cipher";
+
+    /**
+     * Буфер для чтения, переиспользуемый между файлами в пределах одного потока.
+     */
+    private static final ThreadLocal<ByteBuffer> inputBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    /**
+     * Буфер для записи, переиспользуемый между файлами в пределах одного потока.
+     */
+    private static final ThreadLocal<ByteBuffer> outputBuffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(BUFFER_SIZE));
+
+    /**
+     * Преобразует байты входного файла, добавленные после предыдущего запуска, и дописывает результат
+     * в выходной файл, после чего обновляет контрольную точку.
+     *
+     * @param input Путь к файлу для чтения.
+     * @param output Путь к файлу для записи. Файл создается, если его нет.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @return Количество обработанных байтов входного файла.
+     * @throws IOException если произошла ошибка ввода-вывода или файл не является корректным UTF-8.
+     */
+    public long transform(Path input, Path output, CompiledCipher cipher) throws IOException
+    {
+        Path checkpointPath = checkpointPath(output);
+        long cipherChecksum = checksum(cipher);
+
+        try (FileChannel source = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(output, StandardOpenOption.WRITE, StandardOpenOption.CREATE))
+        {
+            // Размер фиксируется в начале: байты, дописанные во время обработки, достанутся следующему запуску.
+            long size = source.size();
+            Checkpoint checkpoint = readCheckpoint(checkpointPath);
+
+            long inputOffset = 0;
+            long outputSize = 0;
+            if (checkpoint != null && checkpoint.cipher() == cipherChecksum && checkpoint.inputOffset() <= size
+                    && checkpoint.outputSize() <= target.size()
+                    && checkpoint.inputHead() == head(source, checkpoint.inputOffset()))
+            {
+                inputOffset = checkpoint.inputOffset();
+                outputSize = checkpoint.outputSize();
+            }
+
+            // Байты после записанного размера остались от прерванного запуска и будут записаны заново.
+            target.truncate(outputSize);
+            long processed = transformTail(source, inputOffset, size, target, outputSize, Utf8ByteCipher.of(cipher));
+            target.force(false);
+
+            long newOffset = inputOffset + processed;
+            writeCheckpoint(checkpointPath, new Checkpoint(newOffset, head(source, newOffset), target.size(), cipherChecksum));
+            return processed;
+        }
+    }
+
+    /**
+     * Возвращает путь к файлу контрольной точки для выходного файла.
+     *
+     * @param output Путь к выходному файлу.
+     * @return Путь к файлу контрольной точки.
+     */
+    public static Path checkpointPath(Path output)
+    {
+        return output.resolveSibling(output.getFileName() + CHECKPOINT_SUFFIX);
+    }
+
+    /**
+     * Преобразует участок входного файла и дописывает результат в выходной файл.
+     * Незавершенная последовательность в конце участка не обрабатывается.
+     *
+     * @param source Канал входного файла.
+     * @param from Позиция первого необработанного байта.
+     * @param to Размер входного файла на момент запуска.
+     * @param target Канал выходного файла.
+     * @param targetPosition Позиция, с которой дописывается результат.
+     * @param byteCipher Байтовый шифр.
+     * @return Количество обработанных байтов.
+     * @throws IOException если произошла ошибка ввода-вывода или файл не является корректным UTF-8.
+     */
+    private static long transformTail(FileChannel source, long from, long to, FileChannel target, long targetPosition,
+                                      Utf8ByteCipher byteCipher) throws IOException
+    {
+        ByteBuffer bytes = inputBuffer.get().clear();
+        ByteBuffer result = outputBuffer.get().clear();
+        long readPosition = from;
+        long writePosition = targetPosition;
+
+        while (readPosition < to)
+        {
+            bytes.limit((int) Math.min(bytes.capacity(), bytes.position() + to - readPosition));
+            long start = Metrics.start();
+            int read = source.read(bytes, readPosition);
+            Metrics.record(Stage.READ, start, Math.max(read, 0));
+            if (read == -1)
+            {
+                break;
+            }
+            readPosition += read;
+            bytes.flip();
+
+            CoderResult coderResult;
+            while ((coderResult = byteCipher.apply(bytes, result, false)).isOverflow())
+            {
+                writePosition = drain(result, target, writePosition);
+            }
+            if (coderResult.isError())
+            {
+                coderResult.throwException();
+            }
+            writePosition = drain(result, target, writePosition);
+
+            // Незавершенная последовательность байтов в конце порции обрабатывается вместе со следующей порцией.
+            bytes.compact();
+        }
+
+        return readPosition - bytes.position() - from;
+    }
+
+    /**
+     * Записывает содержимое буфера в канал с заданной позиции и очищает буфер.
+     *
+     * @param buffer Буфер с данными для записи.
+     * @param channel Канал выходного файла.
+     * @param position Позиция в файле.
+     * @return Позиция после записанных байтов.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static long drain(ByteBuffer buffer, FileChannel channel, long position) throws IOException
+    {
+        long start = Metrics.start();
+        buffer.flip();
+        int length = buffer.remaining();
+        while (buffer.hasRemaining())
+        {
+            position += channel.write(buffer, position);
+        }
+        buffer.clear();
+        Metrics.record(Stage.WRITE, start, length);
+        return position;
+    }
+
+    /**
+     * Вычисляет контрольную сумму начала входного файла, по которой определяется, что файл не был заменен.
+     *
+     * @param source Канал входного файла.
+     * @param offset Количество обработанных байтов.
+     * @return Контрольная сумма первых {@code min(offset, HEAD_SIZE)} байтов.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static long head(FileChannel source, long offset) throws IOException
+    {
+        ByteBuffer bytes = ByteBuffer.allocate((int) Math.min(offset, HEAD_SIZE));
+        while (bytes.hasRemaining() && source.read(bytes, bytes.position()) != -1)
+        {
+            // Читаем, пока буфер не заполнится.
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes.flip());
+        return crc.getValue();
+    }
+
+    /**
+     * Вычисляет контрольную сумму шифра по результату для каждого символа,
+     * чтобы изменение ключа или профиля языка приводило к полной обработке файла.
+     *
+     * @param cipher Шифр.
+     * @return Контрольная сумма шифра.
+     */
+    private static long checksum(CompiledCipher cipher)
+    {
+        CRC32 crc = new CRC32();
+        for (int letter = Character.MIN_VALUE; letter <= Character.MAX_VALUE; letter++)
+        {
+            char result = cipher.apply((char) letter);
+            crc.update(result >>> 8);
+            crc.update(result);
+        }
+        return crc.getValue();
+    }
+
+    /**
+     * Читает контрольную точку.
+     *
+     * @param path Путь к файлу контрольной точки.
+     * @return Контрольная точка, либо null, если файла нет или он поврежден.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static Checkpoint readCheckpoint(Path path) throws IOException
+    {
+        if (Files.notExists(path))
+        {
+            return null;
+        }
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path))
+        {
+            properties.load(reader);
+            return new Checkpoint(Long.parseLong(properties.getProperty(INPUT_OFFSET)),
+                    Long.parseLong(properties.getProperty(INPUT_HEAD)),
+                    Long.parseLong(properties.getProperty(OUTPUT_SIZE)),
+                    Long.parseLong(properties.getProperty(CIPHER)));
+        }
+        catch (IllegalArgumentException e)
+        {
+            // Поврежденная контрольная точка означает, что файл нужно обработать заново.
+            return null;
+        }
+    }
+
+    /**
+     * Записывает контрольную точку во временный файл и заменяет им предыдущую,
+     * чтобы прерванная запись не оставила поврежденную контрольную точку.
+     * При ошибке временный файл удаляется.
+     *
+     * @param path Путь к файлу контрольной точки.
+     * @param checkpoint Контрольная точка.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static void writeCheckpoint(Path path, Checkpoint checkpoint) throws IOException
+    {
+        Properties properties = new Properties();
+        properties.setProperty(INPUT_OFFSET, Long.toString(checkpoint.inputOffset()));
+        properties.setProperty(INPUT_HEAD, Long.toString(checkpoint.inputHead()));
+        properties.setProperty(OUTPUT_SIZE, Long.toString(checkpoint.outputSize()));
+        properties.setProperty(CIPHER, Long.toString(checkpoint.cipher()));
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), "checkpoint", ".tmp");
+        try
+        {
+            try (Writer writer = Files.newBufferedWriter(temporary))
+            {
+                properties.store(writer, null);
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Контрольная точка инкрементальной обработки.
+     *
+     * @param inputOffset Количество обработанных байтов входного файла.
+     * @param inputHead Контрольная сумма начала обработанной части входного файла.
+     * @param outputSize Размер выходного файла после обработки.
+     * @param cipher Контрольная сумма шифра.
+     */
+    private record Checkpoint(long inputOffset, long inputHead, long outputSize, long cipher)
+    {
+    }
+}
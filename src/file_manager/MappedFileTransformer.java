@@ -0,0 +1,221 @@
+package file_manager;
+
+import cipher.CompiledCipher;
+import cipher.Utf8ByteCipher;
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CoderResult;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Класс MappedFileTransformer преобразует очень большие файлы через отображение в память ({@link FileChannel#map}).
+ * Входной и выходной файлы отображаются областями фиксированного размера, а шифр применяется к байтам UTF-8
+ * прямо из отображенной области входного файла в область выходного файла ({@link Utf8ByteCipher}), без декодирования
+ * в символы и обратного кодирования. Содержимое файла целиком в кучу Java не попадает.
+ * Преобразование выполняется в одном потоке; используется, когда движок параллельного шифрования не задан.
+ * <p>
+ * Область выходного файла отображается размером с оставшуюся часть входной области (но не меньше
+ * {@code MIN_OUTPUT_REGION}), поэтому файл не растягивается далеко за конец результата, а лишний хвост
+ * обрезается в конце. Обработанные области освобождаются сразу, не дожидаясь сборки мусора ({@link MappedRegions});
+ * если освобождение недоступно, они освобождаются при сборке мусора.
+ * <p>
+ * Метрика чтения ({@link Stage#READ}) охватывает отображение входной области и загрузку ее страниц в память
+ * ({@link MappedByteBuffer#load()}), метрика записи ({@link Stage#WRITE}) - освобождение заполненной
+ * выходной области; сброс ее страниц на диск выполняет операционная система.
+ */
+public class MappedFileTransformer
+{
+    /**
+     * Размер отображаемой области (в байтах).
+     */
+    private static final int REGION_SIZE = 64 * 1024 * 1024;
+
+    /**
+     * Минимальный размер отображаемой области выходного файла (в байтах).
+     */
+    private static final int MIN_OUTPUT_REGION = 64 * 1024;
+
+    /**
+     * Преобразует файл с помощью шифра, записывая результат в другой файл.
+     * Окончания строк и все символы вне алфавита сохраняются без изменений.
+     *
+     * @param input Путь к файлу для чтения.
+     * @param output Путь к файлу для записи. Файл перезаписывается; при ошибке он остается пустым.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода или файл не является корректным UTF-8.
+     */
+    public void transform(Path input, Path output, CompiledCipher cipher) throws IOException
+    {
+        Utf8ByteCipher byteCipher = Utf8ByteCipher.of(cipher);
+
+        try (FileChannel source = FileChannel.open(input, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(output, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                     StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            long size = source.size();
+            long inputPosition = 0;
+            MappedByteBuffer region = mapInput(source, 0, Math.min(REGION_SIZE, size));
+            MappedOutput mappedOutput = new MappedOutput(target);
+
+            try
+            {
+                while (true)
+                {
+                    boolean lastRegion = inputPosition + region.limit() >= size;
+                    mappedOutput.write(byteCipher, region, lastRegion);
+                    if (lastRegion)
+                    {
+                        break;
+                    }
+                    // Незавершенная последовательность байтов в конце области обрабатывается вместе со следующей.
+                    inputPosition += region.position();
+                    MappedRegions.unmap(region);
+                    region = mapInput(source, inputPosition, Math.min(REGION_SIZE, size - inputPosition));
+                }
+
+                mappedOutput.finish();
+            }
+            catch (IOException | RuntimeException e)
+            {
+                // Дополненный нулями результат не должен остаться на диске.
+                mappedOutput.close();
+                target.truncate(0);
+                throw e;
+            }
+            finally
+            {
+                MappedRegions.unmap(region);
+            }
+        }
+    }
+
+    /**
+     * Отображает область входного файла и загружает ее страницы в память.
+     *
+     * @param channel Канал входного файла.
+     * @param position Позиция начала области в файле.
+     * @param size Размер области.
+     * @return Отображенная область.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static MappedByteBuffer mapInput(FileChannel channel, long position, long size) throws IOException
+    {
+        long start = Metrics.start();
+        MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+        region.load();
+        Metrics.record(Stage.READ, start, size);
+        return region;
+    }
+
+    /**
+     * Выходной файл, отображаемый в память последовательными областями.
+     */
+    private static class MappedOutput
+    {
+        /**
+         * Канал выходного файла.
+         */
+        private final FileChannel channel;
+
+        /**
+         * Текущая отображенная область, либо null, если область еще не отображена.
+         */
+        private MappedByteBuffer region;
+
+        /**
+         * Позиция начала текущей области в файле.
+         */
+        private long position;
+
+        /**
+         * Конструктор класса MappedOutput.
+         *
+         * @param channel Канал выходного файла.
+         */
+        MappedOutput(FileChannel channel)
+        {
+            this.channel = channel;
+        }
+
+        /**
+         * Преобразует байты шифром в отображенную область, переходя к следующей области при ее заполнении.
+         *
+         * @param cipher Байтовый шифр.
+         * @param bytes Исходные байты.
+         * @param endOfInput true, если больше байтов не будет.
+         * @throws IOException если произошла ошибка ввода-вывода или байты не являются корректным UTF-8.
+         */
+        void write(Utf8ByteCipher cipher, ByteBuffer bytes, boolean endOfInput) throws IOException
+        {
+            if (region == null)
+            {
+                nextRegion(bytes.remaining());
+            }
+            CoderResult result;
+            while ((result = cipher.apply(bytes, region, endOfInput)).isOverflow())
+            {
+                nextRegion(bytes.remaining());
+            }
+            if (result.isError())
+            {
+                result.throwException();
+            }
+        }
+
+        /**
+         * Обрезает файл по фактически записанному размеру.
+         *
+         * @throws IOException если произошла ошибка ввода-вывода.
+         */
+        void finish() throws IOException
+        {
+            release();
+            channel.truncate(position);
+        }
+
+        /**
+         * Освобождает текущую область без учета записанных в нее байтов (при ошибке).
+         */
+        void close()
+        {
+            MappedRegions.unmap(region);
+            region = null;
+        }
+
+        /**
+         * Освобождает заполненную текущую область и сдвигает позицию начала следующей области.
+         */
+        private void release()
+        {
+            if (region == null)
+            {
+                return;
+            }
+            long start = Metrics.start();
+            int length = region.position();
+            position += length;
+            MappedRegions.unmap(region);
+            region = null;
+            Metrics.record(Stage.WRITE, start, length);
+        }
+
+        /**
+         * Освобождает текущую область и отображает следующую область выходного файла.
+         *
+         * @param remaining Количество еще не преобразованных байтов текущей входной области.
+         * @throws IOException если произошла ошибка ввода-вывода.
+         */
+        private void nextRegion(int remaining) throws IOException
+        {
+            release();
+            int size = Math.min(REGION_SIZE, Math.max(MIN_OUTPUT_REGION, remaining));
+            region = channel.map(FileChannel.MapMode.READ_WRITE, position, size);
+        }
+    }
+}
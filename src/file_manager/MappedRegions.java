@@ -0,0 +1,83 @@
+package file_manager;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+
+/**
+ * Класс MappedRegions освобождает области файлов, отображенные в память ({@link java.nio.channels.FileChannel#map}),
+ * сразу после их обработки.
+ * <p>
+ * Стандартного способа освободить {@link MappedByteBuffer} нет: отображение снимается, только когда сборщик мусора
+ * соберет буфер. При обработке файлов в десятки гигабайт областями по 16-64 МБ это означает, что отображенными
+ * остаются гигабайты адресного пространства и открытые отображения файла, пока не случится сборка мусора.
+ * Поэтому используется {@code sun.misc.Unsafe.invokeCleaner} из модуля {@code jdk.unsupported}: этот метод
+ * оставлен в JDK именно для такого применения, доступен без флагов {@code --add-opens} и проверяет, что буфер
+ * является прямым и не является срезом или копией. Метод ищется через отражение один раз; если он недоступен
+ * (другая JVM или запрет отражения), освобождение ничего не делает и области освобождаются при сборке мусора,
+ * как без этого класса, - на корректность результата это не влияет.
+ * <p>
+ * После освобождения к области и ее копиям обращаться нельзя: вызывающий код освобождает только собственные
+ * области, которые больше не используются.
+ */
+final class MappedRegions
+{
+    /**
+     * Метод {@code sun.misc.Unsafe.invokeCleaner}, освобождающий отображенную область, либо null, если он недоступен.
+     */
+    private static final MethodHandle INVOKE_CLEANER = findCleaner();
+
+    /**
+     * Закрытый конструктор: класс содержит только статические методы.
+     */
+    private MappedRegions()
+    {
+    }
+
+    /**
+     * Освобождает отображенную область. После вызова к области обращаться нельзя.
+     * Если освобождение недоступно, область освободится при сборке мусора.
+     *
+     * @param region Отображенная область, либо null.
+     */
+    static void unmap(MappedByteBuffer region)
+    {
+        if (INVOKE_CLEANER == null || region == null)
+        {
+            return;
+        }
+        try
+        {
+            INVOKE_CLEANER.invokeExact((ByteBuffer) region);
+        }
+        catch (Throwable e)
+        {
+            // Область освободится при сборке мусора.
+        }
+    }
+
+    /**
+     * Находит метод освобождения отображенных областей.
+     *
+     * @return Метод {@code invokeCleaner}, привязанный к экземпляру Unsafe, либо null, если он недоступен.
+     */
+    private static MethodHandle findCleaner()
+    {
+        try
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Field field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            return MethodHandles.lookup()
+                    .findVirtual(unsafeClass, "invokeCleaner", MethodType.methodType(void.class, ByteBuffer.class))
+                    .bindTo(field.get(null));
+        }
+        catch (ReflectiveOperationException | RuntimeException e)
+        {
+            return null;
+        }
+    }
+}
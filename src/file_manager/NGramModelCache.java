@@ -0,0 +1,62 @@
+package file_manager;
+
+import cipher.NGramModel;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/**
+ * Класс NGramModelCache выдает модели триграмм для репрезентативных текстов.
+ * Путь может указывать как на готовый файл модели (с расширением {@code .ngm}), так и на текст:
+ * модель текста строится один раз потоковым чтением текста, сохраняется рядом с ним в файле {@code .ngm}
+ * и при следующих запусках загружается из него, если текст с тех пор не изменился ({@link SidecarCache}).
+ */
+public class NGramModelCache
+{
+    /**
+     * Расширение файла модели.
+     */
+    public static final String MODEL_EXTENSION = ".ngm";
+
+    /**
+     * Максимальное количество моделей в памяти по умолчанию.
+     */
+    private static final int DEFAULT_CAPACITY = 4;
+
+    /**
+     * Модели, сохраненные рядом с текстами и в памяти.
+     */
+    private final SidecarCache<NGramModel> models;
+
+    /**
+     * Конструктор класса NGramModelCache с емкостью по умолчанию.
+     */
+    public NGramModelCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Конструктор класса NGramModelCache.
+     *
+     * @param capacity Максимальное количество моделей в памяти.
+     */
+    public NGramModelCache(int capacity)
+    {
+        this.models = new SidecarCache<>(MODEL_EXTENSION, NGramModel::load, NGramModel::train, NGramModel::write,
+                NGramModel::source, "модель", capacity);
+    }
+
+    /**
+     * Возвращает модель триграмм для файла модели или репрезентативного текста.
+     *
+     * @param source Путь к файлу модели или к репрезентативному тексту.
+     * @return Модель триграмм.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл модели поврежден.
+     */
+    public NGramModel get(Path source) throws IOException
+    {
+        return models.get(source);
+    }
+}
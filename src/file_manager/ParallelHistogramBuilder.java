@@ -0,0 +1,344 @@
+package file_manager;
+
+import cipher.LetterHistogram;
+import metrics.Metrics;
+import metrics.Stage;
+import profile.AlphabetProfile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Класс ParallelHistogramBuilder строит гистограмму символов алфавита по файлу в UTF-8 в несколько потоков.
+ * Файл делится на участки, каждый участок отображается в память и подсчитывается отдельной задачей ForkJoin
+ * в собственный массив {@code int[]}, после чего частичные гистограммы складываются попарно при объединении задач.
+ * Символы декодируются прямо из байтов, строки не создаются, поэтому скорость ограничена скоростью чтения
+ * диска, а не одним ядром процессора.
+ * <p>
+ * Участок начинается с первого байта, который не является продолжением UTF-8 последовательности,
+ * и включает последовательности, начавшиеся до его конца, поэтому каждый символ подсчитывается ровно один раз.
+ * Некорректные байты считаются символами вне алфавита, как при декодировании с заменой: начало
+ * последовательности вместе с допустимыми байтами продолжения, за которыми последовательность обрывается,
+ * считается одним символом, а байт, который не может начинать последовательность, - отдельным символом.
+ */
+public class ParallelHistogramBuilder
+{
+    /**
+     * Размер участка (в байтах), подсчитываемого одной задачей.
+     */
+    private static final long REGION_SIZE = 16L * 1024 * 1024;
+
+    /**
+     * Максимальная длина UTF-8 последовательности.
+     */
+    private static final int MAX_SEQUENCE = 4;
+
+    /**
+     * Пул потоков, на котором подсчитываются участки.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Конструктор класса ParallelHistogramBuilder, использующего общий ForkJoin-пул.
+     */
+    public ParallelHistogramBuilder()
+    {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Конструктор класса ParallelHistogramBuilder.
+     *
+     * @param pool Пул потоков, на котором подсчитываются участки.
+     */
+    public ParallelHistogramBuilder(ForkJoinPool pool)
+    {
+        this.pool = pool;
+    }
+
+    /**
+     * Строит гистограмму символов алфавита профиля по всему файлу.
+     *
+     * @param path Путь к файлу в UTF-8.
+     * @param profile Профиль языка.
+     * @return Гистограмма символов по позициям алфавита и количество символов без переводов строк.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public LetterHistogram build(Path path, AlphabetProfile profile) throws IOException
+    {
+        long start = Metrics.start();
+        int[] positions = positionTable(profile);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            long size = channel.size();
+            long[] counts = pool.invoke(new RegionTask(channel, positions, profile.size(), size, 0, size));
+
+            Metrics.record(Stage.READ, start, size);
+            long[] letters = new long[profile.size()];
+            System.arraycopy(counts, 0, letters, 0, letters.length);
+            return new LetterHistogram(letters, counts[letters.length]);
+        }
+        catch (UncheckedIOException e)
+        {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Строит таблицу позиций алфавита, индексируемую кодом символа.
+     *
+     * @param profile Профиль языка.
+     * @return Таблица, где для символов вне алфавита записано -1.
+     */
+    private static int[] positionTable(AlphabetProfile profile)
+    {
+        int max = 0;
+        for (int i = 0; i < profile.size(); i++)
+        {
+            max = Math.max(max, profile.letterAt(i));
+        }
+
+        int[] positions = new int[max + 1];
+        for (int c = 0; c < positions.length; c++)
+        {
+            positions[c] = profile.indexOf((char) c);
+        }
+        return positions;
+    }
+
+    /**
+     * Задача подсчета участка файла. Участок больше {@code REGION_SIZE} делится пополам,
+     * результаты половин складываются.
+     */
+    private static class RegionTask extends RecursiveTask<long[]>
+    {
+        /** Канал файла. */
+        private final transient FileChannel channel;
+
+        /** Позиции алфавита по коду символа. */
+        private final int[] positions;
+
+        /** Размер алфавита. */
+        private final int alphabetSize;
+
+        /** Размер файла. */
+        private final long fileSize;
+
+        /** Начало и конец участка. */
+        private final long from;
+        private final long to;
+
+        /**
+         * Конструктор задачи.
+         *
+         * @param channel Канал файла.
+         * @param positions Позиции алфавита по коду символа.
+         * @param alphabetSize Размер алфавита.
+         * @param fileSize Размер файла.
+         * @param from Начало участка.
+         * @param to Конец участка.
+         */
+        RegionTask(FileChannel channel, int[] positions, int alphabetSize, long fileSize, long from, long to)
+        {
+            this.channel = channel;
+            this.positions = positions;
+            this.alphabetSize = alphabetSize;
+            this.fileSize = fileSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        /**
+         * Подсчитывает участок или делит его пополам.
+         *
+         * @return Количество символов по позициям алфавита и последним элементом - количество символов без переводов строк.
+         */
+        @Override
+        protected long[] compute()
+        {
+            if (to - from > REGION_SIZE)
+            {
+                long middle = from + (to - from) / 2;
+                RegionTask left = new RegionTask(channel, positions, alphabetSize, fileSize, from, middle);
+                RegionTask right = new RegionTask(channel, positions, alphabetSize, fileSize, middle, to);
+                left.fork();
+                long[] counts = right.compute();
+                long[] leftCounts = left.join();
+                for (int i = 0; i < counts.length; i++)
+                {
+                    counts[i] += leftCounts[i];
+                }
+                return counts;
+            }
+
+            try
+            {
+                int[] counts = count();
+                long[] result = new long[counts.length];
+                for (int i = 0; i < counts.length; i++)
+                {
+                    result[i] = counts[i];
+                }
+                return result;
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        /**
+         * Подсчитывает символы участка, отображенного в память.
+         *
+         * @return Количество символов по позициям алфавита и последним элементом - количество символов без переводов строк.
+         * @throws IOException если не удалось отобразить участок.
+         */
+        private int[] count() throws IOException
+        {
+            long mappedEnd = Math.min(fileSize, to + MAX_SEQUENCE - 1);
+            MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, from, mappedEnd - from);
+            try
+            {
+                return count(region);
+            }
+            finally
+            {
+                // Участок освобождается сразу, не дожидаясь сборки мусора (см. MappedRegions).
+                MappedRegions.unmap(region);
+            }
+        }
+
+        /**
+         * Подсчитывает символы отображенного участка.
+         *
+         * @param region Участок с захватом до {@code MAX_SEQUENCE - 1} байтов после его конца.
+         * @return Количество символов по позициям алфавита и последним элементом - количество символов без переводов строк.
+         */
+        private int[] count(MappedByteBuffer region)
+        {
+            int[] counts = new int[alphabetSize + 1];
+            int[] positions = this.positions;
+            int end = (int) (to - from);
+            int limit = region.limit();
+            int characters = 0;
+            int i = 0;
+
+            // Байты продолжения в начале участка относятся к символу предыдущего участка.
+            while (from > 0 && i < end && (region.get(i) & 0xC0) == 0x80)
+            {
+                i++;
+            }
+
+            while (i < end)
+            {
+                int first = region.get(i) & 0xFF;
+                int codePoint;
+                int length = sequenceLength(first);
+                int valid = length <= 1 ? 1 : validBytes(region, i, first, length, limit);
+                if (length == 1)
+                {
+                    codePoint = first;
+                }
+                else if (length == 0 || valid < length)
+                {
+                    // Некорректная последовательность (начало без нужных байтов продолжения или лишний байт)
+                    // считается одним символом, как при декодировании с заменой.
+                    codePoint = -1;
+                    length = valid;
+                }
+                else if (length == 2)
+                {
+                    codePoint = (first & 0x1F) << 6 | (region.get(i + 1) & 0x3F);
+                }
+                else if (length == 3)
+                {
+                    codePoint = (first & 0x0F) << 12 | (region.get(i + 1) & 0x3F) << 6 | (region.get(i + 2) & 0x3F);
+                }
+                else
+                {
+                    // Четырехбайтовые символы (два символа UTF-16) не входят в алфавит.
+                    codePoint = -1;
+                    characters++;
+                }
+
+                if (codePoint >= 0 && codePoint < positions.length && positions[codePoint] >= 0)
+                {
+                    counts[positions[codePoint]]++;
+                }
+                characters += codePoint == '\n' || codePoint == '\r' ? 0 : 1;
+                i += length;
+            }
+
+            counts[alphabetSize] = characters;
+            return counts;
+        }
+
+        /**
+         * Определяет длину UTF-8 последовательности по первому байту.
+         *
+         * @param first Первый байт последовательности.
+         * @return Длина последовательности, либо 0, если байт не может начинать последовательность.
+         */
+        private static int sequenceLength(int first)
+        {
+            if (first < 0x80)
+            {
+                return 1;
+            }
+            if (first < 0xC2)
+            {
+                return 0;
+            }
+            if (first < 0xE0)
+            {
+                return 2;
+            }
+            if (first < 0xF0)
+            {
+                return 3;
+            }
+            return first < 0xF5 ? MAX_SEQUENCE : 0;
+        }
+
+        /**
+         * Подсчитывает начальные байты последовательности, которые могут входить в корректную последовательность:
+         * первый байт и следующие за ним байты продолжения ({@code 10xxxxxx}). Для второго байта дополнительно
+         * исключаются избыточная длина кодирования, суррогатные коды и коды больше {@code U+10FFFF}.
+         *
+         * @param region Отображенный участок.
+         * @param index Позиция первого байта последовательности.
+         * @param first Первый байт последовательности.
+         * @param length Длина последовательности по первому байту.
+         * @param limit Конец отображенной части файла.
+         * @return Количество допустимых байтов от 1 до {@code length}.
+         */
+        private static int validBytes(MappedByteBuffer region, int index, int first, int length, int limit)
+        {
+            int valid = 1;
+            while (valid < length && index + valid < limit)
+            {
+                int next = region.get(index + valid) & 0xFF;
+                int low = 0x80;
+                int high = 0xBF;
+                if (valid == 1)
+                {
+                    low = first == 0xE0 ? 0xA0 : first == 0xF0 ? 0x90 : low;
+                    high = first == 0xED ? 0x9F : first == 0xF4 ? 0x8F : high;
+                }
+                if (next < low || next > high)
+                {
+                    break;
+                }
+                valid++;
+            }
+            return valid;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package file_manager;
+
+import cipher.DecrypterByAnalytics;
+import exceptions.NoCoincidenceException;
+import profile.AlphabetProfile;
+import profile.ProfileRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Класс ProfileDetector определяет профиль языка зашифрованного текста до поиска ключа.
+ * Шифр Цезаря переставляет символы только внутри алфавита, поэтому набор символов шифротекста совпадает
+ * с набором символов исходного текста. Для каждого зарегистрированного профиля вычисляется покрытие -
+ * доля символов выборки, входящих в алфавит профиля. Выбирается профиль с наибольшим покрытием; если несколько
+ * профилей покрывают выборку одинаково (например, текст без букв, различающих русский и украинский алфавиты),
+ * выбирается профиль, частоты букв которого лучше соответствуют выборке.
+ */
+public class ProfileDetector
+{
+    /**
+     * Количество окон выборки.
+     */
+    private static final int WINDOW_COUNT = 16;
+
+    /**
+     * Размер окна (в байтах).
+     */
+    private static final int WINDOW_SIZE = 4 * 1024;
+
+    /**
+     * Разница покрытий, в пределах которой профили считаются равными.
+     */
+    private static final double COVERAGE_TOLERANCE = 0.001;
+
+    /**
+     * Объект для чтения окон из файла.
+     */
+    private final FileSampler sampler = new FileSampler();
+
+    /**
+     * Реестр профилей, среди которых выбирается профиль.
+     */
+    private final ProfileRegistry profileRegistry;
+
+    /**
+     * Аналитические дешифраторы, построенные для профилей.
+     */
+    private final Map<AlphabetProfile, DecrypterByAnalytics> analytics = new ConcurrentHashMap<>();
+
+    /**
+     * Конструктор класса ProfileDetector.
+     *
+     * @param profileRegistry Реестр профилей, среди которых выбирается профиль.
+     */
+    public ProfileDetector(ProfileRegistry profileRegistry)
+    {
+        this.profileRegistry = profileRegistry;
+    }
+
+    /**
+     * Определяет профиль языка файла по выборке из него.
+     *
+     * @param path Путь к файлу.
+     * @return Наиболее вероятный профиль.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws NoCoincidenceException если ни один профиль не подходит к выборке.
+     */
+    public AlphabetProfile detect(Path path) throws IOException, NoCoincidenceException
+    {
+        return detect(sampler.sample(path, WINDOW_COUNT, WINDOW_SIZE));
+    }
+
+    /**
+     * Определяет профиль языка по выборке текста.
+     *
+     * @param sample Список строк выборки.
+     * @return Наиболее вероятный профиль.
+     * @throws NoCoincidenceException если ни один профиль не подходит к выборке.
+     */
+    public AlphabetProfile detect(List<String> sample) throws NoCoincidenceException
+    {
+        List<AlphabetProfile> profiles = profileRegistry.all();
+        double[] coverages = new double[profiles.size()];
+        double bestCoverage = 0;
+
+        for (int i = 0; i < coverages.length; i++)
+        {
+            coverages[i] = coverage(sample, profiles.get(i));
+            bestCoverage = Math.max(bestCoverage, coverages[i]);
+        }
+        if (bestCoverage == 0)
+        {
+            throw new NoCoincidenceException();
+        }
+
+        AlphabetProfile bestProfile = null;
+        double bestDeviation = Double.MAX_VALUE;
+        for (int i = 0; i < coverages.length; i++)
+        {
+            if (bestCoverage - coverages[i] > COVERAGE_TOLERANCE)
+            {
+                continue;
+            }
+            double deviation = analyticsFor(profiles.get(i)).relativeDeviation(sample);
+            if (bestProfile == null || deviation < bestDeviation)
+            {
+                bestProfile = profiles.get(i);
+                bestDeviation = deviation;
+            }
+        }
+
+        return bestProfile;
+    }
+
+    /**
+     * Возвращает аналитический дешифратор для профиля, создавая его при первом обращении.
+     *
+     * @param profile Профиль языка.
+     * @return Аналитический дешифратор.
+     */
+    public DecrypterByAnalytics analyticsFor(AlphabetProfile profile)
+    {
+        return analytics.computeIfAbsent(profile, DecrypterByAnalytics::new);
+    }
+
+    /**
+     * Вычисляет долю символов выборки (без переводов строк), входящих в алфавит профиля.
+     *
+     * @param sample Список строк выборки.
+     * @param profile Профиль языка.
+     * @return Покрытие от 0 до 1.
+     */
+    private double coverage(List<String> sample, AlphabetProfile profile)
+    {
+        long total = 0;
+        long covered = 0;
+
+        for (String line : sample)
+        {
+            for (int i = 0; i < line.length(); i++)
+            {
+                char letter = line.charAt(i);
+                if (letter == '\n' || letter == '\r')
+                {
+                    continue;
+                }
+                total++;
+                if (profile.indexOf(letter) != -1)
+                {
+                    covered++;
+                }
+            }
+        }
+
+        return total == 0 ? 0 : (double) covered / total;
+    }
+}
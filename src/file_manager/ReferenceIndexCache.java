@@ -0,0 +1,88 @@
+package file_manager;
+
+import cipher.ReferenceIndex;
+import cipher.SourceStamp;
+import cipher.WordCounter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Класс ReferenceIndexCache выдает индексы частот слов для репрезентативных текстов.
+ * Индекс текста сохраняется рядом с ним в файле с расширением {@code .idx} вместе с размером и временем
+ * изменения текста и при следующих запусках загружается отображением в память, если текст с тех пор
+ * не изменился ({@link SidecarCache}). Путь может указывать и на сам файл индекса.
+ */
+public class ReferenceIndexCache
+{
+    /**
+     * Расширение файла индекса.
+     */
+    private static final String INDEX_EXTENSION = ".idx";
+
+    /**
+     * Максимальное количество индексов в памяти по умолчанию.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Индексы, сохраненные рядом с текстами и в памяти.
+     */
+    private final SidecarCache<ReferenceIndex> indexes;
+
+    /**
+     * Конструктор класса ReferenceIndexCache с емкостью по умолчанию.
+     */
+    public ReferenceIndexCache()
+    {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Конструктор класса ReferenceIndexCache.
+     *
+     * @param capacity Максимальное количество индексов в памяти.
+     */
+    public ReferenceIndexCache(int capacity)
+    {
+        this.indexes = new SidecarCache<>(INDEX_EXTENSION, ReferenceIndex::load, ReferenceIndexCache::build,
+                ReferenceIndex::write, ReferenceIndex::source, "индекс", capacity);
+    }
+
+    /**
+     * Возвращает индекс частот слов репрезентативного текста.
+     *
+     * @param corpus Путь к репрезентативному тексту или к файлу индекса.
+     * @return Индекс частот слов.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если явно заданный файл индекса поврежден.
+     */
+    public ReferenceIndex get(Path corpus) throws IOException
+    {
+        return indexes.get(corpus);
+    }
+
+    /**
+     * Строит индекс, читая текст построчно.
+     *
+     * @param corpus Путь к репрезентативному тексту.
+     * @return Индекс частот слов с отпечатком текста.
+     * @throws IOException если не удалось прочитать текст.
+     */
+    private static ReferenceIndex build(Path corpus) throws IOException
+    {
+        SourceStamp source = SourceStamp.of(corpus);
+        WordCounter counter = new WordCounter();
+        try (BufferedReader reader = Files.newBufferedReader(corpus))
+        {
+            String line;
+            while ((line = reader.readLine()) != null)
+            {
+                counter.add(line);
+            }
+        }
+        return ReferenceIndex.build(counter, source);
+    }
+}
@@ -0,0 +1,200 @@
+package file_manager;
+
+import cipher.DecrypterByAnalytics;
+import cipher.DecrypterByBruteForce;
+import cipher.DecrypterByNGrams;
+import cipher.KeyEstimate;
+import cipher.NGramModel;
+import cipher.ReferenceIndex;
+import exceptions.NoCoincidenceException;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * Класс SampledKeySearch определяет ключ шифра по выборке из файла, а не по всему файлу.
+ * Для сдвига Цезаря нескольких килобайт текста статистически достаточно, поэтому сначала ключ оценивается
+ * по небольшому количеству окон, равномерно распределенных по файлу. Если уверенность в ключе недостаточна,
+ * количество окон увеличивается, пока выборка не покроет весь файл или не достигнет {@code MAX_SAMPLE_SIZE} байт.
+ * Выборка большего размера в память не читается: для перебора и модели триграмм возвращается оценка
+ * по максимальной выборке с ее (более низкой) уверенностью, а для аналитического метода гистограмма символов
+ * всего файла строится параллельно по отображенному в память файлу ({@link ParallelHistogramBuilder}).
+ * <p>
+ * Оценки по выборкам проходят через кеш ключей дешифратора ({@link cipher.KeyCache}), а оценка по гистограмме
+ * всего файла - нет: отпечаток кеша вычисляется по тексту, а текст всего файла в память не читается.
+ * Поэтому повторный поиск для файла, которому не хватило максимальной выборки, снова строит гистограмму.
+ */
+public class SampledKeySearch
+{
+    /**
+     * Начальное количество окон.
+     */
+    private static final int INITIAL_WINDOWS = 16;
+
+    /**
+     * Размер окна (в байтах).
+     */
+    private static final int WINDOW_SIZE = 4 * 1024;
+
+    /**
+     * Во сколько раз увеличивается количество окон при недостаточной уверенности.
+     */
+    private static final int GROWTH_FACTOR = 4;
+
+    /**
+     * Уверенность, начиная с которой ключ считается найденным.
+     */
+    private static final double CONFIDENCE_THRESHOLD = 0.5;
+
+    /**
+     * Максимальный размер выборки (в байтах), читаемой в память в виде строк.
+     */
+    private static final long MAX_SAMPLE_SIZE = 4L * 1024 * 1024;
+
+    /**
+     * Объект для чтения окон из файла.
+     */
+    private final FileSampler sampler = new FileSampler();
+
+    /**
+     * Объект для параллельного построения гистограммы всего файла.
+     */
+    private final ParallelHistogramBuilder histogramBuilder = new ParallelHistogramBuilder();
+
+    /**
+     * Оценивает ключ аналитическим методом по выборке из файла.
+     * Если уверенности по максимальной выборке недостаточно, ключ оценивается по гистограмме всего файла
+     * без обращения к кешу ключей.
+     *
+     * @param path Путь к зашифрованному файлу.
+     * @param decrypter Аналитический дешифратор.
+     * @return Оценка ключа.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws NoCoincidenceException если ключ не удалось определить по максимальной выборке.
+     */
+    public KeyEstimate byAnalytics(Path path, DecrypterByAnalytics decrypter) throws IOException, NoCoincidenceException
+    {
+        return search(path, decrypter::estimateKey,
+                file -> decrypter.estimateKey(histogramBuilder.build(file, decrypter.getProfile())));
+    }
+
+    /**
+     * Оценивает ключ методом "грубого перебора" по выборке из файла.
+     *
+     * @param path Путь к зашифрованному файлу.
+     * @param decrypter Дешифратор перебором.
+     * @param reference Индекс частот слов репрезентативного текста.
+     * @return Оценка ключа.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws NoCoincidenceException если ключ не удалось определить по максимальной выборке.
+     */
+    public KeyEstimate byBruteForce(Path path, DecrypterByBruteForce decrypter, ReferenceIndex reference)
+            throws IOException, NoCoincidenceException
+    {
+        return search(path, sample -> decrypter.estimateKey(sample, reference), null);
+    }
+
+    /**
+     * Оценивает ключ по модели триграмм по выборке из файла.
+     *
+     * @param path Путь к зашифрованному файлу.
+     * @param decrypter Дешифратор по модели триграмм.
+     * @param model Модель триграмм языка исходного текста.
+     * @return Оценка ключа.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws NoCoincidenceException если ключ не удалось определить по максимальной выборке.
+     */
+    public KeyEstimate byNGrams(Path path, DecrypterByNGrams decrypter, NGramModel model)
+            throws IOException, NoCoincidenceException
+    {
+        return search(path, sample -> decrypter.estimateKey(sample, model), null);
+    }
+
+    /**
+     * Оценивает ключ по выборке, расширяя ее, пока уверенность недостаточна.
+     * Результат для неполной выборки, не давшей совпадений, не считается окончательным,
+     * кроме выборки максимального размера.
+     *
+     * @param path Путь к зашифрованному файлу.
+     * @param estimator Способ оценки ключа по выборке.
+     * @param wholeFileEstimator Способ оценки ключа по всему файлу без чтения его в память, применяемый,
+     *                           если максимальной выборки недостаточно, либо null.
+     * @return Оценка ключа.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws NoCoincidenceException если ключ не удалось определить по всему файлу или максимальной выборке.
+     */
+    private KeyEstimate search(Path path, Estimator estimator, WholeFileEstimator wholeFileEstimator)
+            throws IOException, NoCoincidenceException
+    {
+        long size = Files.size(path);
+        long windows = INITIAL_WINDOWS;
+
+        while (true)
+        {
+            boolean wholeFile = windows * WINDOW_SIZE >= size;
+            boolean lastSample = wholeFile || windows * WINDOW_SIZE >= MAX_SAMPLE_SIZE;
+            List<String> sample = sampler.sample(path, (int) windows, WINDOW_SIZE);
+
+            try
+            {
+                KeyEstimate estimate = estimator.estimate(sample);
+                if (estimate.confidence() >= CONFIDENCE_THRESHOLD || wholeFile)
+                {
+                    return estimate;
+                }
+                if (lastSample)
+                {
+                    return wholeFileEstimator == null ? estimate : wholeFileEstimator.estimate(path);
+                }
+            }
+            catch (NoCoincidenceException e)
+            {
+                if (wholeFile || lastSample && wholeFileEstimator == null)
+                {
+                    throw e;
+                }
+                if (lastSample)
+                {
+                    return wholeFileEstimator.estimate(path);
+                }
+            }
+
+            windows *= GROWTH_FACTOR;
+        }
+    }
+
+    /**
+     * Способ оценки ключа по выборке.
+     */
+    @FunctionalInterface
+    private interface Estimator
+    {
+        /**
+         * Оценивает ключ по выборке.
+         *
+         * @param sample Выборка из файла.
+         * @return Оценка ключа.
+         * @throws NoCoincidenceException если совпадений не найдено.
+         */
+        KeyEstimate estimate(List<String> sample) throws NoCoincidenceException;
+    }
+
+    /**
+     * Способ оценки ключа по всему файлу.
+     */
+    @FunctionalInterface
+    private interface WholeFileEstimator
+    {
+        /**
+         * Оценивает ключ по всему файлу.
+         *
+         * @param path Путь к файлу.
+         * @return Оценка ключа.
+         * @throws IOException если произошла ошибка ввода-вывода.
+         * @throws NoCoincidenceException если совпадений не найдено.
+         */
+        KeyEstimate estimate(Path path) throws IOException, NoCoincidenceException;
+    }
+}
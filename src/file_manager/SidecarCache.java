@@ -0,0 +1,224 @@
+package file_manager;
+
+import cipher.SourceStamp;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Класс SidecarCache выдает данные, построенные по текстовому файлу (индекс, модель), и сохраняет их
+ * рядом с текстом в файле с тем же именем и дополнительным расширением. Сохраненный файл содержит отпечаток
+ * текста (размер и время изменения) и при следующих запусках загружается вместо построения, если текст
+ * с тех пор не изменился; поврежденный или устаревший файл строится и сохраняется заново. Путь к самому
+ * сохраненному файлу (с этим расширением) загружается как есть. Кроме того, загруженные данные хранятся
+ * в памяти процесса (LRU) по ключу "путь + время изменения", поэтому повторные задания с тем же текстом
+ * вообще не обращаются к диску.
+ *
+ * @param <T> Тип данных.
+ */
+public class SidecarCache<T>
+{
+    /**
+     * Расширение сохраненного файла.
+     */
+    private final String extension;
+
+    /**
+     * Способ загрузки данных из сохраненного файла.
+     */
+    private final Loader<T> loader;
+
+    /**
+     * Способ построения данных по тексту.
+     */
+    private final Builder<T> builder;
+
+    /**
+     * Способ сохранения данных в файл.
+     */
+    private final Writer<T> writer;
+
+    /**
+     * Отпечаток текста, по которому построены данные.
+     */
+    private final Function<T, SourceStamp> source;
+
+    /**
+     * Название данных для сообщения об ошибке сохранения.
+     */
+    private final String description;
+
+    /**
+     * Данные в памяти в порядке последнего обращения.
+     */
+    private final Map<CacheKey, T> entries;
+
+    /**
+     * Конструктор класса SidecarCache.
+     *
+     * @param extension Расширение сохраненного файла.
+     * @param loader Способ загрузки данных из сохраненного файла.
+     * @param builder Способ построения данных по тексту.
+     * @param writer Способ сохранения данных в файл.
+     * @param source Отпечаток текста, по которому построены данные.
+     * @param description Название данных для сообщения об ошибке сохранения.
+     * @param capacity Максимальное количество данных в памяти.
+     */
+    public SidecarCache(String extension, Loader<T> loader, Builder<T> builder, Writer<T> writer,
+                        Function<T, SourceStamp> source, String description, int capacity)
+    {
+        this.extension = extension;
+        this.loader = loader;
+        this.builder = builder;
+        this.writer = writer;
+        this.source = source;
+        this.description = description;
+        this.entries = new LinkedHashMap<>(capacity, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<CacheKey, T> eldest)
+            {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Возвращает данные для текста или сохраненного файла.
+     *
+     * @param path Путь к тексту или к сохраненному файлу.
+     * @return Данные.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если явно заданный сохраненный файл поврежден.
+     */
+    public T get(Path path) throws IOException
+    {
+        CacheKey key = new CacheKey(path.toAbsolutePath().normalize(), Files.getLastModifiedTime(path));
+
+        synchronized (entries)
+        {
+            T value = entries.get(key);
+            if (value != null)
+            {
+                return value;
+            }
+        }
+
+        T value = path.getFileName().toString().endsWith(extension) ? loader.load(path) : loadOrBuild(path);
+        synchronized (entries)
+        {
+            entries.put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Загружает данные из файла рядом с текстом, либо строит их заново и сохраняет.
+     * Если сохранить данные не удалось (например, каталог только для чтения), данные используются без сохранения.
+     *
+     * @param corpus Путь к тексту.
+     * @return Данные.
+     * @throws IOException если не удалось прочитать текст.
+     */
+    private T loadOrBuild(Path corpus) throws IOException
+    {
+        Path sidecar = corpus.resolveSibling(corpus.getFileName() + extension);
+
+        if (Files.exists(sidecar))
+        {
+            try
+            {
+                T value = loader.load(sidecar);
+                if (source.apply(value).equals(SourceStamp.of(corpus)))
+                {
+                    return value;
+                }
+            }
+            catch (IllegalArgumentException e)
+            {
+                // Файл поврежден или имеет другой формат: данные строятся заново.
+            }
+        }
+
+        T value = builder.build(corpus);
+        try
+        {
+            writer.write(value, sidecar);
+        }
+        catch (IOException e)
+        {
+            System.out.println("Не удалось сохранить " + description + " " + sidecar);
+        }
+        return value;
+    }
+
+    /**
+     * Способ загрузки данных из сохраненного файла.
+     *
+     * @param <T> Тип данных.
+     */
+    @FunctionalInterface
+    public interface Loader<T>
+    {
+        /**
+         * Загружает данные.
+         *
+         * @param path Путь к сохраненному файлу.
+         * @return Данные.
+         * @throws IOException если произошла ошибка ввода-вывода.
+         * @throws IllegalArgumentException если файл поврежден или имеет другой формат.
+         */
+        T load(Path path) throws IOException;
+    }
+
+    /**
+     * Способ построения данных по тексту.
+     *
+     * @param <T> Тип данных.
+     */
+    @FunctionalInterface
+    public interface Builder<T>
+    {
+        /**
+         * Строит данные с отпечатком текста, снятым до его чтения.
+         *
+         * @param corpus Путь к тексту.
+         * @return Данные.
+         * @throws IOException если не удалось прочитать текст.
+         */
+        T build(Path corpus) throws IOException;
+    }
+
+    /**
+     * Способ сохранения данных в файл.
+     *
+     * @param <T> Тип данных.
+     */
+    @FunctionalInterface
+    public interface Writer<T>
+    {
+        /**
+         * Сохраняет данные.
+         *
+         * @param value Данные.
+         * @param path Путь к сохраненному файлу.
+         * @throws IOException если произошла ошибка ввода-вывода.
+         */
+        void write(T value, Path path) throws IOException;
+    }
+
+    /**
+     * Ключ данных в памяти.
+     *
+     * @param path Абсолютный путь к файлу.
+     * @param modified Время изменения файла.
+     */
+    private record CacheKey(Path path, FileTime modified)
+    {
+    }
+}
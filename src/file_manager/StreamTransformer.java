@@ -0,0 +1,398 @@
+package file_manager;
+
+import cipher.CompiledCipher;
+import cipher.Utf8ByteCipher;
+import metrics.Metrics;
+import metrics.Stage;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CoderResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс StreamTransformer шифрует поток данных по мере их поступления: стандартный ввод или файл,
+ * за которым выполняется слежение (как {@code tail -f}). Шифр применяется к байтам UTF-8 ({@link Utf8ByteCipher}),
+ * а результат накапливается в пакете и записывается, когда пакет заполнен или когда самые старые байты пакета
+ * ждут дольше заданной задержки. Маленькая задержка уменьшает время доставки, большой пакет - количество записей.
+ * <p>
+ * Новые данные в файле ожидаются через {@link WatchService}; кроме того, файл периодически проверяется,
+ * так как не все файловые системы сообщают об изменениях. Если файл был обрезан или заменен новым файлом
+ * (ротация журнала), чтение начинается с начала файла.
+ * Один экземпляр обрабатывает один поток.
+ */
+public class StreamTransformer
+{
+    /**
+     * Размер буфера (в байтах) для чтения.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Максимальный интервал (в миллисекундах) между проверками файла при слежении.
+     */
+    private static final long POLL_MILLIS = 500;
+
+    /**
+     * Максимальное время (в миллисекундах) хранения байтов в пакете до записи. 0 - запись после каждого чтения.
+     */
+    private final long maxLatencyMillis;
+
+    /**
+     * Размер пакета (в байтах), при заполнении которого пакет записывается сразу.
+     */
+    private final int batchSize;
+
+    /**
+     * false после вызова {@link #stop()}.
+     */
+    private volatile boolean running = true;
+
+    /**
+     * Пакет текущего потока, либо null, если поток еще не обрабатывается.
+     */
+    private volatile BatchingOutput output;
+
+    /**
+     * Конструктор класса StreamTransformer.
+     *
+     * @param maxLatencyMillis Максимальное время хранения байтов в пакете до записи (0 - без накопления).
+     * @param batchSize Размер пакета в байтах.
+     */
+    public StreamTransformer(long maxLatencyMillis, int batchSize)
+    {
+        if (maxLatencyMillis < 0 || batchSize < 4)
+        {
+            throw new IllegalArgumentException("Задержка не может быть отрицательной, размер пакета - меньше 4 байт");
+        }
+        this.maxLatencyMillis = maxLatencyMillis;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Шифрует данные из канала до конца данных, записывая результат пакетами.
+     *
+     * @param source Источник данных (например, стандартный ввод).
+     * @param target Приемник данных.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода или данные не являются корректным UTF-8.
+     */
+    public void transform(ReadableByteChannel source, WritableByteChannel target, CompiledCipher cipher) throws IOException
+    {
+        Utf8ByteCipher byteCipher = Utf8ByteCipher.of(cipher);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+
+        try (BatchingOutput batchingOutput = open(target))
+        {
+            boolean endOfInput = false;
+            while (!endOfInput && running)
+            {
+                long start = Metrics.start();
+                int read = source.read(bytes);
+                Metrics.record(Stage.READ, start, Math.max(read, 0));
+                endOfInput = read == -1;
+                bytes.flip();
+                batchingOutput.write(byteCipher, bytes, endOfInput);
+                // Незавершенная последовательность байтов в конце порции обрабатывается вместе со следующей порцией.
+                bytes.compact();
+            }
+        }
+    }
+
+    /**
+     * Шифрует содержимое файла и затем данные, дописываемые в файл, пока не будет вызван {@link #stop()}.
+     *
+     * @param file Путь к файлу.
+     * @param target Приемник данных.
+     * @param cipher Шифр, применяемый к каждому символу.
+     * @throws IOException если произошла ошибка ввода-вывода или данные не являются корректным UTF-8.
+     */
+    public void follow(Path file, WritableByteChannel target, CompiledCipher cipher) throws IOException
+    {
+        Utf8ByteCipher byteCipher = Utf8ByteCipher.of(cipher);
+        ByteBuffer bytes = ByteBuffer.allocate(BUFFER_SIZE);
+        Path directory = file.toAbsolutePath().getParent();
+
+        try (WatchService watcher = directory.getFileSystem().newWatchService();
+             BatchingOutput batchingOutput = open(target))
+        {
+            directory.register(watcher, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            FileChannel source = FileChannel.open(file, StandardOpenOption.READ);
+            Object fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            long position = 0;
+
+            try
+            {
+                while (running)
+                {
+                    long start = Metrics.start();
+                    int read = source.read(bytes, position);
+                    if (read > 0)
+                    {
+                        Metrics.record(Stage.READ, start, read);
+                        position += read;
+                        bytes.flip();
+                        batchingOutput.write(byteCipher, bytes, false);
+                        bytes.compact();
+                        continue;
+                    }
+
+                    if (source.size() < position || isReplaced(file, fileKey))
+                    {
+                        // Файл обрезан или заменен: продолжаем с начала нового содержимого.
+                        source.close();
+                        source = FileChannel.open(file, StandardOpenOption.READ);
+                        fileKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+                        position = 0;
+                        bytes.clear();
+                        continue;
+                    }
+
+                    awaitChanges(watcher);
+                }
+            }
+            finally
+            {
+                source.close();
+            }
+        }
+    }
+
+    /**
+     * Останавливает обработку и записывает накопленный пакет. Слежение за файлом завершается
+     * при следующей проверке файла; чтение из канала - после возврата из текущего чтения.
+     * Метод можно вызывать из другого потока, например из обработчика завершения JVM.
+     *
+     * @throws IOException если не удалось записать накопленный пакет.
+     */
+    public void stop() throws IOException
+    {
+        running = false;
+        BatchingOutput batchingOutput = output;
+        if (batchingOutput != null)
+        {
+            batchingOutput.flush();
+        }
+    }
+
+    /**
+     * Создает пакет для приемника данных.
+     *
+     * @param target Приемник данных.
+     * @return Пакет.
+     */
+    private BatchingOutput open(WritableByteChannel target)
+    {
+        BatchingOutput batchingOutput = new BatchingOutput(target, batchSize, maxLatencyMillis);
+        output = batchingOutput;
+        return batchingOutput;
+    }
+
+    /**
+     * Проверяет, заменен ли файл другим файлом с тем же именем.
+     *
+     * @param file Путь к файлу.
+     * @param fileKey Идентификатор открытого файла.
+     * @return true, если по пути находится другой файл.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static boolean isReplaced(Path file, Object fileKey) throws IOException
+    {
+        try
+        {
+            Object currentKey = Files.readAttributes(file, BasicFileAttributes.class).fileKey();
+            return fileKey != null && !Objects.equals(fileKey, currentKey);
+        }
+        catch (NoSuchFileException e)
+        {
+            // Во время ротации файла может не быть: продолжаем ждать новый файл.
+            return false;
+        }
+    }
+
+    /**
+     * Ожидает изменения в каталоге файла, но не дольше {@code POLL_MILLIS}.
+     *
+     * @param watcher Служба слежения за каталогом.
+     * @throws IOException если ожидание было прервано.
+     */
+    private static void awaitChanges(WatchService watcher) throws IOException
+    {
+        try
+        {
+            WatchKey key = watcher.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (key != null)
+            {
+                key.pollEvents();
+                key.reset();
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Слежение за файлом прервано");
+        }
+    }
+
+    /**
+     * Пакет зашифрованных байтов, записываемый в приемник при заполнении
+     * или по истечении задержки (проверяется отдельным фоновым потоком).
+     */
+    private static class BatchingOutput implements AutoCloseable
+    {
+        /**
+         * Приемник данных.
+         */
+        private final WritableByteChannel channel;
+
+        /**
+         * Накопленные байты.
+         */
+        private final ByteBuffer batch;
+
+        /**
+         * Максимальное время хранения байтов в пакете (в наносекундах).
+         */
+        private final long maxLatencyNanos;
+
+        /**
+         * Поток, записывающий пакет по истечении задержки, либо null, если пакет записывается после каждого чтения.
+         */
+        private final ScheduledExecutorService flusher;
+
+        /**
+         * Время появления самого старого байта в пакете.
+         */
+        private long oldestNanos;
+
+        /**
+         * Конструктор класса BatchingOutput.
+         *
+         * @param channel Приемник данных.
+         * @param batchSize Размер пакета в байтах.
+         * @param maxLatencyMillis Максимальное время хранения байтов в пакете.
+         */
+        BatchingOutput(WritableByteChannel channel, int batchSize, long maxLatencyMillis)
+        {
+            this.channel = channel;
+            this.batch = ByteBuffer.allocate(batchSize);
+            this.maxLatencyNanos = TimeUnit.MILLISECONDS.toNanos(maxLatencyMillis);
+
+            if (maxLatencyMillis == 0)
+            {
+                this.flusher = null;
+                return;
+            }
+            this.flusher = Executors.newSingleThreadScheduledExecutor(task ->
+            {
+                Thread thread = new Thread(task, "stream-flusher");
+                thread.setDaemon(true);
+                return thread;
+            });
+            // Проверка несколько раз за период задержки ограничивает превышение задержки четвертью периода.
+            long period = Math.max(1, maxLatencyMillis / 4);
+            flusher.scheduleAtFixedRate(this::flushIfDue, period, period, TimeUnit.MILLISECONDS);
+        }
+
+        /**
+         * Шифрует байты в пакет, записывая пакет при заполнении.
+         *
+         * @param cipher Байтовый шифр.
+         * @param bytes Исходные байты.
+         * @param endOfInput true, если больше байтов не будет.
+         * @throws IOException если произошла ошибка ввода-вывода или байты не являются корректным UTF-8.
+         */
+        synchronized void write(Utf8ByteCipher cipher, ByteBuffer bytes, boolean endOfInput) throws IOException
+        {
+            if (batch.position() == 0)
+            {
+                oldestNanos = System.nanoTime();
+            }
+
+            CoderResult result;
+            while ((result = cipher.apply(bytes, batch, endOfInput)).isOverflow())
+            {
+                flush();
+                oldestNanos = System.nanoTime();
+            }
+            if (result.isError())
+            {
+                result.throwException();
+            }
+
+            if (flusher == null || !batch.hasRemaining())
+            {
+                flush();
+            }
+        }
+
+        /**
+         * Записывает накопленные байты в приемник.
+         *
+         * @throws IOException если произошла ошибка ввода-вывода.
+         */
+        synchronized void flush() throws IOException
+        {
+            long start = Metrics.start();
+            batch.flip();
+            int length = batch.remaining();
+            while (batch.hasRemaining())
+            {
+                channel.write(batch);
+            }
+            batch.clear();
+            if (length > 0)
+            {
+                Metrics.record(Stage.WRITE, start, length);
+            }
+        }
+
+        /**
+         * Записывает пакет, если самые старые байты ждут дольше заданной задержки.
+         */
+        private synchronized void flushIfDue()
+        {
+            if (batch.position() > 0 && System.nanoTime() - oldestNanos >= maxLatencyNanos)
+            {
+                try
+                {
+                    flush();
+                }
+                catch (IOException e)
+                {
+                    // Ошибка повторится при следующей записи из основного потока и будет проброшена оттуда.
+                }
+            }
+        }
+
+        /**
+         * Останавливает фоновый поток и записывает оставшиеся байты.
+         *
+         * @throws IOException если произошла ошибка ввода-вывода.
+         */
+        @Override
+        public void close() throws IOException
+        {
+            if (flusher != null)
+            {
+                flusher.shutdownNow();
+            }
+            flush();
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Класс LatencyHistogram - гистограмма длительностей по образцу HdrHistogram: значения от 0 до {@code Long.MAX_VALUE}
+ * наносекунд раскладываются по интервалам, ширина которых растет вместе со значением, поэтому относительная
+ * погрешность любого значения не превышает 1/16 (около 6%), а вся гистограмма занимает 1024 счетчика.
+ * Значения до 32 хранятся точно, далее каждый диапазон [2^e, 2^(e+1)) делится на 16 равных интервалов.
+ * <p>
+ * Запись выполняется без блокировок одним атомарным увеличением счетчика, поэтому гистограмму можно
+ * заполнять из нескольких потоков одновременно и читать во время записи.
+ */
+public final class LatencyHistogram
+{
+    /**
+     * Количество старших значащих битов значения, определяющих интервал внутри диапазона.
+     */
+    private static final int SIGNIFICANT_BITS = 5;
+
+    /**
+     * Количество интервалов в одном диапазоне [2^e, 2^(e+1)).
+     */
+    private static final int SUB_BUCKETS = 1 << (SIGNIFICANT_BITS - 1);
+
+    /**
+     * Счетчики значений по интервалам.
+     */
+    private final AtomicLongArray counts = new AtomicLongArray(64 * SUB_BUCKETS);
+
+    /**
+     * Записывает одно значение.
+     *
+     * @param value Значение (отрицательные значения записываются как 0).
+     */
+    public void record(long value)
+    {
+        counts.incrementAndGet(indexOf(Math.max(0, value)));
+    }
+
+    /**
+     * Возвращает значение, не превышаемое заданной долей записанных значений (с точностью до ширины интервала).
+     *
+     * @param quantile Доля значений от 0 до 1, например 0.99.
+     * @return Верхняя граница интервала, в который попадает квантиль, либо 0, если значений нет.
+     */
+    public long valueAtQuantile(double quantile)
+    {
+        long total = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            total += counts.get(i);
+        }
+        if (total == 0)
+        {
+            return 0;
+        }
+
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length(); i++)
+        {
+            seen += counts.get(i);
+            if (seen >= rank)
+            {
+                return highestValueOf(i);
+            }
+        }
+        return highestValueOf(counts.length() - 1);
+    }
+
+    /**
+     * Вычисляет номер интервала для значения.
+     *
+     * @param value Неотрицательное значение.
+     * @return Номер интервала.
+     */
+    private static int indexOf(long value)
+    {
+        if (value < 2 * SUB_BUCKETS)
+        {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - (SIGNIFICANT_BITS - 1);
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    /**
+     * Вычисляет наибольшее значение, попадающее в интервал.
+     *
+     * @param index Номер интервала.
+     * @return Верхняя граница интервала (включительно).
+     */
+    private static long highestValueOf(int index)
+    {
+        if (index < 2 * SUB_BUCKETS)
+        {
+            return index;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long mantissa = index % SUB_BUCKETS + SUB_BUCKETS;
+        long lowest = mantissa << shift;
+        return lowest + (1L << shift) - 1 < 0 ? Long.MAX_VALUE : lowest + (1L << shift) - 1;
+    }
+}
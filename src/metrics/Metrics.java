@@ -0,0 +1,159 @@
+package metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Класс Metrics - точка записи метрик этапов обработки (чтение, шифрование, поиск ключа, проверка ключа, запись).
+ * Операция измеряется парой вызовов {@link #start()} и {@link #record(Stage, long, long)}: метрики накапливаются
+ * в счетчиках без блокировок ({@link StageStats}) и дублируются событиями JFR ({@link StageEvent}), если идет запись JFR.
+ * <p>
+ * Настройка выполняется системными свойствами:
+ * <ul>
+ *     <li>{@code -Dmetrics=false} - отключить сбор метрик (вызовы сводятся к проверке константы);</li>
+ *     <li>{@code -Dmetrics.dump=<файл>|stderr} - периодически дописывать метрики в файл строками JSON;</li>
+ *     <li>{@code -Dmetrics.interval=<секунды>} - период выгрузки (по умолчанию 10 секунд).</li>
+ * </ul>
+ */
+public final class Metrics
+{
+    /**
+     * true, если сбор метрик не отключен свойством {@code metrics}.
+     */
+    public static final boolean ENABLED = !"false".equals(System.getProperty("metrics"));
+
+    /**
+     * Метрики по этапам.
+     */
+    private static final Map<Stage, StageStats> stages = new EnumMap<>(Stage.class);
+
+    static
+    {
+        for (Stage stage : Stage.values())
+        {
+            stages.put(stage, new StageStats());
+        }
+        if (ENABLED)
+        {
+            MetricsReporter.startFromProperties();
+        }
+    }
+
+    /**
+     * Закрытый конструктор: класс содержит только статические методы.
+     */
+    private Metrics()
+    {
+    }
+
+    /**
+     * Возвращает момент начала операции.
+     *
+     * @return Значение {@link System#nanoTime()}, либо 0, если метрики отключены.
+     */
+    public static long start()
+    {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Записывает операцию этапа, начатую в момент {@code start}.
+     *
+     * @param stage Этап.
+     * @param start Момент начала операции, полученный от {@link #start()}.
+     * @param amount Объем данных в единицах этапа (см. {@link Stage}).
+     */
+    public static void record(Stage stage, long start, long amount)
+    {
+        if (ENABLED)
+        {
+            record(stage, start, amount, -1);
+        }
+    }
+
+    /**
+     * Записывает проверку одного ключа-кандидата при поиске ключа.
+     *
+     * @param start Момент начала проверки, полученный от {@link #start()}.
+     * @param amount Объем проверенных данных.
+     * @param key Проверенный ключ.
+     */
+    public static void recordCandidate(long start, long amount, int key)
+    {
+        if (ENABLED)
+        {
+            record(Stage.KEY_CANDIDATE, start, amount, key);
+        }
+    }
+
+    /**
+     * Возвращает накопленные метрики этапа.
+     *
+     * @param stage Этап.
+     * @return Метрики этапа.
+     */
+    public static StageStats stats(Stage stage)
+    {
+        return stages.get(stage);
+    }
+
+    /**
+     * Возвращает все накопленные метрики в виде одной строки JSON.
+     *
+     * @return Строка JSON с моментом выгрузки, объемом выделенной памяти и метриками всех этапов.
+     */
+    public static String toJson()
+    {
+        StringBuilder json = new StringBuilder(512);
+        json.append("{\"time\":\"").append(Instant.now()).append('"');
+        json.append(",\"allocatedBytes\":").append(allocatedBytes());
+        json.append(",\"stages\":{");
+        for (Stage stage : Stage.values())
+        {
+            json.append(stage.ordinal() == 0 ? "" : ",").append('"').append(stage.label()).append("\":");
+            stages.get(stage).appendJson(json);
+        }
+        return json.append("}}").toString();
+    }
+
+    /**
+     * Записывает операцию в счетчики и, если идет запись JFR, в событие.
+     *
+     * @param stage Этап.
+     * @param start Момент начала операции.
+     * @param amount Объем данных.
+     * @param key Проверенный ключ, либо -1.
+     */
+    private static void record(Stage stage, long start, long amount, int key)
+    {
+        long nanos = System.nanoTime() - start;
+        stages.get(stage).record(nanos, amount);
+
+        StageEvent event = new StageEvent();
+        if (event.shouldCommit())
+        {
+            event.stage = stage.label();
+            event.nanos = nanos;
+            event.amount = amount;
+            event.key = key;
+            event.commit();
+        }
+    }
+
+    /**
+     * Возвращает объем памяти, выделенной всеми потоками JVM с момента запуска.
+     *
+     * @return Объем в байтах, либо -1, если JVM не поддерживает подсчет.
+     */
+    private static long allocatedBytes()
+    {
+        if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemoryEnabled())
+        {
+            return threads.getTotalThreadAllocatedBytes();
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,93 @@
+package metrics;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс MetricsReporter периодически выгружает метрики ({@link Metrics#toJson()}) одной строкой JSON
+ * в файл или в стандартный поток ошибок. Выгрузка выполняется фоновым потоком и повторяется при завершении JVM,
+ * поэтому итоговые метрики короткого запуска тоже попадают в выгрузку.
+ */
+final class MetricsReporter
+{
+    /** Значение свойства {@code metrics.dump} для выгрузки в стандартный поток ошибок. */
+    private static final String STDERR = "stderr";
+
+    /** Период выгрузки по умолчанию (в секундах). */
+    private static final long DEFAULT_INTERVAL = 10;
+
+    /** Файл для выгрузки, либо null для стандартного потока ошибок. */
+    private final Path file;
+
+    /**
+     * Конструктор класса MetricsReporter.
+     *
+     * @param file Файл для выгрузки, либо null для стандартного потока ошибок.
+     */
+    private MetricsReporter(Path file)
+    {
+        this.file = file;
+    }
+
+    /**
+     * Запускает периодическую выгрузку, если задано свойство {@code metrics.dump}.
+     */
+    static void startFromProperties()
+    {
+        String target = System.getProperty("metrics.dump");
+        if (target == null || target.isBlank())
+        {
+            return;
+        }
+
+        long interval;
+        try
+        {
+            interval = Long.parseLong(System.getProperty("metrics.interval", Long.toString(DEFAULT_INTERVAL)));
+        }
+        catch (NumberFormatException e)
+        {
+            interval = DEFAULT_INTERVAL;
+        }
+
+        MetricsReporter reporter = new MetricsReporter(target.equals(STDERR) ? null : Path.of(target));
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(task ->
+        {
+            Thread thread = new Thread(task, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, interval);
+        scheduler.scheduleAtFixedRate(reporter::dump, period, period, TimeUnit.SECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(reporter::dump, "metrics-final-dump"));
+    }
+
+    /**
+     * Дописывает текущие метрики одной строкой.
+     */
+    private synchronized void dump()
+    {
+        String line = Metrics.toJson();
+        if (file == null)
+        {
+            System.err.println(line);
+            return;
+        }
+
+        try (Writer writer = Files.newBufferedWriter(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND))
+        {
+            writer.write(line);
+            writer.write('\n');
+        }
+        catch (IOException e)
+        {
+            System.err.println("Не удалось выгрузить метрики в файл " + file + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package metrics;
+
+/**
+ * Этапы обработки, для которых собираются метрики.
+ * Объем чтения и записи измеряется в байтах, объем преобразования и поиска ключа - в символах текста
+ * (единицах {@code char}), независимо от того, обрабатываются строки или байты UTF-8.
+ */
+public enum Stage
+{
+    /** Чтение данных из файла. */
+    READ("read"),
+
+    /** Применение шифра к данным. */
+    TRANSFORM("transform"),
+
+    /** Поиск ключа целиком (анализ частот, перебор или модель триграмм); объем - проанализированный текст. */
+    KEY_SEARCH("keySearch"),
+
+    /** Проверка одного ключа-кандидата при поиске ключа; объем - текст, по которому оценен ключ. */
+    KEY_CANDIDATE("keyCandidate"),
+
+    /** Запись данных в файл. */
+    WRITE("write");
+
+    /**
+     * Имя этапа в выгрузке метрик и событиях JFR.
+     */
+    private final String label;
+
+    /**
+     * Конструктор этапа.
+     *
+     * @param label Имя этапа в выгрузке метрик.
+     */
+    Stage(String label)
+    {
+        this.label = label;
+    }
+
+    /**
+     * Возвращает имя этапа в выгрузке метрик и событиях JFR.
+     *
+     * @return Имя этапа.
+     */
+    public String label()
+    {
+        return label;
+    }
+}
@@ -0,0 +1,41 @@
+package metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Событие JFR об одной операции этапа обработки. Записывается только при включенной записи JFR
+ * (например, {@code -XX:StartFlightRecording}), поэтому без записи стоит одну проверку.
+ * Выделение памяти на этапах можно сопоставить с этими событиями по потоку и времени
+ * через стандартные события JFR о выделении памяти.
+ */
+@Name("cryptoanalyzer.Stage")
+@Label("Stage")
+@Category("CryptoAnalyzer")
+@Description("Одна операция этапа обработки: чтение, шифрование, поиск ключа, проверка ключа или запись")
+@Enabled(true)
+@StackTrace(false)
+class StageEvent extends jdk.jfr.Event
+{
+    /** Имя этапа. */
+    @Label("Stage")
+    String stage;
+
+    /** Длительность операции. */
+    @Label("Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long nanos;
+
+    /** Объем обработанных данных в единицах этапа (байты или символы, см. {@link Stage}). */
+    @Label("Amount")
+    long amount;
+
+    /** Проверенный ключ для этапа проверки ключа, иначе -1. */
+    @Label("Key")
+    int key;
+}
@@ -0,0 +1,99 @@
+package metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Класс StageStats накапливает метрики одного этапа обработки: количество операций, объем данных,
+ * суммарное и максимальное время и гистограмму длительностей. Все счетчики обновляются без блокировок.
+ */
+public final class StageStats
+{
+    /** Количество операций. */
+    private final LongAdder count = new LongAdder();
+
+    /** Объем данных в единицах этапа (см. {@link Stage}). */
+    private final LongAdder amount = new LongAdder();
+
+    /** Суммарное время операций в наносекундах. */
+    private final LongAdder totalNanos = new LongAdder();
+
+    /** Максимальное время операции в наносекундах. */
+    private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+
+    /** Гистограмма длительностей операций. */
+    private final LatencyHistogram histogram = new LatencyHistogram();
+
+    /**
+     * Записывает одну операцию.
+     *
+     * @param nanos Длительность операции в наносекундах.
+     * @param amount Объем обработанных данных.
+     */
+    void record(long nanos, long amount)
+    {
+        count.increment();
+        this.amount.add(amount);
+        totalNanos.add(nanos);
+        maxNanos.accumulate(nanos);
+        histogram.record(nanos);
+    }
+
+    /**
+     * Возвращает количество операций.
+     *
+     * @return Количество операций.
+     */
+    public long count()
+    {
+        return count.sum();
+    }
+
+    /**
+     * Возвращает объем обработанных данных.
+     *
+     * @return Объем данных в единицах этапа (см. {@link Stage}).
+     */
+    public long amount()
+    {
+        return amount.sum();
+    }
+
+    /**
+     * Возвращает суммарное время операций.
+     *
+     * @return Время в наносекундах.
+     */
+    public long totalNanos()
+    {
+        return totalNanos.sum();
+    }
+
+    /**
+     * Возвращает длительность, не превышаемую заданной долей операций.
+     *
+     * @param quantile Доля операций от 0 до 1.
+     * @return Длительность в наносекундах (верхняя граница интервала гистограммы, но не больше максимума).
+     */
+    public long nanosAtQuantile(double quantile)
+    {
+        return Math.min(histogram.valueAtQuantile(quantile), maxNanos.get());
+    }
+
+    /**
+     * Записывает метрики этапа в виде объекта JSON.
+     *
+     * @param json Строка, к которой добавляется объект.
+     */
+    void appendJson(StringBuilder json)
+    {
+        long total = totalNanos();
+        double throughput = total == 0 ? 0 : amount() / (total / 1e9);
+        json.append(String.format(Locale.ROOT,
+                "{\"count\":%d,\"amount\":%d,\"totalNanos\":%d,\"p50Nanos\":%d,\"p90Nanos\":%d,\"p99Nanos\":%d,"
+                        + "\"maxNanos\":%d,\"amountPerSecond\":%.0f}",
+                count(), amount(), total, nanosAtQuantile(0.5), nanosAtQuantile(0.9), nanosAtQuantile(0.99),
+                maxNanos.get(), throughput));
+    }
+}
@@ -0,0 +1,729 @@
+package model;
+
+import cipher.CompiledCipher;
+import cipher.Decrypter;
+import cipher.DecrypterByAnalytics;
+import cipher.DecrypterByBruteForce;
+import cipher.KeyCache;
+import cipher.KeyEstimate;
+import cipher.ReferenceIndex;
+import exceptions.InvalidArgumentException;
+import exceptions.InvalidFileNameException;
+import exceptions.NoCoincidenceException;
+import file_manager.FileManager;
+import file_manager.ProfileDetector;
+import file_manager.ReferenceIndexCache;
+import file_manager.SampledKeySearch;
+import profile.AlphabetProfile;
+import profile.ProfileRegistry;
+import validation.Validator;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
+
+/**
+ * Класс BatchRunner реализует неинтерактивный пакетный режим: режим работы, ключ, входные файлы
+ * (пути, каталоги или шаблоны) и каталог для результатов передаются аргументами командной строки.
+ * Файлы обрабатываются параллельно на ForkJoin-пуле с ограниченным числом потоков в одной JVM. На том же пуле
+ * проверяются ключи при переборе, поэтому потоки, закончившие свои файлы, перехватывают проверку ключей
+ * других файлов, и общее время растет с отношением количества файлов к количеству ядер.
+ * Объекты для шифрования и работы с файлами, индекс и модель репрезентативного текста переиспользуются
+ * для всех файлов задания, профили языков - для всех заданий. Результат каждого файла выводится сразу
+ * по завершении его обработки, в конце выводится итог по времени и скорости обработки.
+ * <p>
+ * Результат файла записывается в каталог результатов по пути файла относительно аргумента, которым он задан:
+ * файл - по имени, файл каталога - по пути внутри каталога, файл шаблона - по пути относительно каталога,
+ * с которого начинается шаблон. Если два входных файла соответствуют одному результату, задание не запускается.
+ */
+public class BatchRunner
+{
+    /** Описание аргументов командной строки. */
+    public static final String USAGE = """
+            Использование:
+              --mode encrypt|decrypt|bruteforce|analytics  режим работы
+              --key <число>                                ключ (для encrypt и decrypt)
+              --reference <файл>                           репрезентативный текст (для bruteforce)
+              --profile <имя или файл>|auto                профиль языка: ru, ru-full (полный алфавит), en, uk,
+                                                           файл профиля или auto - определить по каждому файлу
+                                                           (по умолчанию auto для bruteforce и analytics,
+                                                           ru для encrypt и decrypt)
+              --out <каталог>                              каталог для результатов: файлы каталогов и шаблонов
+                                                           записываются по путям внутри каталога или шаблона
+              --threads <число>                            количество потоков для обработки файлов
+                                                           и проверки ключей
+              --incremental                                обрабатывать только байты, дописанные в файлы
+                                                           после предыдущего запуска (для encrypt и decrypt)
+              --key-cache <файл>                           файл кеша найденных ключей: ключи одинаковых
+                                                           шифротекстов не ищутся повторно (для bruteforce
+                                                           и analytics)
+              <файлы, каталоги или шаблоны, например logs/*.txt>""";
+
+    /** Режимы работы. */
+    private static final String ENCRYPT = "encrypt";
+    private static final String DECRYPT = "decrypt";
+    private static final String BRUTE_FORCE = "bruteforce";
+    private static final String ANALYTICS = "analytics";
+
+    /** Значение параметра --profile для автоматического определения профиля. */
+    private static final String AUTO = "auto";
+
+    /** Объект для работы с файлами. */
+    private final FileManager fileManager;
+
+    /** Реестр профилей языков. */
+    private final ProfileRegistry profileRegistry;
+
+    /** Объект для определения профиля языка файла. */
+    private final ProfileDetector profileDetector;
+
+    /** Объект для определения ключа по выборке из файла. */
+    private final SampledKeySearch sampledKeySearch;
+
+    /** Кеш индексов репрезентативных текстов. */
+    private final ReferenceIndexCache referenceIndexCache;
+
+    /**
+     * Конструктор класса BatchRunner.
+     *
+     * @param fileManager Объект для работы с файлами.
+     * @param profileRegistry Реестр профилей языков.
+     * @param profileDetector Объект для определения профиля языка файла.
+     * @param sampledKeySearch Объект для определения ключа по выборке из файла.
+     * @param referenceIndexCache Кеш индексов репрезентативных текстов.
+     */
+    public BatchRunner(FileManager fileManager, ProfileRegistry profileRegistry, ProfileDetector profileDetector,
+                       SampledKeySearch sampledKeySearch, ReferenceIndexCache referenceIndexCache)
+    {
+        this.fileManager = fileManager;
+        this.profileRegistry = profileRegistry;
+        this.profileDetector = profileDetector;
+        this.sampledKeySearch = sampledKeySearch;
+        this.referenceIndexCache = referenceIndexCache;
+    }
+
+    /**
+     * Разбирает аргументы, обрабатывает все входные файлы и выводит сводку.
+     *
+     * @param args Аргументы командной строки.
+     * @return true, если все файлы обработаны успешно.
+     * @throws InvalidArgumentException если аргументы некорректны.
+     */
+    public boolean run(String[] args) throws InvalidArgumentException
+    {
+        Options options = Options.parse(args);
+        List<BatchFile> inputs = resolveInputs(options.inputs());
+        ReferenceIndex reference = readReference(options);
+        AlphabetProfile profile = options.profile().equals(AUTO) ? null : readProfile(options);
+        KeyCache keyCache = readKeyCache(options);
+        Map<AlphabetProfile, Decrypters> decrypters = new ConcurrentHashMap<>();
+
+        try
+        {
+            Files.createDirectories(options.outputDirectory());
+        }
+        catch (IOException e)
+        {
+            throw new InvalidArgumentException("Не удалось создать каталог " + options.outputDirectory());
+        }
+
+        List<FileResult> results = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(options.threads());
+        try
+        {
+            CompletionService<FileResult> tasks = new ExecutorCompletionService<>(pool);
+            for (BatchFile input : inputs)
+            {
+                tasks.submit(() -> process(input, options, reference, profile, keyCache, decrypters, pool));
+            }
+
+            printHeader();
+            for (int i = 0; i < inputs.size(); i++)
+            {
+                FileResult result = awaitNext(tasks);
+                printResult(result);
+                results.add(result);
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+
+        saveKeyCache(options, keyCache);
+        printTotal(results);
+        return results.stream().allMatch(FileResult::success);
+    }
+
+    /**
+     * Обрабатывает один файл и измеряет время обработки.
+     *
+     * @param file Входной файл и путь его результата.
+     * @param options Параметры запуска.
+     * @param reference Индекс репрезентативного текста, либо null.
+     * @param profile Профиль языка задания, либо null, если профиль определяется для каждого файла.
+     * @param keyCache Кеш найденных ключей.
+     * @param decrypters Дешифраторы, созданные для профилей языков в этом задании.
+     * @param pool Пул потоков задания, на котором проверяются ключи при переборе.
+     * @return Результат обработки файла.
+     */
+    private FileResult process(BatchFile file, Options options, ReferenceIndex reference, AlphabetProfile profile,
+                               KeyCache keyCache, Map<AlphabetProfile, Decrypters> decrypters, ExecutorService pool)
+    {
+        long start = System.nanoTime();
+        Path input = file.input();
+        long bytes;
+        String status;
+        boolean success = false;
+
+        try
+        {
+            bytes = Files.size(input);
+            Path output = options.outputDirectory().resolve(file.output());
+            Files.createDirectories(output.getParent());
+            if (Files.notExists(output))
+            {
+                Files.createFile(output);
+            }
+
+            // Профиль определяется до поиска ключа, чтобы ключ искался только для одного алфавита.
+            AlphabetProfile fileProfile = profile != null ? profile : profileDetector.detect(input);
+            Decrypters fileDecrypters = decrypters.computeIfAbsent(fileProfile,
+                    newProfile -> createDecrypters(newProfile, keyCache, pool));
+
+            CompiledCipher cipher;
+            switch (options.mode())
+            {
+                case ENCRYPT ->
+                {
+                    cipher = CompiledCipher.of(fileProfile, options.key());
+                    status = fileProfile + ", ключ " + options.key();
+                }
+                case DECRYPT ->
+                {
+                    cipher = fileDecrypters.decrypter().compile(options.key());
+                    status = fileProfile + ", ключ " + options.key();
+                }
+                default ->
+                {
+                    KeyEstimate estimate = options.mode().equals(BRUTE_FORCE)
+                            ? sampledKeySearch.byBruteForce(input, fileDecrypters.byBruteForce(), reference)
+                            : sampledKeySearch.byAnalytics(input, fileDecrypters.byAnalytics());
+                    cipher = fileDecrypters.decrypter().compile(estimate.key());
+                    status = String.format("%s, ключ %d (уверенность %.0f%%)", fileProfile, estimate.key(),
+                            estimate.confidence() * 100);
+                }
+            }
+
+            if (options.incremental())
+            {
+                bytes = fileManager.transformAppendedData(input.toString(), output.toString(), cipher);
+                success = bytes >= 0;
+                status += ", обработано новых байт: " + bytes;
+            }
+            else
+            {
+                success = fileManager.transformData(input.toString(), output.toString(), cipher);
+            }
+            if (!success)
+            {
+                bytes = 0;
+                status = "ошибка записи";
+            }
+        }
+        catch (IOException e)
+        {
+            bytes = 0;
+            status = "ошибка чтения";
+        }
+        catch (NoCoincidenceException e)
+        {
+            bytes = 0;
+            status = "ключ не найден";
+        }
+
+        return new FileResult(input, bytes, System.nanoTime() - start, status, success);
+    }
+
+    /**
+     * Раскрывает входные аргументы в список файлов: каталоги заменяются содержащимися в них файлами,
+     * шаблоны - подходящими под них файлами. Для каждого файла определяется путь результата
+     * относительно каталога результатов.
+     *
+     * @param inputs Пути, каталоги или шаблоны.
+     * @return Список файлов без повторов.
+     * @throws InvalidArgumentException если не найдено ни одного файла или два файла соответствуют одному результату.
+     */
+    private List<BatchFile> resolveInputs(List<String> inputs) throws InvalidArgumentException
+    {
+        Map<Path, Path> files = new LinkedHashMap<>();
+
+        for (String input : inputs)
+        {
+            try
+            {
+                if (isGlob(input))
+                {
+                    Path base = globBase(input);
+                    for (Path file : matchGlob(input))
+                    {
+                        files.putIfAbsent(file, base.toString().isEmpty() ? file : base.relativize(file));
+                    }
+                }
+                else if (Files.isDirectory(Path.of(input)))
+                {
+                    Path directory = Path.of(input);
+                    try (Stream<Path> entries = Files.walk(directory))
+                    {
+                        entries.filter(Files::isRegularFile).sorted()
+                                .forEach(file -> files.putIfAbsent(file, directory.relativize(file)));
+                    }
+                }
+                else
+                {
+                    Validator.validateFileName(input);
+                    Path file = Path.of(input);
+                    files.putIfAbsent(file, file.getFileName());
+                }
+            }
+            catch (IOException | InvalidFileNameException e)
+            {
+                throw new InvalidArgumentException("Некорректный входной путь: " + input);
+            }
+        }
+
+        if (files.isEmpty())
+        {
+            throw new InvalidArgumentException("Не найдено ни одного входного файла");
+        }
+
+        Map<Path, Path> inputsByOutput = new HashMap<>();
+        List<BatchFile> batchFiles = new ArrayList<>(files.size());
+        for (Map.Entry<Path, Path> file : files.entrySet())
+        {
+            Path output = file.getValue().normalize();
+            Path previous = inputsByOutput.putIfAbsent(output, file.getKey());
+            if (previous != null)
+            {
+                throw new InvalidArgumentException("Файлы " + previous + " и " + file.getKey()
+                        + " записываются в один результат " + output);
+            }
+            batchFiles.add(new BatchFile(file.getKey(), output));
+        }
+        return batchFiles;
+    }
+
+    /**
+     * Проверяет, является ли аргумент шаблоном пути.
+     *
+     * @param input Аргумент.
+     * @return true, если аргумент содержит символы шаблона.
+     */
+    private boolean isGlob(String input)
+    {
+        return input.chars().anyMatch(letter -> "*?[{".indexOf(letter) != -1);
+    }
+
+    /**
+     * Определяет каталог, с которого начинается шаблон: часть пути до последнего разделителя
+     * перед первым символом шаблона.
+     *
+     * @param glob Шаблон пути.
+     * @return Каталог, либо пустой путь, если шаблон начинается в текущем каталоге.
+     */
+    private Path globBase(String glob)
+    {
+        int firstSpecial = 0;
+        while ("*?[{".indexOf(glob.charAt(firstSpecial)) == -1)
+        {
+            firstSpecial++;
+        }
+        int separator = glob.lastIndexOf('/', firstSpecial);
+        return separator == -1 ? Path.of("") : Path.of(glob.substring(0, separator + 1));
+    }
+
+    /**
+     * Находит файлы, подходящие под шаблон. Поиск начинается с каталога, предшествующего первому символу шаблона.
+     *
+     * @param glob Шаблон пути.
+     * @return Список подходящих файлов.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private List<Path> matchGlob(String glob) throws IOException
+    {
+        Path base = globBase(glob);
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+
+        try (Stream<Path> entries = Files.walk(base.toString().isEmpty() ? Path.of(".") : base))
+        {
+            return entries.filter(Files::isRegularFile)
+                    .map(path -> base.toString().isEmpty() ? Path.of(".").relativize(path) : path)
+                    .filter(matcher::matches)
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Получает индекс репрезентативного текста для режима перебора.
+     *
+     * @param options Параметры запуска.
+     * @return Индекс репрезентативного текста, либо null, если он не нужен.
+     * @throws InvalidArgumentException если файл с текстом некорректен.
+     */
+    private ReferenceIndex readReference(Options options) throws InvalidArgumentException
+    {
+        if (!options.mode().equals(BRUTE_FORCE))
+        {
+            return null;
+        }
+        try
+        {
+            Validator.validateFileName(options.reference());
+            return referenceIndexCache.get(Path.of(options.reference()));
+        }
+        catch (InvalidFileNameException | IOException | IllegalArgumentException e)
+        {
+            throw new InvalidArgumentException("Некорректный репрезентативный текст: " + options.reference());
+        }
+    }
+
+    /**
+     * Создает дешифраторы для профиля языка. Без кеша ключей аналитический дешифратор берется у объекта
+     * определения профиля, который уже мог построить его при выборе профиля.
+     *
+     * @param profile Профиль языка.
+     * @param keyCache Кеш найденных ключей.
+     * @param pool Пул потоков, на котором проверяются ключи при переборе.
+     * @return Дешифраторы.
+     */
+    private Decrypters createDecrypters(AlphabetProfile profile, KeyCache keyCache, ExecutorService pool)
+    {
+        DecrypterByAnalytics byAnalytics = keyCache == KeyCache.DISABLED
+                ? profileDetector.analyticsFor(profile)
+                : new DecrypterByAnalytics(profile, keyCache);
+        return new Decrypters(new Decrypter(profile),
+                new DecrypterByBruteForce(profile, pool, keyCache), byAnalytics);
+    }
+
+    /**
+     * Загружает кеш найденных ключей из файла, заданного параметром --key-cache.
+     *
+     * @param options Параметры запуска.
+     * @return Кеш ключей, либо {@link KeyCache#DISABLED}, если файл не задан.
+     * @throws InvalidArgumentException если файл кеша некорректен.
+     */
+    private KeyCache readKeyCache(Options options) throws InvalidArgumentException
+    {
+        if (options.keyCache() == null)
+        {
+            return KeyCache.DISABLED;
+        }
+        try
+        {
+            return KeyCache.load(options.keyCache(), KeyCache.DEFAULT_CAPACITY);
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new InvalidArgumentException("Некорректный кеш ключей: " + options.keyCache());
+        }
+    }
+
+    /**
+     * Сохраняет кеш найденных ключей в файл, заданный параметром --key-cache.
+     *
+     * @param options Параметры запуска.
+     * @param keyCache Кеш ключей.
+     */
+    private void saveKeyCache(Options options, KeyCache keyCache)
+    {
+        if (options.keyCache() == null)
+        {
+            return;
+        }
+        try
+        {
+            keyCache.save(options.keyCache());
+        }
+        catch (IOException e)
+        {
+            System.out.println("Не удалось сохранить кеш ключей " + options.keyCache());
+        }
+    }
+
+    /**
+     * Получает профиль языка задания.
+     *
+     * @param options Параметры запуска.
+     * @return Профиль языка.
+     * @throws InvalidArgumentException если профиль не найден или файл профиля некорректен.
+     */
+    private AlphabetProfile readProfile(Options options) throws InvalidArgumentException
+    {
+        try
+        {
+            return profileRegistry.get(options.profile());
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new InvalidArgumentException("Некорректный профиль языка: " + options.profile());
+        }
+    }
+
+    /**
+     * Ожидает результат обработки следующего завершившегося файла.
+     *
+     * @param tasks Задачи обработки файлов.
+     * @return Результат обработки файла.
+     */
+    private FileResult awaitNext(CompletionService<FileResult> tasks)
+    {
+        try
+        {
+            return tasks.take().get();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Пакетная обработка прервана", e);
+        }
+        catch (ExecutionException e)
+        {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Выводит заголовок таблицы результатов.
+     */
+    private void printHeader()
+    {
+        System.out.printf("%-40s %12s %10s %10s  %s%n", "Файл", "Байт", "мс", "МБ/с", "Результат");
+    }
+
+    /**
+     * Выводит время и скорость обработки одного файла.
+     *
+     * @param result Результат обработки файла.
+     */
+    private void printResult(FileResult result)
+    {
+        System.out.printf("%-40s %12d %10.1f %10.1f  %s%n", result.input(), result.bytes(),
+                result.nanos() / 1e6, throughput(result.bytes(), result.nanos()), result.status());
+        System.out.flush();
+    }
+
+    /**
+     * Выводит итог по всем файлам.
+     *
+     * @param results Результаты обработки файлов.
+     */
+    private void printTotal(List<FileResult> results)
+    {
+        long totalBytes = 0;
+        long totalNanos = 0;
+
+        for (FileResult result : results)
+        {
+            totalBytes += result.bytes();
+            totalNanos += result.nanos();
+        }
+        System.out.printf("Всего файлов: %d, байт: %d, суммарное время: %.1f мс, средняя скорость: %.1f МБ/с%n",
+                results.size(), totalBytes, totalNanos / 1e6, throughput(totalBytes, totalNanos));
+    }
+
+    /**
+     * Вычисляет скорость обработки.
+     *
+     * @param bytes Количество байт.
+     * @param nanos Время в наносекундах.
+     * @return Скорость в мегабайтах в секунду.
+     */
+    private static double throughput(long bytes, long nanos)
+    {
+        return nanos == 0 ? 0 : bytes / 1048576.0 / (nanos / 1e9);
+    }
+
+    /**
+     * Результат обработки одного файла.
+     *
+     * @param input Путь к входному файлу.
+     * @param bytes Размер файла в байтах (в инкрементальном режиме - количество обработанных новых байтов).
+     * @param nanos Время обработки в наносекундах.
+     * @param status Описание результата.
+     * @param success true, если файл обработан успешно.
+     */
+    private record FileResult(Path input, long bytes, long nanos, String status, boolean success)
+    {
+    }
+
+    /**
+     * Входной файл задания.
+     *
+     * @param input Путь к входному файлу.
+     * @param output Путь результата относительно каталога результатов.
+     */
+    private record BatchFile(Path input, Path output)
+    {
+    }
+
+    /**
+     * Дешифраторы для одного профиля языка.
+     *
+     * @param decrypter Дешифратор по ключу.
+     * @param byBruteForce Дешифратор перебором.
+     * @param byAnalytics Аналитический дешифратор.
+     */
+    private record Decrypters(Decrypter decrypter, DecrypterByBruteForce byBruteForce, DecrypterByAnalytics byAnalytics)
+    {
+    }
+
+    /**
+     * Параметры пакетного запуска.
+     *
+     * @param mode Режим работы.
+     * @param key Ключ для режимов encrypt и decrypt.
+     * @param reference Путь к репрезентативному тексту для режима bruteforce.
+     * @param profile Имя профиля языка, путь к файлу профиля или {@code AUTO}.
+     * @param outputDirectory Каталог для результатов.
+     * @param threads Количество потоков для обработки файлов и проверки ключей.
+     * @param incremental true, если обрабатываются только байты, дописанные после предыдущего запуска.
+     * @param keyCache Путь к файлу кеша найденных ключей, либо null.
+     * @param inputs Пути, каталоги или шаблоны входных файлов.
+     */
+    private record Options(String mode, int key, String reference, String profile, Path outputDirectory, int threads,
+                           boolean incremental, Path keyCache, List<String> inputs)
+    {
+        /**
+         * Разбирает аргументы командной строки.
+         *
+         * @param args Аргументы командной строки.
+         * @return Параметры запуска.
+         * @throws InvalidArgumentException если аргументы некорректны.
+         */
+        static Options parse(String[] args) throws InvalidArgumentException
+        {
+            String mode = null;
+            String key = null;
+            String reference = null;
+            String profile = null;
+            String outputDirectory = null;
+            int threads = Runtime.getRuntime().availableProcessors();
+            boolean incremental = false;
+            String keyCache = null;
+            List<String> inputs = new ArrayList<>();
+
+            for (int i = 0; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "--mode" -> mode = value(args, ++i);
+                    case "--key" -> key = value(args, ++i);
+                    case "--reference" -> reference = value(args, ++i);
+                    case "--profile" -> profile = value(args, ++i);
+                    case "--out" -> outputDirectory = value(args, ++i);
+                    case "--threads" -> threads = positive(args, ++i);
+                    case "--incremental" -> incremental = true;
+                    case "--key-cache" -> keyCache = value(args, ++i);
+                    default ->
+                    {
+                        if (args[i].startsWith("--"))
+                        {
+                            throw new InvalidArgumentException("Неизвестный параметр " + args[i]);
+                        }
+                        inputs.add(args[i]);
+                    }
+                }
+            }
+
+            if (mode == null || !List.of(ENCRYPT, DECRYPT, BRUTE_FORCE, ANALYTICS).contains(mode))
+            {
+                throw new InvalidArgumentException("Не задан или неизвестен режим работы (--mode)");
+            }
+            if ((mode.equals(ENCRYPT) || mode.equals(DECRYPT)) && key == null)
+            {
+                throw new InvalidArgumentException("Для режима " + mode + " необходим ключ (--key)");
+            }
+            if (mode.equals(BRUTE_FORCE) && reference == null)
+            {
+                throw new InvalidArgumentException("Для режима bruteforce необходим репрезентативный текст (--reference)");
+            }
+            if (incremental && !(mode.equals(ENCRYPT) || mode.equals(DECRYPT)))
+            {
+                throw new InvalidArgumentException("Инкрементальный режим (--incremental) доступен только для encrypt и decrypt");
+            }
+            if (outputDirectory == null)
+            {
+                throw new InvalidArgumentException("Не задан каталог для результатов (--out)");
+            }
+            if (profile == null)
+            {
+                profile = mode.equals(BRUTE_FORCE) || mode.equals(ANALYTICS) ? AUTO : ProfileRegistry.DEFAULT_PROFILE;
+            }
+
+            int cipherKey = key == null ? 0 : Validator.validateCipherKey(key);
+            return new Options(mode, cipherKey, reference, profile, Path.of(outputDirectory), threads, incremental,
+                    keyCache == null ? null : Path.of(keyCache), inputs);
+        }
+
+        /**
+         * Возвращает значение параметра.
+         *
+         * @param args Аргументы командной строки.
+         * @param index Индекс значения.
+         * @return Значение параметра.
+         * @throws InvalidArgumentException если значение отсутствует.
+         */
+        private static String value(String[] args, int index) throws InvalidArgumentException
+        {
+            if (index >= args.length)
+            {
+                throw new InvalidArgumentException("Не задано значение параметра " + args[index - 1]);
+            }
+            return args[index];
+        }
+
+        /**
+         * Возвращает положительное числовое значение параметра. В отличие от {@link Validator#validateAnswer(String)},
+         * ничего не выводит, поэтому об ошибке сообщается один раз.
+         *
+         * @param args Аргументы командной строки.
+         * @param index Индекс значения.
+         * @return Положительное целое значение параметра.
+         * @throws InvalidArgumentException если значение отсутствует, не является целым числом или не положительно.
+         */
+        private static int positive(String[] args, int index) throws InvalidArgumentException
+        {
+            String value = value(args, index);
+            int number;
+            try
+            {
+                number = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new InvalidArgumentException("Значение параметра " + args[index - 1] + " не является целым числом: "
+                        + value);
+            }
+            if (number <= 0)
+            {
+                throw new InvalidArgumentException("Значение параметра " + args[index - 1] + " должно быть положительным");
+            }
+            return number;
+        }
+    }
+}
@@ -1,17 +1,33 @@
 package model;
 
+import cipher.CompiledCipher;
 import cipher.DecrypterByAnalytics;
 import cipher.Decrypter;
 import cipher.DecrypterByBruteForce;
-import cipher.Encrypter;
+import cipher.DecrypterByNGrams;
+import cipher.KeyEstimate;
+import cipher.KeyRanking;
+import cipher.NGramModel;
+import cipher.ReferenceIndex;
+import cipher.ParallelCipherEngine;
 import exceptions.FileIsEmptyException;
+import exceptions.InvalidArgumentException;
 import exceptions.InvalidCipherKeyException;
 import exceptions.InvalidFileNameException;
 import exceptions.NoCoincidenceException;
 import exceptions.answer_exceptions.IncorrectAnswerException;
 import file_manager.FileManager;
+import file_manager.NGramModelCache;
+import file_manager.ProfileDetector;
+import file_manager.ReferenceIndexCache;
+import file_manager.SampledKeySearch;
+import profile.AlphabetProfile;
+import profile.BuiltInProfiles;
+import profile.ProfileRegistry;
 import validation.Validator;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 
@@ -22,28 +38,44 @@ import java.util.*;
  */
 public class MainApp
 {
-    /** Алфавит, используемый для шифрования и расшифровки. */
-    public static final List<Character> ALPHABET = Arrays.asList('а', 'б',
-            'в','г', 'д', 'е', 'ё', 'ж', 'з', 'и', 'й', 'к', 'л', 'м', 'н', 'о', 'п', 'р', 'с', 'т', 'у',
-            'ф', 'х', 'ц', 'ч', 'ш', 'щ', 'ъ', 'ы', 'ь', 'э', 'я', '.', ',', '«', '»', 'А', 'Б',
-            'В', 'Г', 'Д', 'Е', 'Ё', 'Ж', 'З', 'И', 'Й', 'К', 'Л', 'М', 'Н', 'О', 'П', 'Р', 'С', 'Т', 'У',
-            'Ф', 'Х', 'Ц', 'Ч', 'Ш', 'Щ', 'Ъ', 'Ы', 'Ь', 'Э', 'Ю', 'Я', ':', '!', '?', ' ', ';', '-');
+    /** Профиль языка, используемый для шифрования и расшифровки в интерактивном режиме. */
+    public static final AlphabetProfile PROFILE = BuiltInProfiles.RUSSIAN;
+
+    /** Реестр профилей языков, общий для всех пакетных заданий. */
+    private static final ProfileRegistry profileRegistry = new ProfileRegistry();
+
+    /** Объект для определения профиля языка зашифрованного файла. */
+    private static final ProfileDetector profileDetector = new ProfileDetector(profileRegistry);
 
     /** Сканер для получения ответов пользователя. */
     private static final Scanner userAnswer = new Scanner(System.in);
 
-    /** Объект для работы с файлами. */
-    private static final FileManager fileManager = new FileManager();
+    /** Объект для работы с файлами. Шифрование по ключу выполняется на всех доступных ядрах. */
+    private static final FileManager fileManager = new FileManager(
+            ParallelCipherEngine.withForkJoinPool(Runtime.getRuntime().availableProcessors()));
 
     /** Объекты для шифрования и расшифровки. */
-    private static final Encrypter encrypter = new Encrypter();
-    private static final Decrypter decrypter = new Decrypter(ALPHABET);
-    private static final DecrypterByBruteForce decrypterByBruteForce = new DecrypterByBruteForce(ALPHABET);
-    private static final DecrypterByAnalytics decrypterByAnalytics = new DecrypterByAnalytics(ALPHABET);
+    private static final Decrypter decrypter = new Decrypter(PROFILE);
+    private static final DecrypterByBruteForce decrypterByBruteForce = new DecrypterByBruteForce(PROFILE);
+
+    /** Объект для определения ключа больших файлов по выборке. */
+    private static final SampledKeySearch sampledKeySearch = new SampledKeySearch();
+
+    /** Кеш индексов репрезентативных текстов. */
+    private static final ReferenceIndexCache referenceIndexCache = new ReferenceIndexCache();
+
+    /** Кеш моделей триграмм. */
+    private static final NGramModelCache nGramModelCache = new NGramModelCache();
+
+    /** Размер файла (в байтах), начиная с которого ключ определяется по выборке из файла. */
+    private static final long SAMPLING_THRESHOLD = 1024 * 1024;
 
     /** Разделитель для визуального разделения в выводе программы. */
     private static final String DELIMITER = "*".repeat(50);
 
+    /** Уверенность, ниже которой пользователь предупреждается о возможной ошибке автоматической расшифровки. */
+    private static final double LOW_CONFIDENCE = 0.1;
+
     /** Флаг работы программы. */
     private static boolean isRunning = true;
 
@@ -58,13 +90,64 @@ public class MainApp
     private static final String REPRESENTATIVE = " репрезентативный";
 
     /**
-     * Основной метод программы, который запускает "отрисовку" интерфейса.
+     * Основной метод программы. Без аргументов запускает "отрисовку" интерфейса,
+     * с аргументами - пакетную обработку файлов без участия пользователя (см. {@link BatchRunner#USAGE}),
+     * с первым аргументом {@code stream} - потоковое шифрование для конвейера (см. {@link StreamRunner#USAGE}).
      *
-     * @param args Аргументы командной строки (не используются).
+     * @param args Аргументы командной строки для пакетного режима.
      */
     public static void main(String[] args)
     {
-        drawInterface();
+        if (args.length == 0)
+        {
+            drawInterface();
+            return;
+        }
+
+        if (args[0].equals(StreamRunner.COMMAND))
+        {
+            runStream(args);
+            return;
+        }
+
+        try
+        {
+            BatchRunner batchRunner = new BatchRunner(fileManager, profileRegistry, profileDetector,
+                    sampledKeySearch, referenceIndexCache);
+            if (!batchRunner.run(args))
+            {
+                System.exit(1);
+            }
+        }
+        catch (InvalidArgumentException | InvalidCipherKeyException e)
+        {
+            System.out.println(e.getMessage());
+            System.out.println(BatchRunner.USAGE);
+            System.exit(2);
+        }
+    }
+
+    /**
+     * Запускает потоковый режим (см. {@link StreamRunner#USAGE}). Данные выводятся в стандартный вывод,
+     * поэтому сообщения об ошибках аргументов выводятся в стандартный поток ошибок.
+     *
+     * @param args Аргументы командной строки для потокового режима.
+     */
+    private static void runStream(String[] args)
+    {
+        try
+        {
+            if (!new StreamRunner(profileRegistry).run(args))
+            {
+                System.exit(1);
+            }
+        }
+        catch (InvalidArgumentException | InvalidCipherKeyException e)
+        {
+            System.err.println(e.getMessage());
+            System.err.println(StreamRunner.USAGE);
+            System.exit(2);
+        }
     }
 
 
@@ -155,16 +238,17 @@ public class MainApp
 
     /**
      * Метод для шифрования файла с использованием ключа.
+     * Файл шифруется потоково, без загрузки всего содержимого в память.
      */
     public static void encryptFile()
     {
 
-        List<String> data = null;
+        String inputFileName;
         int key = 0;
 
         try
         {
-            data = receiveFile("",ENCRYPT);
+            inputFileName = receiveFileName("", ENCRYPT);
             key = receiveKey();
 
         }
@@ -173,21 +257,21 @@ public class MainApp
             System.out.println(e.getMessage());
             return;
         }
-        List<String> encryptedData = encrypter.encrypt(ALPHABET, data, key);
-        sendDataToFile(encryptedData, ENCRYPTED);
+        sendStreamToFile(inputFileName, CompiledCipher.of(PROFILE, key), ENCRYPTED);
 
     }
 
     /**
      * Метод для расшифровки файла по ключу.
+     * Файл расшифровывается потоково, без загрузки всего содержимого в память.
      */
     public static void decryptFileByKey()
     {
-        List<String> encryptedData = null;
+        String inputFileName;
         int key;
         try
         {
-            encryptedData = receiveFile("", DECRYPT);
+            inputFileName = receiveFileName("", DECRYPT);
             key = receiveKey();
         }
         catch (InvalidFileNameException | FileIsEmptyException | InvalidCipherKeyException e)
@@ -197,22 +281,22 @@ public class MainApp
         }
 
         String fileName = receiveOutputFileName();
-        List<String> decryptedData = decrypter.decrypt(encryptedData, key);
-        sendDataToFile(decryptedData, DECRYPTED, fileName);
+        sendStreamToFile(inputFileName, decrypter.compile(key), DECRYPTED, fileName);
     }
 
     /**
      * Метод для расшифровки файла способом "грубого перебора".
+     * Для больших файлов ключ определяется по выборке из файла, после чего файл расшифровывается потоково.
      */
     public static void decryptFileByBruteForce()
     {
-        List<String> encryptedData;
-        List<String> representativeData;
-        List<List<String>> decryptedData;
+        String encryptedFileName;
+        String representativeFileName;
+        KeyRanking ranking;
         try
         {
-            encryptedData = receiveFile("", DECRYPT);
-            representativeData = receiveFile(REPRESENTATIVE, "использовать");
+            encryptedFileName = receiveFileName("", DECRYPT);
+            representativeFileName = receiveFileName(REPRESENTATIVE, "использовать");
         }
         catch (InvalidFileNameException | FileIsEmptyException e)
         {
@@ -222,20 +306,36 @@ public class MainApp
 
         try
         {
-            decryptedData = decrypterByBruteForce.decrypt(encryptedData, representativeData);
+            ReferenceIndex reference = referenceIndexCache.get(Path.of(representativeFileName));
+            if (isLargeFile(encryptedFileName))
+            {
+                sendSampledResult(encryptedFileName,
+                        sampledKeySearch.byBruteForce(Path.of(encryptedFileName), decrypterByBruteForce, reference),
+                        PROFILE);
+                return;
+            }
+            ranking = decrypterByBruteForce.rank(fileManager.getData(encryptedFileName), reference);
 
         }
-        catch (NoCoincidenceException e)
+        catch (InvalidFileNameException | FileIsEmptyException | NoCoincidenceException | IllegalArgumentException e)
         {
             System.out.println(e.getMessage());
             return;
         }
+        catch (IOException e)
+        {
+            System.out.println("Файл не найден!");
+            return;
+        }
 
-        checkIfMultipleAndSend(decryptedData);
+        sendRanking(ranking);
     }
 
     /**
      * Метод для расшифровки файла с использованием аналитического способа.
+     * Если указан репрезентативный текст или файл модели, ключ определяется по модели триграмм,
+     * иначе - по частоте отдельных букв. Перед поиском ключа по выборке из файла определяется профиль языка.
+     * Для больших файлов ключ определяется по выборке из файла, после чего файл расшифровывается потоково.
      */
     public static void decryptFileByAnalytics()
     {
@@ -244,11 +344,13 @@ public class MainApp
                       Предупреждение:
         Метод расшифровки, основанный на статистическом
               анализе, может быть некорректным!""");
-        List<String> encryptedData;
-        List<List<String>> decryptedData;
+        String encryptedFileName;
+        String modelFileName;
+        KeyRanking ranking;
         try
         {
-            encryptedData = receiveFile("", DECRYPT);
+            encryptedFileName = receiveFileName("", DECRYPT);
+            modelFileName = receiveModelFileName();
         }
         catch (InvalidFileNameException | FileIsEmptyException e)
         {
@@ -258,32 +360,105 @@ public class MainApp
 
         try
         {
-            decryptedData = decrypterByAnalytics.decrypt(encryptedData);
+            AlphabetProfile profile = profileDetector.detect(Path.of(encryptedFileName));
+            System.out.println("Язык текста: " + profile);
+            DecrypterByAnalytics decrypterByAnalytics = profileDetector.analyticsFor(profile);
+            DecrypterByNGrams decrypterByNGrams = new DecrypterByNGrams(profile);
+
+            NGramModel model = modelFileName.isEmpty() ? null : nGramModelCache.get(Path.of(modelFileName));
+            if (isLargeFile(encryptedFileName))
+            {
+                sendSampledResult(encryptedFileName, model == null
+                        ? sampledKeySearch.byAnalytics(Path.of(encryptedFileName), decrypterByAnalytics)
+                        : sampledKeySearch.byNGrams(Path.of(encryptedFileName), decrypterByNGrams, model), profile);
+                return;
+            }
+            List<String> encryptedData = fileManager.getData(encryptedFileName);
+            ranking = model == null
+                    ? decrypterByAnalytics.rank(encryptedData)
+                    : decrypterByNGrams.rank(encryptedData, model);
 
         }
-        catch (NoCoincidenceException e)
+        catch (InvalidFileNameException | FileIsEmptyException | NoCoincidenceException | IllegalArgumentException e)
         {
             System.out.println(e.getMessage());
             return;
         }
+        catch (IOException e)
+        {
+            System.out.println("Файл не найден!");
+            return;
+        }
+
+        sendRanking(ranking);
+
+    }
+
+    /**
+     * Метод для получения пути к репрезентативному тексту или файлу модели триграмм.
+     *
+     * @return Путь к существующему непустому файлу, либо пустая строка, если модель не нужна.
+     * @throws InvalidFileNameException Если имя файла некорректно.
+     * @throws FileIsEmptyException Если файл пустой.
+     */
+    private static String receiveModelFileName() throws InvalidFileNameException, FileIsEmptyException
+    {
+        System.out.println(DELIMITER);
+        System.out.print("""
+                Пожалуйста введите путь к репрезентативному тексту
+                или файлу модели (.ngm) для анализа сочетаний букв,
+                либо оставьте строку пустой для анализа частоты букв:
+                """);
+        String fileName = userAnswer.nextLine();
+        if (fileName.isEmpty())
+        {
+            return fileName;
+        }
+        Validator.validateFileName(fileName);
+        Validator.validateFileSize(fileName);
+        return fileName;
+    }
 
-        checkIfMultipleAndSend(decryptedData);
+    /**
+     * Проверяет, достаточно ли велик файл, чтобы определять ключ по выборке, а не по всему файлу.
+     *
+     * @param fileName Имя файла.
+     * @return true, если размер файла не меньше {@code SAMPLING_THRESHOLD}.
+     * @throws IOException если не удалось определить размер файла.
+     */
+    private static boolean isLargeFile(String fileName) throws IOException
+    {
+        return Files.size(Path.of(fileName)) >= SAMPLING_THRESHOLD;
+    }
 
+    /**
+     * Выводит найденный по выборке ключ и потоково расшифровывает им файл.
+     *
+     * @param encryptedFileName Имя зашифрованного файла.
+     * @param estimate Оценка ключа.
+     * @param profile Профиль языка, для алфавита которого найден ключ.
+     */
+    private static void sendSampledResult(String encryptedFileName, KeyEstimate estimate, AlphabetProfile profile)
+    {
+        System.out.println(DELIMITER);
+        System.out.printf("Найден ключ %d (уверенность %.0f%%)%n", estimate.key(), estimate.confidence() * 100);
+        String fileName = receiveOutputFileName();
+        sendStreamToFile(encryptedFileName, CompiledCipher.of(profile, -estimate.key()), DECRYPTED, fileName);
     }
 
     /**
-     * Метод для получения файла, который необходимо зашифровать или расшифровать.
+     * Метод для получения пути к файлу, который необходимо зашифровать или расшифровать.
      * Если необходим репрезентативный текст, то первым параметром передать
      * поле {@code REPRESENTATIVE}. Если нет - пустую строку.
      * Если необходимо зашифровать, то вторым параметром передать поле {@code ENCRYPT}, если
      * расшифровать - поле {@code DECRYPT}.
      * @param representative Необходим репрезентативный текст.
      * @param choice Операция с файлом ("зашифровать" или "расшифровать").
-     * @return Содержимое файла в виде списка строк.
+     * @return Путь к существующему непустому файлу.
      * @throws InvalidFileNameException Если имя файла некорректно.
      * @throws FileIsEmptyException Если файл пустой.
      */
-    private static List<String> receiveFile(String representative, String choice) throws InvalidFileNameException, FileIsEmptyException
+    private static String receiveFileName(String representative, String choice) throws InvalidFileNameException, FileIsEmptyException
     {
         System.out.println(DELIMITER);
         System.out.printf("""
@@ -291,7 +466,9 @@ public class MainApp
                 который необходимо %s:
                 """, representative, choice);
         String fileName = userAnswer.nextLine();
-        return fileManager.getData(fileName);
+        Validator.validateFileName(fileName);
+        Validator.validateFileSize(fileName);
+        return fileName;
     }
 
     /**
@@ -324,13 +501,42 @@ public class MainApp
     }
 
     /**
-     * Метод для записи данных в файл.
+     * Метод для записи данных в файл с заданным именем.
      * Если файл был расшифрован, то вторым параметром передать поле {@code ENCRYPTED},
      * если зашифрован - {@code DECRYPTED}.
      * @param data Данные для записи.
      * @param choice Статус файла (например, "зашифрован" или "расшифрован").
+     * @param fileName Имя файла.
+     */
+    private static void sendDataToFile(List<String> data, String choice, String fileName)
+    {
+        while (!isWritten)
+        {
+            isWritten = fileManager.writeData(fileName, data);
+            if (isWritten)
+            {
+                continue;
+            }
+            fileName = receiveOutputFileName();
+            if (fileName.equals("exit"))
+            {
+                isRunning = false;
+                return;
+            }
+        }
+
+        System.out.printf("Файл %s%n", choice);
+    }
+
+    /**
+     * Метод для потокового преобразования файла с записью результата в файл, путь к которому запрашивается у пользователя.
+     * Если файл был расшифрован, то третьим параметром передать поле {@code DECRYPTED},
+     * если зашифрован - {@code ENCRYPTED}.
+     * @param inputFileName Имя исходного файла.
+     * @param cipher Шифр для преобразования.
+     * @param choice Статус файла (например, "зашифрован" или "расшифрован").
      */
-    private static void sendDataToFile(List<String> data, String choice)
+    private static void sendStreamToFile(String inputFileName, CompiledCipher cipher, String choice)
     {
         String fileName;
         while (!isWritten)
@@ -341,25 +547,26 @@ public class MainApp
                 isRunning = false;
                 return;
             }
-            isWritten = fileManager.writeData(fileName, data);
+            isWritten = fileManager.transformData(inputFileName, fileName, cipher);
         }
 
         System.out.printf("Файл %s%n", choice);
     }
 
     /**
-     * Метод для записи данных в файл с заданным именем.
-     * Если файл был расшифрован, то вторым параметром передать поле {@code ENCRYPTED},
-     * если зашифрован - {@code DECRYPTED}.
-     * @param data Данные для записи.
+     * Метод для потокового преобразования файла с записью результата в файл с заданным именем.
+     * Если файл был расшифрован, то третьим параметром передать поле {@code DECRYPTED},
+     * если зашифрован - {@code ENCRYPTED}.
+     * @param inputFileName Имя исходного файла.
+     * @param cipher Шифр для преобразования.
      * @param choice Статус файла (например, "зашифрован" или "расшифрован").
      * @param fileName Имя файла.
      */
-    private static void sendDataToFile(List<String> data, String choice, String fileName)
+    private static void sendStreamToFile(String inputFileName, CompiledCipher cipher, String choice, String fileName)
     {
         while (!isWritten)
         {
-            isWritten = fileManager.writeData(fileName, data);
+            isWritten = fileManager.transformData(inputFileName, fileName, cipher);
             if (isWritten)
             {
                 continue;
@@ -377,39 +584,54 @@ public class MainApp
 
     /**
      * Метод для записи нескольких вариантов расшифровки в файл.
+     * Каждый вариант расшифровывается непосредственно перед записью, поэтому в памяти находится только один вариант.
      *
-     * @param decryptedData Данные для записи.
+     * @param ranking Рейтинг ключей.
+     * @param candidates Ключи, варианты расшифровки которых записываются.
      * @param fileName Имя файла.
      */
-    private static void sendMultipleDataToFile(List<List<String>> decryptedData, String fileName)
+    private static void sendMultipleDataToFile(KeyRanking ranking, List<KeyRanking.Candidate> candidates, String fileName)
     {
         List<String> delimiter = Collections.singletonList(DELIMITER + "\n");
 
-        for (List<String> variation : decryptedData)
+        for (KeyRanking.Candidate candidate : candidates)
         {
-            fileManager.writeData(fileName, variation);
+            fileManager.writeData(fileName, ranking.decrypt(candidate));
             fileManager.writeData(fileName, delimiter);
         }
     }
 
 
     /**
-     * Проверяет, содержит ли список несколько вариантов расшифровки и сохраняет данные в файл.
-     * Если в списке только один элемент, то данные записываются в файл без разделителей.
-     * Если элементов несколько, каждый вариант записывается в файл с разделителями между ними.
+     * Выводит рейтинг ключей и сохраняет расшифровку в файл.
+     * Если лучший ключ единственный, в файл записывается только его вариант расшифровки.
+     * Если несколько ключей одинаково хороши, каждый вариант записывается в файл с разделителями между ними.
      *
-     * @param decryptedData Список с вариантами расшифровки данных. Каждый элемент списка представляет собой отдельную строку или блок данных.
+     * @param ranking Рейтинг ключей.
      */
-    private static void checkIfMultipleAndSend(List<List<String>> decryptedData)
+    private static void sendRanking(KeyRanking ranking)
     {
+        System.out.println(DELIMITER);
+        System.out.println("Лучшие ключи:");
+        for (KeyRanking.Candidate candidate : ranking.candidates())
+        {
+            System.out.printf("  ключ %d - оценка %.3f%n", candidate.key(), candidate.score());
+        }
+        System.out.printf("Уверенность: %.0f%%%n", ranking.confidence() * 100);
+        if (!ranking.isConfident(LOW_CONFIDENCE))
+        {
+            System.out.println("Уверенность низкая, проверьте результат расшифровки!");
+        }
+
         String fileName = receiveOutputFileName();
-        if (decryptedData.size() == 1)
+        List<KeyRanking.Candidate> best = ranking.tiedBest();
+        if (best.size() == 1)
         {
-            sendDataToFile(decryptedData.get(0), DECRYPTED, fileName);
+            sendDataToFile(ranking.decrypt(best.getFirst()), DECRYPTED, fileName);
         }
         else
         {
-            sendMultipleDataToFile(decryptedData, fileName);
+            sendMultipleDataToFile(ranking, best, fileName);
         }
     }
 }
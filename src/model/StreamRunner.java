@@ -0,0 +1,274 @@
+package model;
+
+import cipher.CompiledCipher;
+import exceptions.InvalidArgumentException;
+import exceptions.InvalidFileNameException;
+import file_manager.StreamTransformer;
+import profile.AlphabetProfile;
+import profile.ProfileRegistry;
+import validation.Validator;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Класс StreamRunner реализует потоковый режим для использования шифра в конвейере: данные читаются
+ * со стандартного ввода или из файла, за которым выполняется слежение, шифруются или расшифровываются
+ * по мере поступления фиксированным ключом и записываются в стандартный вывод.
+ * Сообщения об ошибках выводятся в стандартный поток ошибок, чтобы не смешиваться с данными.
+ */
+public class StreamRunner
+{
+    /** Первый аргумент командной строки, включающий потоковый режим. */
+    public static final String COMMAND = "stream";
+
+    /** Описание аргументов командной строки. */
+    public static final String USAGE = """
+            Использование:
+              stream --mode encrypt|decrypt --key <число> [параметры]
+              --profile <имя или файл>                     профиль языка: ru, ru-full, en, uk или файл профиля
+                                                           (по умолчанию ru)
+              --follow <файл>                              следить за файлом, как tail -f (по умолчанию - стандартный ввод)
+              --latency <мс>                               максимальная задержка вывода (по умолчанию 200, 0 - выводить
+                                                           после каждого чтения)
+              --batch <байт>                               размер пакета, который выводится сразу (по умолчанию 65536)""";
+
+    /** Режимы работы. */
+    private static final String ENCRYPT = "encrypt";
+    private static final String DECRYPT = "decrypt";
+
+    /** Значения по умолчанию для задержки (в миллисекундах) и размера пакета (в байтах). */
+    private static final int DEFAULT_LATENCY = 200;
+    private static final int DEFAULT_BATCH = 64 * 1024;
+
+    /** Время (в секундах), в течение которого при завершении JVM ожидается запись оставшихся данных. */
+    private static final long SHUTDOWN_TIMEOUT = 2;
+
+    /** Реестр профилей языков. */
+    private final ProfileRegistry profileRegistry;
+
+    /**
+     * Конструктор класса StreamRunner.
+     *
+     * @param profileRegistry Реестр профилей языков.
+     */
+    public StreamRunner(ProfileRegistry profileRegistry)
+    {
+        this.profileRegistry = profileRegistry;
+    }
+
+    /**
+     * Разбирает аргументы и шифрует поток до конца стандартного ввода или до завершения JVM при слежении за файлом.
+     *
+     * @param args Аргументы командной строки (первый аргумент - {@code COMMAND}).
+     * @return true, если поток обработан без ошибок.
+     * @throws InvalidArgumentException если аргументы некорректны.
+     */
+    public boolean run(String[] args) throws InvalidArgumentException
+    {
+        Options options = Options.parse(args);
+        CompiledCipher cipher = CompiledCipher.of(readProfile(options),
+                options.mode().equals(ENCRYPT) ? options.key() : -options.key());
+        StreamTransformer transformer = new StreamTransformer(options.latency(), options.batch());
+        CountDownLatch finished = new CountDownLatch(1);
+
+        // При завершении JVM (например, по Ctrl+C) накопленный пакет записывается до выхода.
+        Thread shutdownHook = new Thread(() -> stop(transformer, finished));
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+
+        try (FileChannel output = new FileOutputStream(FileDescriptor.out).getChannel())
+        {
+            if (options.follow() != null)
+            {
+                transformer.follow(options.follow(), output, cipher);
+            }
+            else
+            {
+                transformer.transform(new FileInputStream(FileDescriptor.in).getChannel(), output, cipher);
+            }
+            return true;
+        }
+        catch (IOException e)
+        {
+            System.err.println("Ошибка потоковой обработки: " + e.getMessage());
+            return false;
+        }
+        finally
+        {
+            finished.countDown();
+            try
+            {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            }
+            catch (IllegalStateException e)
+            {
+                // JVM уже завершается, обработчик выполняется.
+            }
+        }
+    }
+
+    /**
+     * Останавливает обработку и ожидает ее завершения.
+     *
+     * @param transformer Объект потоковой обработки.
+     * @param finished Признак завершения обработки.
+     */
+    private static void stop(StreamTransformer transformer, CountDownLatch finished)
+    {
+        try
+        {
+            transformer.stop();
+            finished.await(SHUTDOWN_TIMEOUT, TimeUnit.SECONDS);
+        }
+        catch (IOException e)
+        {
+            System.err.println("Не удалось записать оставшиеся данные: " + e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Получает профиль языка.
+     *
+     * @param options Параметры запуска.
+     * @return Профиль языка.
+     * @throws InvalidArgumentException если профиль не найден или файл профиля некорректен.
+     */
+    private AlphabetProfile readProfile(Options options) throws InvalidArgumentException
+    {
+        try
+        {
+            return profileRegistry.get(options.profile());
+        }
+        catch (IOException | IllegalArgumentException e)
+        {
+            throw new InvalidArgumentException("Некорректный профиль языка: " + options.profile());
+        }
+    }
+
+    /**
+     * Параметры потокового запуска.
+     *
+     * @param mode Режим работы.
+     * @param key Ключ.
+     * @param profile Имя профиля языка или путь к файлу профиля.
+     * @param follow Файл, за которым выполняется слежение, либо null для стандартного ввода.
+     * @param latency Максимальная задержка вывода в миллисекундах.
+     * @param batch Размер пакета в байтах.
+     */
+    private record Options(String mode, int key, String profile, Path follow, int latency, int batch)
+    {
+        /**
+         * Разбирает аргументы командной строки.
+         *
+         * @param args Аргументы командной строки.
+         * @return Параметры запуска.
+         * @throws InvalidArgumentException если аргументы некорректны.
+         */
+        static Options parse(String[] args) throws InvalidArgumentException
+        {
+            String mode = null;
+            String key = null;
+            String profile = ProfileRegistry.DEFAULT_PROFILE;
+            String follow = null;
+            int latency = DEFAULT_LATENCY;
+            int batch = DEFAULT_BATCH;
+
+            for (int i = 1; i < args.length; i++)
+            {
+                switch (args[i])
+                {
+                    case "--mode" -> mode = value(args, ++i);
+                    case "--key" -> key = value(args, ++i);
+                    case "--profile" -> profile = value(args, ++i);
+                    case "--follow" -> follow = value(args, ++i);
+                    case "--latency" -> latency = nonNegative(args, ++i);
+                    case "--batch" -> batch = nonNegative(args, ++i);
+                    default -> throw new InvalidArgumentException("Неизвестный параметр " + args[i]);
+                }
+            }
+
+            if (mode == null || !(mode.equals(ENCRYPT) || mode.equals(DECRYPT)))
+            {
+                throw new InvalidArgumentException("Не задан или неизвестен режим работы (--mode)");
+            }
+            if (key == null)
+            {
+                throw new InvalidArgumentException("Для режима " + mode + " необходим ключ (--key)");
+            }
+            if (batch < 4)
+            {
+                throw new InvalidArgumentException("Размер пакета должен быть не меньше 4 байт (--batch)");
+            }
+            if (follow != null)
+            {
+                try
+                {
+                    Validator.validateFileName(follow);
+                }
+                catch (InvalidFileNameException e)
+                {
+                    throw new InvalidArgumentException("Некорректный файл для слежения: " + follow);
+                }
+            }
+
+            return new Options(mode, Validator.validateCipherKey(key), profile, follow == null ? null : Path.of(follow),
+                    latency, batch);
+        }
+
+        /**
+         * Возвращает значение параметра.
+         *
+         * @param args Аргументы командной строки.
+         * @param index Индекс значения.
+         * @return Значение параметра.
+         * @throws InvalidArgumentException если значение отсутствует.
+         */
+        private static String value(String[] args, int index) throws InvalidArgumentException
+        {
+            if (index >= args.length)
+            {
+                throw new InvalidArgumentException("Не задано значение параметра " + args[index - 1]);
+            }
+            return args[index];
+        }
+
+        /**
+         * Возвращает числовое значение параметра. В отличие от {@link Validator#validateAnswer(String)},
+         * ничего не выводит: стандартный вывод потокового режима занят данными.
+         *
+         * @param args Аргументы командной строки.
+         * @param index Индекс значения.
+         * @return Неотрицательное целое значение параметра.
+         * @throws InvalidArgumentException если значение отсутствует, не является целым числом или отрицательно.
+         */
+        private static int nonNegative(String[] args, int index) throws InvalidArgumentException
+        {
+            String value = value(args, index);
+            int number;
+            try
+            {
+                number = Integer.parseInt(value);
+            }
+            catch (NumberFormatException e)
+            {
+                throw new InvalidArgumentException("Значение параметра " + args[index - 1] + " не является целым числом: "
+                        + value);
+            }
+            if (number < 0)
+            {
+                throw new InvalidArgumentException("Значение параметра " + args[index - 1] + " не может быть отрицательным");
+            }
+            return number;
+        }
+    }
+}
@@ -0,0 +1,285 @@
+package profile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Класс AlphabetProfile описывает язык шифруемых текстов: алфавит шифра, статистическую частоту букв
+ * и заранее построенную таблицу индексов, по которой позиция символа в алфавите находится одним обращением к массиву.
+ * Профиль неизменяем и может использоваться из нескольких потоков.
+ * <p>
+ * Формат файла профиля: сигнатура {@code CRPF} (int), версия (int), длина имени (int) и символы имени (char),
+ * количество букв алфавита (int) и буквы (char), количество частот (int) и пары "буква (char), частота (double)".
+ * Таблица индексов в файл не записывается: при загрузке она строится по буквам алфавита, как в
+ * {@link #of(String, String, Map)}. Файлы версии 1 дополнительно содержат длину таблицы (int) и ее элементы (int);
+ * такие файлы загружаются, а таблица из них проверяется только на длину и не используется.
+ * Файл с лишними или недостающими байтами считается поврежденным.
+ */
+public final class AlphabetProfile
+{
+    /**
+     * Сигнатура файла профиля.
+     */
+    private static final int MAGIC = 0x43525046;
+
+    /**
+     * Версия формата.
+     */
+    private static final int VERSION = 2;
+
+    /**
+     * Версия формата, в которой после частот записана таблица индексов.
+     */
+    private static final int VERSION_WITH_INDEX = 1;
+
+    /**
+     * Имя профиля (например, "ru").
+     */
+    private final String name;
+
+    /**
+     * Буквы алфавита в порядке сдвига.
+     */
+    private final char[] letters;
+
+    /**
+     * Статистические частоты (в процентах) строчных букв и некоторых символов языка.
+     */
+    private final Map<Character, Double> frequencies;
+
+    /**
+     * Таблица индексов: элемент с индексом {@code c} содержит позицию символа {@code c} в алфавите, либо -1.
+     */
+    private final int[] letterIndex;
+
+    /**
+     * Закрытый конструктор. Для создания экземпляра используйте {@link #of(String, String, Map)} или {@link #load(Path)}.
+     *
+     * @param name Имя профиля.
+     * @param letters Буквы алфавита.
+     * @param frequencies Статистические частоты.
+     * @param letterIndex Таблица индексов.
+     */
+    private AlphabetProfile(String name, char[] letters, Map<Character, Double> frequencies, int[] letterIndex)
+    {
+        this.name = name;
+        this.letters = letters;
+        this.frequencies = Collections.unmodifiableMap(frequencies);
+        this.letterIndex = letterIndex;
+    }
+
+    /**
+     * Создает профиль и строит для него таблицу индексов.
+     *
+     * @param name Имя профиля.
+     * @param alphabet Буквы алфавита в порядке сдвига.
+     * @param frequencies Статистические частоты (в процентах) строчных букв и некоторых символов языка.
+     * @return Профиль языка.
+     * @throws IllegalArgumentException если алфавит пуст или содержит повторяющиеся символы.
+     */
+    public static AlphabetProfile of(String name, String alphabet, Map<Character, Double> frequencies)
+    {
+        if (alphabet.isEmpty())
+        {
+            throw new IllegalArgumentException("Алфавит профиля " + name + " пуст");
+        }
+
+        char[] letters = alphabet.toCharArray();
+        char max = 0;
+        for (char letter : letters)
+        {
+            max = (char) Math.max(max, letter);
+        }
+
+        int[] letterIndex = new int[max + 1];
+        Arrays.fill(letterIndex, -1);
+        for (int i = 0; i < letters.length; i++)
+        {
+            if (letterIndex[letters[i]] != -1)
+            {
+                throw new IllegalArgumentException("Символ '" + letters[i] + "' повторяется в алфавите профиля " + name);
+            }
+            letterIndex[letters[i]] = i;
+        }
+
+        return new AlphabetProfile(name, letters, new HashMap<>(frequencies), letterIndex);
+    }
+
+    /**
+     * Загружает профиль из файла, отображая файл в память.
+     *
+     * @param path Путь к файлу профиля.
+     * @return Профиль языка.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл не является профилем или алфавит некорректен.
+     */
+    public static AlphabetProfile load(Path path) throws IOException
+    {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ))
+        {
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            int version = data.limit() < 2 * Integer.BYTES || data.getInt() != MAGIC ? -1 : data.getInt();
+            if (version != VERSION && version != VERSION_WITH_INDEX)
+            {
+                throw new IllegalArgumentException("Файл не является профилем алфавита");
+            }
+
+            String name;
+            char[] letters;
+            Map<Character, Double> frequencies = new HashMap<>();
+            try
+            {
+                name = new String(readChars(data));
+                letters = readChars(data);
+
+                int frequencyCount = data.getInt();
+                for (int i = 0; i < frequencyCount; i++)
+                {
+                    frequencies.put(data.getChar(), data.getDouble());
+                }
+                if (version == VERSION_WITH_INDEX)
+                {
+                    // Таблица индексов строится заново, из файла проверяется только ее длина.
+                    int indexLength = data.getInt();
+                    data.position(data.position() + indexLength * Integer.BYTES);
+                }
+            }
+            catch (RuntimeException e)
+            {
+                throw new IllegalArgumentException("Файл профиля алфавита поврежден", e);
+            }
+            if (data.hasRemaining())
+            {
+                throw new IllegalArgumentException("Файл профиля алфавита поврежден");
+            }
+            return of(name, new String(letters), frequencies);
+        }
+    }
+
+    /**
+     * Сохраняет профиль в файл. Профиль сначала записывается во временный файл, который затем заменяет прежний,
+     * поэтому прерванная запись не повреждает сохраненный профиль.
+     *
+     * @param path Путь к файлу профиля. Файл перезаписывается.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    public void write(Path path) throws IOException
+    {
+        ByteBuffer data = ByteBuffer.allocate(5 * Integer.BYTES + (name.length() + letters.length) * Character.BYTES
+                + frequencies.size() * (Character.BYTES + Double.BYTES));
+        data.putInt(MAGIC).putInt(VERSION);
+        data.putInt(name.length());
+        for (int i = 0; i < name.length(); i++)
+        {
+            data.putChar(name.charAt(i));
+        }
+        data.putInt(letters.length);
+        for (char letter : letters)
+        {
+            data.putChar(letter);
+        }
+        data.putInt(frequencies.size());
+        frequencies.forEach((letter, frequency) -> data.putChar(letter).putDouble(frequency));
+        data.flip();
+
+        Path temporary = Files.createTempFile(path.toAbsolutePath().getParent(), "profile", ".tmp");
+        try
+        {
+            try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE))
+            {
+                while (data.hasRemaining())
+                {
+                    channel.write(data);
+                }
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally
+        {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    /**
+     * Возвращает позицию символа в алфавите.
+     *
+     * @param letter Символ.
+     * @return Позиция символа, либо -1, если символа нет в алфавите.
+     */
+    public int indexOf(char letter)
+    {
+        return letter < letterIndex.length ? letterIndex[letter] : -1;
+    }
+
+    /**
+     * Возвращает букву алфавита.
+     *
+     * @param index Позиция в алфавите.
+     * @return Буква алфавита.
+     */
+    public char letterAt(int index)
+    {
+        return letters[index];
+    }
+
+    /**
+     * Возвращает размер алфавита.
+     *
+     * @return Количество букв алфавита.
+     */
+    public int size()
+    {
+        return letters.length;
+    }
+
+    /**
+     * Возвращает статистические частоты (в процентах) строчных букв и некоторых символов языка.
+     *
+     * @return Неизменяемая мапа частот.
+     */
+    public Map<Character, Double> getFrequencies()
+    {
+        return frequencies;
+    }
+
+    /**
+     * Возвращает имя профиля.
+     *
+     * @return Имя профиля.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+    /**
+     * Читает массив символов, перед которым записана его длина.
+     *
+     * @param data Содержимое файла.
+     * @return Массив символов.
+     */
+    private static char[] readChars(ByteBuffer data)
+    {
+        char[] chars = new char[data.getInt()];
+        for (int i = 0; i < chars.length; i++)
+        {
+            chars[i] = data.getChar();
+        }
+        return chars;
+    }
+
+    @Override
+    public String toString()
+    {
+        return name;
+    }
+}
@@ -0,0 +1,187 @@
+package profile;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс BuiltInProfiles содержит встроенные профили языков: русский, английский и украинский.
+ * Алфавит каждого профиля состоит из строчных букв, кавычек и знаков препинания, заглавных букв
+ * и оставшихся знаков препинания, как и исходный алфавит приложения.
+ * <p>
+ * Русский профиль "ru" в точности повторяет исходный алфавит приложения из 75 символов (без строчной "ю"),
+ * поэтому тексты, зашифрованные прежними версиями, расшифровываются тем же ключом. Полный русский алфавит
+ * доступен как отдельный профиль "ru-full", который выбирается только явно.
+ */
+public final class BuiltInProfiles
+{
+    /**
+     * Частоты пробела и знаков препинания, общие для всех профилей.
+     */
+    private static final Map<Character, Double> PUNCTUATION_FREQUENCIES = Map.of(
+            ' ', 15.0,
+            ',', 4.0,
+            '.', 3.0
+    );
+
+    /**
+     * Частоты букв русского языка.
+     */
+    private static final Map<Character, Double> RUSSIAN_FREQUENCIES = withPunctuation(Map.ofEntries(
+            Map.entry('а', 8.66),
+            Map.entry('б', 1.59),
+            Map.entry('в', 4.54),
+            Map.entry('г', 1.70),
+            Map.entry('д', 2.98),
+            Map.entry('е', 8.72),
+            Map.entry('ё', 0.13),
+            Map.entry('ж', 0.94),
+            Map.entry('з', 1.65),
+            Map.entry('и', 7.34),
+            Map.entry('й', 1.21),
+            Map.entry('к', 3.49),
+            Map.entry('л', 4.40),
+            Map.entry('м', 3.21),
+            Map.entry('н', 6.97),
+            Map.entry('о', 9.28),
+            Map.entry('п', 2.81),
+            Map.entry('р', 4.73),
+            Map.entry('с', 5.47),
+            Map.entry('т', 6.26),
+            Map.entry('у', 2.62),
+            Map.entry('ф', 0.26),
+            Map.entry('х', 0.97),
+            Map.entry('ц', 0.48),
+            Map.entry('ч', 1.48),
+            Map.entry('ш', 0.73),
+            Map.entry('щ', 0.36),
+            Map.entry('ъ', 0.04),
+            Map.entry('ы', 1.90),
+            Map.entry('ь', 1.74),
+            Map.entry('э', 0.32),
+            Map.entry('ю', 0.64),
+            Map.entry('я', 2.01)));
+
+    /**
+     * Русский профиль с исходным алфавитом приложения.
+     */
+    public static final AlphabetProfile RUSSIAN = AlphabetProfile.of("ru",
+            "абвгдеёжзийклмнопрстуфхцчшщъыьэя.,«»АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ:!? ;-", RUSSIAN_FREQUENCIES);
+
+    /**
+     * Русский профиль с полным алфавитом. Несовместим с исходным алфавитом приложения.
+     */
+    public static final AlphabetProfile RUSSIAN_FULL = AlphabetProfile.of("ru-full",
+            "абвгдеёжзийклмнопрстуфхцчшщъыьэюя.,«»АБВГДЕЁЖЗИЙКЛМНОПРСТУФХЦЧШЩЪЫЬЭЮЯ:!? ;-", RUSSIAN_FREQUENCIES);
+
+    /**
+     * Английский профиль.
+     */
+    public static final AlphabetProfile ENGLISH = AlphabetProfile.of("en",
+            "abcdefghijklmnopqrstuvwxyz.,\"'ABCDEFGHIJKLMNOPQRSTUVWXYZ:!? ;-",
+            withPunctuation(Map.ofEntries(
+                    Map.entry('a', 8.17),
+                    Map.entry('b', 1.49),
+                    Map.entry('c', 2.78),
+                    Map.entry('d', 4.25),
+                    Map.entry('e', 12.70),
+                    Map.entry('f', 2.23),
+                    Map.entry('g', 2.02),
+                    Map.entry('h', 6.09),
+                    Map.entry('i', 6.97),
+                    Map.entry('j', 0.15),
+                    Map.entry('k', 0.77),
+                    Map.entry('l', 4.03),
+                    Map.entry('m', 2.41),
+                    Map.entry('n', 6.75),
+                    Map.entry('o', 7.51),
+                    Map.entry('p', 1.93),
+                    Map.entry('q', 0.10),
+                    Map.entry('r', 5.99),
+                    Map.entry('s', 6.33),
+                    Map.entry('t', 9.06),
+                    Map.entry('u', 2.76),
+                    Map.entry('v', 0.98),
+                    Map.entry('w', 2.36),
+                    Map.entry('x', 0.15),
+                    Map.entry('y', 1.97),
+                    Map.entry('z', 0.07))));
+
+    /**
+     * Украинский профиль.
+     */
+    public static final AlphabetProfile UKRAINIAN = AlphabetProfile.of("uk",
+            "абвгґдеєжзиіїйклмнопрстуфхцчшщьюя.,«»АБВГҐДЕЄЖЗИІЇЙКЛМНОПРСТУФХЦЧШЩЬЮЯ:!? ;-",
+            withPunctuation(Map.ofEntries(
+                    Map.entry('а', 7.22),
+                    Map.entry('б', 1.72),
+                    Map.entry('в', 5.23),
+                    Map.entry('г', 1.30),
+                    Map.entry('ґ', 0.01),
+                    Map.entry('д', 3.51),
+                    Map.entry('е', 4.72),
+                    Map.entry('є', 0.42),
+                    Map.entry('ж', 0.90),
+                    Map.entry('з', 2.28),
+                    Map.entry('и', 6.17),
+                    Map.entry('і', 5.82),
+                    Map.entry('ї', 0.62),
+                    Map.entry('й', 1.02),
+                    Map.entry('к', 3.62),
+                    Map.entry('л', 3.58),
+                    Map.entry('м', 3.12),
+                    Map.entry('н', 6.49),
+                    Map.entry('о', 9.30),
+                    Map.entry('п', 2.84),
+                    Map.entry('р', 4.60),
+                    Map.entry('с', 4.17),
+                    Map.entry('т', 5.28),
+                    Map.entry('у', 3.70),
+                    Map.entry('ф', 0.12),
+                    Map.entry('х', 1.18),
+                    Map.entry('ц', 0.88),
+                    Map.entry('ч', 1.47),
+                    Map.entry('ш', 0.79),
+                    Map.entry('щ', 0.52),
+                    Map.entry('ь', 1.80),
+                    Map.entry('ю', 0.83),
+                    Map.entry('я', 2.91))));
+
+    // Конструктор приватный, так как класс содержит только константы.
+    private BuiltInProfiles()
+    {
+    }
+
+    /**
+     * Возвращает встроенные профили, из которых выбирается профиль при автоматическом определении.
+     *
+     * @return Список встроенных профилей.
+     */
+    public static List<AlphabetProfile> all()
+    {
+        return List.of(RUSSIAN, ENGLISH, UKRAINIAN);
+    }
+
+    /**
+     * Возвращает встроенные профили, которые выбираются только явно, по имени.
+     *
+     * @return Список встроенных профилей.
+     */
+    public static List<AlphabetProfile> optional()
+    {
+        return List.of(RUSSIAN_FULL);
+    }
+
+    /**
+     * Дополняет частоты букв частотами пробела и знаков препинания.
+     *
+     * @param letterFrequencies Частоты букв.
+     * @return Частоты букв и знаков препинания.
+     */
+    private static Map<Character, Double> withPunctuation(Map<Character, Double> letterFrequencies)
+    {
+        Map<Character, Double> frequencies = new HashMap<>(letterFrequencies);
+        frequencies.putAll(PUNCTUATION_FREQUENCIES);
+        return frequencies;
+    }
+}
@@ -0,0 +1,127 @@
+package profile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Класс ProfileRegistry выдает профили языков по имени или по пути к файлу профиля.
+ * Встроенные профили зарегистрированы сразу; профили, которые выбираются только явно
+ * ({@link BuiltInProfiles#optional()}), доступны по имени, но не участвуют в автоматическом определении.
+ * Профиль, загруженный из файла, регистрируется под своим именем и хранится в памяти процесса, поэтому
+ * повторные задания с тем же профилем не обращаются к диску. Имя профиля не может быть занято дважды,
+ * поэтому файл профиля не может подменить встроенный профиль. Экземпляр потокобезопасен.
+ */
+public final class ProfileRegistry
+{
+    /**
+     * Имя профиля по умолчанию.
+     */
+    public static final String DEFAULT_PROFILE = "ru";
+
+    /**
+     * Профили по имени в порядке регистрации.
+     */
+    private final Map<String, AlphabetProfile> profiles = new LinkedHashMap<>();
+
+    /**
+     * Профили, которые выбираются только явно, по имени.
+     */
+    private final Map<String, AlphabetProfile> optionalProfiles = new LinkedHashMap<>();
+
+    /**
+     * Профили, загруженные из файлов, по абсолютному пути к файлу.
+     */
+    private final Map<Path, AlphabetProfile> loadedProfiles = new LinkedHashMap<>();
+
+    /**
+     * Конструктор класса ProfileRegistry. Регистрирует встроенные профили.
+     */
+    public ProfileRegistry()
+    {
+        for (AlphabetProfile profile : BuiltInProfiles.all())
+        {
+            register(profile);
+        }
+        for (AlphabetProfile profile : BuiltInProfiles.optional())
+        {
+            optionalProfiles.put(profile.getName(), profile);
+        }
+    }
+
+    /**
+     * Регистрирует профиль под его именем.
+     *
+     * @param profile Профиль языка.
+     * @throws IllegalArgumentException если профиль с таким именем уже зарегистрирован.
+     */
+    public synchronized void register(AlphabetProfile profile)
+    {
+        if (profiles.containsKey(profile.getName()) || optionalProfiles.containsKey(profile.getName()))
+        {
+            throw new IllegalArgumentException("Профиль с именем " + profile.getName() + " уже зарегистрирован");
+        }
+        profiles.put(profile.getName(), profile);
+    }
+
+    /**
+     * Возвращает профиль по имени, либо загружает его из файла, если профиля с таким именем нет.
+     *
+     * @param nameOrPath Имя профиля или путь к файлу профиля.
+     * @return Профиль языка.
+     * @throws IOException если профиль не найден или произошла ошибка ввода-вывода.
+     * @throws IllegalArgumentException если файл не является профилем или имя профиля из файла уже занято.
+     */
+    public AlphabetProfile get(String nameOrPath) throws IOException
+    {
+        synchronized (this)
+        {
+            AlphabetProfile profile = profiles.getOrDefault(nameOrPath, optionalProfiles.get(nameOrPath));
+            if (profile != null)
+            {
+                return profile;
+            }
+        }
+
+        Path path = Path.of(nameOrPath).toAbsolutePath().normalize();
+        synchronized (this)
+        {
+            AlphabetProfile profile = loadedProfiles.get(path);
+            if (profile != null)
+            {
+                return profile;
+            }
+        }
+
+        if (!Files.isRegularFile(path))
+        {
+            throw new IOException("Профиль " + nameOrPath + " не найден");
+        }
+        AlphabetProfile profile = AlphabetProfile.load(path);
+        synchronized (this)
+        {
+            AlphabetProfile loaded = loadedProfiles.get(path);
+            if (loaded != null)
+            {
+                return loaded;
+            }
+            register(profile);
+            loadedProfiles.put(path, profile);
+        }
+        return profile;
+    }
+
+    /**
+     * Возвращает все зарегистрированные профили, кроме выбираемых только явно.
+     *
+     * @return Список профилей в порядке регистрации.
+     */
+    public synchronized List<AlphabetProfile> all()
+    {
+        return new ArrayList<>(profiles.values());
+    }
+}
@@ -0,0 +1,177 @@
+package cipher;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import profile.AlphabetProfile;
+import profile.BuiltInProfiles;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Проверяет, что {@link ParallelCipherEngine} дает тот же результат, что и однопоточное преобразование
+ * {@link Utf8ByteCipher}, когда граница блока попадает внутрь двух-, трех- и четырехбайтовых последовательностей
+ * и переносится на начало следующей последовательности.
+ */
+class ParallelCipherEngineTest
+{
+    /**
+     * Количество параллельно обрабатываемых блоков.
+     */
+    private static final int PARALLELISM = 4;
+
+    /**
+     * Символы текста: однобайтовые (в том числе пробел, который шифр превращает в букву кириллицы),
+     * двухбайтовые, трехбайтовые и четырехбайтовые в UTF-8.
+     */
+    private static final String[] LETTERS = {"a", " ", ".", "\n", "я", "Ё", "«", "—", "€", "😀", "𝄞"};
+
+    /**
+     * Пул потоков движка.
+     */
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(PARALLELISM);
+
+    /**
+     * Временный каталог для файлов теста.
+     */
+    @TempDir
+    Path directory;
+
+    @AfterAll
+    static void shutdown()
+    {
+        EXECUTOR.shutdownNow();
+    }
+
+    @Test
+    void matchesSingleThreadedCipherWhenBoundariesSplitSequences() throws IOException
+    {
+        AlphabetProfile profile = BuiltInProfiles.all().getFirst();
+        Set<Integer> splitLengths = new HashSet<>();
+
+        for (int key : new int[]{0, 1, profile.size() - 1})
+        {
+            CompiledCipher cipher = CompiledCipher.of(profile, key);
+            for (int blockSize = 4; blockSize <= 11; blockSize++)
+            {
+                byte[] input = text(blockSize * 31L + key);
+                splitLengths.addAll(splitSequenceLengths(input, blockSize));
+
+                byte[] expected = singleThreaded(input, Utf8ByteCipher.of(cipher));
+                byte[] actual = parallel(input, cipher, blockSize);
+                assertArrayEquals(expected, actual, "ключ " + key + ", размер блока " + blockSize);
+            }
+        }
+
+        assertEquals(Set.of(2, 3, 4), splitLengths, "границы блоков должны попадать внутрь последовательностей всех длин");
+    }
+
+    @Test
+    void matchesSingleThreadedCipherForSingleBlockAndEmptyFile() throws IOException
+    {
+        CompiledCipher cipher = CompiledCipher.of(BuiltInProfiles.all().getFirst(), 7);
+        for (byte[] input : new byte[][]{new byte[0], "я😀".getBytes(StandardCharsets.UTF_8)})
+        {
+            assertArrayEquals(singleThreaded(input, Utf8ByteCipher.of(cipher)), parallel(input, cipher, 64));
+        }
+    }
+
+    /**
+     * Создает случайный текст в UTF-8 из символов разной длины.
+     *
+     * @param seed Начальное значение генератора.
+     * @return Байты текста.
+     */
+    private static byte[] text(long seed)
+    {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 500; i++)
+        {
+            text.append(LETTERS[random.nextInt(LETTERS.length)]);
+        }
+        return text.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Определяет длины последовательностей, внутрь которых попадают номинальные границы блоков.
+     *
+     * @param input Байты текста.
+     * @param blockSize Размер блока.
+     * @return Длины разрезанных последовательностей.
+     */
+    private static Set<Integer> splitSequenceLengths(byte[] input, int blockSize)
+    {
+        Set<Integer> lengths = new HashSet<>();
+        for (int boundary = blockSize; boundary < input.length; boundary += blockSize)
+        {
+            if ((input[boundary] & 0xC0) != 0x80)
+            {
+                continue;
+            }
+            int first = boundary;
+            while ((input[first] & 0xC0) == 0x80)
+            {
+                first--;
+            }
+            int lead = input[first] & 0xFF;
+            lengths.add(lead >= 0xF0 ? 4 : lead >= 0xE0 ? 3 : 2);
+        }
+        return lengths;
+    }
+
+    /**
+     * Преобразует весь текст одним вызовом байтового шифра.
+     *
+     * @param input Байты текста.
+     * @param cipher Байтовый шифр.
+     * @return Байты результата.
+     */
+    private static byte[] singleThreaded(byte[] input, Utf8ByteCipher cipher)
+    {
+        ByteBuffer target = ByteBuffer.allocate(input.length * 2);
+        CoderResult result = cipher.apply(ByteBuffer.wrap(input), target, true);
+        assertTrue(result.isUnderflow(), result.toString());
+        return Arrays.copyOf(target.array(), target.position());
+    }
+
+    /**
+     * Преобразует текст движком параллельного шифрования через файлы.
+     *
+     * @param input Байты текста.
+     * @param cipher Шифр.
+     * @param blockSize Размер блока.
+     * @return Байты результата.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private byte[] parallel(byte[] input, CompiledCipher cipher, int blockSize) throws IOException
+    {
+        Path source = Files.write(directory.resolve("input.txt"), input);
+        Path target = directory.resolve("output.txt");
+        ParallelCipherEngine engine = new ParallelCipherEngine(EXECUTOR, blockSize, PARALLELISM);
+        try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(target, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            engine.transform(in, out, cipher);
+        }
+        return Files.readAllBytes(target);
+    }
+}
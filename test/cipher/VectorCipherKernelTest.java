@@ -0,0 +1,164 @@
+package cipher;
+
+import org.junit.jupiter.api.Test;
+import profile.AlphabetProfile;
+import profile.BuiltInProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Проверяет, что векторное ядро {@link VectorCipherKernel} дает тот же результат, что и таблица подстановки
+ * {@link CompiledCipher}, для всех ключей всех встроенных профилей (в обе стороны), в том числе для символов
+ * за пределами таблицы, суррогатных пар, невыровненных смещений и хвостов короче одного вектора.
+ */
+class VectorCipherKernelTest
+{
+    /**
+     * Длина случайного текста (в символах).
+     */
+    private static final int TEXT_LENGTH = 4096;
+
+    /**
+     * Количество смещений, проверяемых для каждой стороны.
+     */
+    private static final int OFFSETS = 3;
+
+    @Test
+    void matchesTableForAllKeysOfBuiltInProfiles()
+    {
+        for (AlphabetProfile profile : builtInProfiles())
+        {
+            for (int key = 0; key < profile.size(); key++)
+            {
+                CompiledCipher cipher = CompiledCipher.of(profile, key);
+                assertMatchesTable(profile + ", ключ " + key, cipher);
+                assertMatchesTable(profile + ", обратный ключ " + key, cipher.inverse());
+            }
+        }
+    }
+
+    /**
+     * Сравнивает векторное ядро шифра с таблицей на одном тексте при разных смещениях и длинах.
+     *
+     * @param description Описание шифра для сообщения об ошибке.
+     * @param cipher Шифр.
+     */
+    private static void assertMatchesTable(String description, CompiledCipher cipher)
+    {
+        char[] table = table(cipher);
+        VectorCipherKernel kernel = VectorCipherKernel.of(table);
+        assertNotNull(kernel, description + ": таблицу не удалось обработать векторно");
+
+        char[] text = text(table.length, description.hashCode());
+        int lanes = VectorCipherKernel.vectorLength();
+        List<Integer> lengths = new ArrayList<>();
+        for (int length = 0; length <= 3 * lanes + 1; length++)
+        {
+            lengths.add(length);
+        }
+        lengths.add(TEXT_LENGTH - 2 * OFFSETS);
+
+        for (int sourceFrom = 0; sourceFrom < OFFSETS; sourceFrom++)
+        {
+            for (int targetFrom = 0; targetFrom < OFFSETS; targetFrom++)
+            {
+                for (int length : lengths)
+                {
+                    char[] expected = new char[TEXT_LENGTH];
+                    char[] actual = new char[TEXT_LENGTH];
+                    for (int i = 0; i < length; i++)
+                    {
+                        expected[targetFrom + i] = cipher.apply(text[sourceFrom + i]);
+                    }
+                    kernel.apply(text, sourceFrom, actual, targetFrom, length);
+                    assertArrayEquals(expected, actual, description + ", смещения " + sourceFrom + "/" + targetFrom
+                            + ", длина " + length);
+                }
+            }
+        }
+
+        // Преобразование на месте.
+        char[] inPlace = text.clone();
+        char[] expected = new char[TEXT_LENGTH];
+        for (int i = 0; i < TEXT_LENGTH; i++)
+        {
+            expected[i] = cipher.apply(text[i]);
+        }
+        kernel.apply(inPlace, 0, inPlace, 0, TEXT_LENGTH);
+        assertArrayEquals(expected, inPlace, description + ", на месте");
+    }
+
+    /**
+     * Восстанавливает таблицу подстановки шифра по результатам преобразования отдельных символов.
+     *
+     * @param cipher Шифр.
+     * @return Таблица подстановки.
+     */
+    private static char[] table(CompiledCipher cipher)
+    {
+        char[] table = new char[cipher.tableLength()];
+        for (int c = 0; c < table.length; c++)
+        {
+            table[c] = cipher.apply((char) c);
+        }
+        return table;
+    }
+
+    /**
+     * Создает случайный текст: в основном символы таблицы, а также символы сразу за ее пределами,
+     * суррогатные пары и произвольные символы.
+     *
+     * @param tableLength Длина таблицы подстановки.
+     * @param seed Начальное значение генератора.
+     * @return Текст.
+     */
+    private static char[] text(int tableLength, long seed)
+    {
+        Random random = new Random(seed);
+        char[] text = new char[TEXT_LENGTH];
+        for (int i = 0; i < text.length; i++)
+        {
+            int kind = random.nextInt(10);
+            if (kind < 6)
+            {
+                text[i] = (char) random.nextInt(tableLength);
+            }
+            else if (kind < 7)
+            {
+                text[i] = (char) (tableLength + random.nextInt(64));
+            }
+            else if (kind < 8 && i + 1 < text.length)
+            {
+                String pair = Character.toString(0x1F600 + random.nextInt(80));
+                text[i] = pair.charAt(0);
+                text[++i] = pair.charAt(1);
+            }
+            else if (kind < 9)
+            {
+                text[i] = (char) (Character.MIN_SURROGATE + random.nextInt(Character.MAX_SURROGATE - Character.MIN_SURROGATE + 1));
+            }
+            else
+            {
+                text[i] = (char) random.nextInt(Character.MAX_VALUE + 1);
+            }
+        }
+        return text;
+    }
+
+    /**
+     * Возвращает все встроенные профили, включая выбираемые только явно.
+     *
+     * @return Список профилей.
+     */
+    private static List<AlphabetProfile> builtInProfiles()
+    {
+        List<AlphabetProfile> profiles = new ArrayList<>(BuiltInProfiles.all());
+        profiles.addAll(BuiltInProfiles.optional());
+        return profiles;
+    }
+}
@@ -0,0 +1,206 @@
+package file_manager;
+
+import cipher.CompiledCipher;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import profile.AlphabetProfile;
+import profile.BuiltInProfiles;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Проверяет, когда {@link IncrementalFileTransformer} дописывает только новый хвост входного файла,
+ * а когда обрабатывает файл заново целиком: результат всегда должен совпадать с преобразованием всего файла.
+ */
+class IncrementalFileTransformerTest
+{
+    /**
+     * Профиль языка текста.
+     */
+    private static final AlphabetProfile PROFILE = BuiltInProfiles.all().getFirst();
+
+    /**
+     * Шифр по умолчанию.
+     */
+    private static final CompiledCipher CIPHER = CompiledCipher.of(PROFILE, 3);
+
+    /**
+     * Строка текста со символами разной длины в UTF-8.
+     */
+    private static final String LINE = "Съешь же ещё этих мягких французских булок, да выпей чаю! Hello, мир 😀\n";
+
+    /**
+     * Временный каталог для файлов теста.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Проверяемый объект.
+     */
+    private final IncrementalFileTransformer transformer = new IncrementalFileTransformer();
+
+    @Test
+    void appendsOnlyNewBytesOnResume() throws IOException
+    {
+        Path input = directory.resolve("log.txt");
+        Path output = directory.resolve("log.enc");
+        String first = text(100);
+        write(input, first);
+        assertEquals(bytes(first).length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first, CIPHER), Files.readAllBytes(output));
+
+        String tail = text(3);
+        append(input, bytes(tail));
+        assertEquals(bytes(tail).length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first + tail, CIPHER), Files.readAllBytes(output));
+
+        // Без новых байтов ничего не обрабатывается и выходной файл не меняется.
+        assertEquals(0, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first + tail, CIPHER), Files.readAllBytes(output));
+    }
+
+    @Test
+    void carriesIncompleteSequenceOverToNextRun() throws IOException
+    {
+        Path input = directory.resolve("log.txt");
+        Path output = directory.resolve("log.enc");
+        String first = text(10);
+        byte[] letter = bytes("я");
+        byte[] emoji = bytes("😀");
+
+        // Хвост файла - первый байт двухбайтового символа.
+        write(input, first);
+        append(input, Arrays.copyOf(letter, 1));
+        assertEquals(bytes(first).length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first, CIPHER), Files.readAllBytes(output));
+
+        // Символ дописан, за ним - начало четырехбайтового символа.
+        append(input, Arrays.copyOfRange(letter, 1, letter.length));
+        append(input, Arrays.copyOf(emoji, 3));
+        assertEquals(letter.length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first + "я", CIPHER), Files.readAllBytes(output));
+
+        append(input, Arrays.copyOfRange(emoji, 3, emoji.length));
+        assertEquals(emoji.length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first + "я😀", CIPHER), Files.readAllBytes(output));
+    }
+
+    @Test
+    void redoesWholeFileAfterRotation() throws IOException
+    {
+        Path input = directory.resolve("log.txt");
+        Path output = directory.resolve("log.enc");
+        String first = text(200);
+        write(input, first);
+        transformer.transform(input, output, CIPHER);
+
+        // Новый файл длиннее прежнего, но отличается в первых 4 КБ.
+        String rotated = "Новый журнал\n" + text(300);
+        write(input, rotated);
+        assertEquals(bytes(rotated).length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(rotated, CIPHER), Files.readAllBytes(output));
+    }
+
+    @Test
+    void redoesWholeFileAfterKeyChange() throws IOException
+    {
+        Path input = directory.resolve("log.txt");
+        Path output = directory.resolve("log.enc");
+        String first = text(50);
+        write(input, first);
+        transformer.transform(input, output, CIPHER);
+
+        CompiledCipher other = CompiledCipher.of(PROFILE, 5);
+        String tail = text(2);
+        append(input, bytes(tail));
+        assertEquals(bytes(first + tail).length, transformer.transform(input, output, other));
+        assertArrayEquals(expected(first + tail, other), Files.readAllBytes(output));
+    }
+
+    @Test
+    void redoesWholeFileWhenOutputIsShorterThanCheckpoint() throws IOException
+    {
+        Path input = directory.resolve("log.txt");
+        Path output = directory.resolve("log.enc");
+        String first = text(50);
+        write(input, first);
+        transformer.transform(input, output, CIPHER);
+
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.WRITE))
+        {
+            channel.truncate(channel.size() / 2);
+        }
+        String tail = text(2);
+        append(input, bytes(tail));
+        assertEquals(bytes(first + tail).length, transformer.transform(input, output, CIPHER));
+        assertArrayEquals(expected(first + tail, CIPHER), Files.readAllBytes(output));
+    }
+
+    /**
+     * Возвращает текст из нескольких строк.
+     *
+     * @param lines Количество строк.
+     * @return Текст.
+     */
+    private static String text(int lines)
+    {
+        return LINE.repeat(lines);
+    }
+
+    /**
+     * Возвращает результат преобразования всего текста шифром в UTF-8.
+     *
+     * @param text Текст.
+     * @param cipher Шифр.
+     * @return Байты результата.
+     */
+    private static byte[] expected(String text, CompiledCipher cipher)
+    {
+        return bytes(cipher.apply(text));
+    }
+
+    /**
+     * Кодирует текст в UTF-8.
+     *
+     * @param text Текст.
+     * @return Байты текста.
+     */
+    private static byte[] bytes(String text)
+    {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Перезаписывает файл текстом.
+     *
+     * @param path Путь к файлу.
+     * @param text Текст.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static void write(Path path, String text) throws IOException
+    {
+        Files.write(path, bytes(text));
+    }
+
+    /**
+     * Дописывает байты в конец файла.
+     *
+     * @param path Путь к файлу.
+     * @param bytes Байты.
+     * @throws IOException если произошла ошибка ввода-вывода.
+     */
+    private static void append(Path path, byte[] bytes) throws IOException
+    {
+        Files.write(path, bytes, StandardOpenOption.APPEND);
+    }
+}